@@ -0,0 +1,11 @@
+alter table snapshot_content_item add column md5 varchar(32) COLLATE utf8_bin DEFAULT NULL after metadata;
+alter table snapshot_content_item add column sha256 varchar(64) COLLATE utf8_bin DEFAULT NULL after md5;
+alter table snapshot_content_item add index sci_snapshot_md5 (snapshot_id, md5);
+alter table snapshot_content_item add index sci_snapshot_sha256 (snapshot_id, sha256);
+
+-- Backfill the MD5 checksums of existing content items from their recorded
+-- properties. SHA-256 checksums of existing items are not recorded in their
+-- properties and remain null.
+update snapshot_content_item
+   set md5 = json_unquote(json_extract(metadata, '$."content-checksum"'))
+ where md5 is null and metadata is not null;
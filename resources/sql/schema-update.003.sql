@@ -0,0 +1,4 @@
+alter table restoration add column `verification_policy` varchar(16) DEFAULT NULL;
+alter table restoration add column `sample_confidence` double DEFAULT NULL;
+alter table restoration add column `full_verification_date` datetime DEFAULT NULL;
+alter table restoration add column `full_verification_text` varchar(512) DEFAULT NULL;
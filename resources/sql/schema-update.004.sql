@@ -0,0 +1 @@
+alter table restoration add column `chunk_size` bigint(20) DEFAULT NULL;
@@ -28,6 +28,8 @@ public class Application extends ResourceConfig {
               GeneralResource.class,
               SnapshotResource.class,
               RestoreResource.class,
+              BandwidthResource.class,
+              FixityResource.class,
               SnapshotObjectMapperProvider.class,
               JacksonFeature.class,
               MissingJsonBodyInterceptor.class);
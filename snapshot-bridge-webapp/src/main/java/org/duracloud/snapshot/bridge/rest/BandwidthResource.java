@@ -0,0 +1,65 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.bridge.rest;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.duracloud.snapshot.service.impl.BandwidthLimiter;
+import org.duracloud.snapshot.service.impl.BandwidthLimits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Defines the REST resource used to view and change the bandwidth limits
+ * applied to content transfers while the bridge is running.
+ */
+@Component
+@Path("/bandwidth")
+public class BandwidthResource {
+
+    private static Logger log = LoggerFactory.getLogger(BandwidthResource.class);
+
+    private BandwidthLimiter bandwidthLimiter;
+
+    @Autowired
+    public BandwidthResource(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLimits() {
+        return Response.ok().entity(bandwidthLimiter.getLimits()).build();
+    }
+
+    /**
+     * Changes the limits listed in the request. A limit of 0 removes it.
+     */
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response setLimits(BandwidthLimits limits) {
+        try {
+            bandwidthLimiter.setLimits(limits);
+            return Response.ok().entity(bandwidthLimiter.getLimits()).build();
+        } catch (Exception ex) {
+            log.error(ex.getMessage(), ex);
+            return Response.serverError()
+                           .entity(new ResponseDetails(ex.getMessage()))
+                           .build();
+        }
+    }
+}
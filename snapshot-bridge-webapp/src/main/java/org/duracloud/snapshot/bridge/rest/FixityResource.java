@@ -0,0 +1,40 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.bridge.rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.duracloud.snapshot.service.impl.FixityAuditor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Defines the REST resource used to view the progress of the fixity audit
+ * of staged content and the drift it has found.
+ */
+@Component
+@Path("/fixity")
+public class FixityResource {
+
+    private FixityAuditor fixityAuditor;
+
+    @Autowired
+    public FixityResource(FixityAuditor fixityAuditor) {
+        this.fixityAuditor = fixityAuditor;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatus() {
+        return Response.ok().entity(fixityAuditor.getStatus()).build();
+    }
+}
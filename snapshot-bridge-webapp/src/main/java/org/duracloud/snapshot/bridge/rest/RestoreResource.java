@@ -23,6 +23,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -34,6 +35,7 @@ import org.duracloud.snapshot.SnapshotException;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.dto.bridge.CancelRestoreBridgeResult;
 import org.duracloud.snapshot.dto.bridge.CompleteRestoreBridgeResult;
@@ -83,10 +85,34 @@ public class RestoreResource {
         this.snapshotManager = snapshotManager;
     }
 
+    /**
+     * Initiates a restore. The optional verification query parameter selects
+     * the verification policy of the restore (full or sample), and the
+     * optional confidence query parameter the confidence of a sample
+     * verification. The optional chunkSize query parameter sets the size in
+     * bytes of the chunks large files are uploaded in.
+     */
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response restoreSnapshot(CreateRestoreBridgeParameters params) {
+    public Response restoreSnapshot(CreateRestoreBridgeParameters params,
+                                    @QueryParam("verification") String verification,
+                                    @QueryParam("confidence") Double confidence,
+                                    @QueryParam("chunkSize") Long chunkSize) {
+        VerificationPolicy verificationPolicy = VerificationPolicy.FULL;
+        if (verification != null) {
+            try {
+                verificationPolicy = VerificationPolicy.valueOf(verification.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                String message = "Invalid verification policy: " + verification + ", expected one of " +
+                                 Arrays.toString(VerificationPolicy.values());
+                log.warn(message);
+                return Response.status(HttpStatus.SC_BAD_REQUEST)
+                               .entity(new ResponseDetails(message))
+                               .build();
+            }
+        }
+
         try {
             DuracloudEndPointConfig destination = new DuracloudEndPointConfig();
             destination.setHost(params.getHost());
@@ -95,7 +121,8 @@ public class RestoreResource {
             destination.setSpaceId(params.getSpaceId());
             Restoration result =
                 this.restorationManager.restoreSnapshot(params.getSnapshotId(),
-                                                        destination, params.getUserEmail());
+                                                        destination, params.getUserEmail(),
+                                                        verificationPolicy, confidence, chunkSize);
 
             log.info("executed restore snapshot:  params=" + params + ", result = " + result);
 
@@ -21,6 +21,7 @@ import org.duracloud.snapshot.common.test.SnapshotTestBase;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.dto.bridge.CreateRestoreBridgeParameters;
 import org.duracloud.snapshot.dto.bridge.RequestRestoreBridgeParameters;
@@ -70,7 +71,10 @@ public class RestoreResourceTest extends SnapshotTestBase {
 
         EasyMock.expect(manager.restoreSnapshot(EasyMock.isA(String.class),
                                                 EasyMock.isA(DuracloudEndPointConfig.class),
-                                                EasyMock.isA(String.class)))
+                                                EasyMock.isA(String.class),
+                                                EasyMock.eq(VerificationPolicy.FULL),
+                                                EasyMock.isNull(),
+                                                EasyMock.isNull()))
                 .andReturn(restoration);
 
         EasyMock.expect(restoration.getSnapshot())
@@ -93,7 +97,7 @@ public class RestoreResourceTest extends SnapshotTestBase {
         params.setSnapshotId("snapshot");
         params.setSpaceId("space");
         params.setUserEmail(userEmail);
-        resource.restoreSnapshot(params);
+        resource.restoreSnapshot(params, null, null, null);
 
         String history = historyCapture.getValue();
         String expectedHistory =
@@ -103,6 +107,16 @@ public class RestoreResourceTest extends SnapshotTestBase {
         assertEquals(expectedHistory, history.replaceAll("\\s", ""));
     }
 
+    @Test
+    public void testRestoreSnapshotInvalidVerification() {
+        replayAll();
+
+        CreateRestoreBridgeParameters params = new CreateRestoreBridgeParameters();
+        params.setSnapshotId("snapshot");
+        Response response = resource.restoreSnapshot(params, "partial", null, null);
+        assertEquals(400, response.getStatus());
+    }
+
     @Test
     public void testRequesetRestoreSnapshot() throws SnapshotException {
         String restorationId = "restoration-id";
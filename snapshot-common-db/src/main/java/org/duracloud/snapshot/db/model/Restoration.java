@@ -46,6 +46,15 @@ public class Restoration extends BaseEntity {
     @Column(length = 512, unique = true)
     private String restorationId;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private VerificationPolicy verificationPolicy;
+    private Double sampleConfidence;
+    private Date fullVerificationDate;
+    @Column(length = 512)
+    private String fullVerificationText;
+    private Long chunkSize;
+
     /**
      * @return the snapshot
      */
@@ -179,4 +188,63 @@ public class Restoration extends BaseEntity {
     public void setRestorationId(String restorationId) {
         this.restorationId = restorationId;
     }
+
+    /**
+     * @return how the content of the restoration is verified, FULL for
+     * restorations made before the policy was recorded
+     */
+    public VerificationPolicy getVerificationPolicy() {
+        return verificationPolicy == null ? VerificationPolicy.FULL : verificationPolicy;
+    }
+
+    public void setVerificationPolicy(VerificationPolicy verificationPolicy) {
+        this.verificationPolicy = verificationPolicy;
+    }
+
+    /**
+     * @return the confidence with which a sample verified restoration is free
+     * of corrupt content when it completes, or null if it is fully verified
+     */
+    public Double getSampleConfidence() {
+        return sampleConfidence;
+    }
+
+    public void setSampleConfidence(Double sampleConfidence) {
+        this.sampleConfidence = sampleConfidence;
+    }
+
+    /**
+     * @return when all of the content of a sample verified restoration was
+     * verified, or null if that is still to be done
+     */
+    public Date getFullVerificationDate() {
+        return fullVerificationDate;
+    }
+
+    public void setFullVerificationDate(Date fullVerificationDate) {
+        this.fullVerificationDate = fullVerificationDate;
+    }
+
+    /**
+     * @return the outcome of the full verification of a sample verified restoration
+     */
+    public String getFullVerificationText() {
+        return fullVerificationText;
+    }
+
+    public void setFullVerificationText(String fullVerificationText) {
+        this.fullVerificationText = fullVerificationText;
+    }
+
+    /**
+     * @return the size in bytes of the chunks large files are uploaded in, or
+     * null for the configured default
+     */
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
 }
@@ -39,6 +39,29 @@ public class SnapshotContentItem extends BaseEntity implements Comparator<Snapsh
     @Column(length = 1024)
     private String metadata;
 
+    @Column(name = "md5", length = 32)
+    private String md5;
+
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    public SnapshotContentItem() {
+    }
+
+    /**
+     * Creates a content item holding only its id, content id and MD5
+     * checksum, as returned by checksum projection queries.
+     *
+     * @param id        the id of the item
+     * @param contentId the content id
+     * @param md5       the MD5 checksum of the content
+     */
+    public SnapshotContentItem(Long id, String contentId, String md5) {
+        this.id = id;
+        this.contentId = contentId;
+        this.md5 = md5;
+    }
+
     /**
      * @return the contentId
      */
@@ -81,6 +104,34 @@ public class SnapshotContentItem extends BaseEntity implements Comparator<Snapsh
         this.metadata = metadata;
     }
 
+    /**
+     * @return the MD5 checksum of the content, or null if it was not recorded
+     */
+    public String getMd5() {
+        return md5;
+    }
+
+    /**
+     * @param md5 the md5 to set
+     */
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    /**
+     * @return the SHA-256 checksum of the content, or null if it was not recorded
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * @param sha256 the sha256 to set
+     */
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
     /* (non-Javadoc)
      * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
      */
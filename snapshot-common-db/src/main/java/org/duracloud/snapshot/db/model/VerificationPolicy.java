@@ -0,0 +1,23 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.db.model;
+
+/**
+ * How the content of a restoration is verified.
+ */
+public enum VerificationPolicy {
+    /**
+     * Every file is verified before the restoration completes.
+     */
+    FULL,
+    /**
+     * A size-weighted sample of the files is verified before the restoration
+     * completes, and all of the restored content is verified afterwards.
+     */
+    SAMPLE;
+}
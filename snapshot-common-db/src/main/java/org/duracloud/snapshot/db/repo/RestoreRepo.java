@@ -10,6 +10,7 @@ package org.duracloud.snapshot.db.repo;
 import java.util.List;
 
 import org.duracloud.snapshot.db.model.Restoration;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -56,6 +57,17 @@ public interface RestoreRepo extends JpaRepository<Restoration, Long> {
            "('RETRIEVING_FROM_STORAGE','RESTORATION_COMPLETE','RESTORATION_EXPIRED','ERROR')")
     public List<Restoration> findRunning();
 
+    /**
+     * Returns a list of restorations with the given status and verification
+     * policy whose content has not yet been fully verified.
+     *
+     * @param status
+     * @param verificationPolicy
+     * @return
+     */
+    public List<Restoration> findByStatusAndVerificationPolicyAndFullVerificationDateIsNull(
+        RestoreStatus status, VerificationPolicy verificationPolicy);
+
     /**
      * Deletes the restore entity
      *
@@ -14,6 +14,7 @@ import org.duracloud.snapshot.db.model.SnapshotContentItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -22,7 +23,8 @@ import org.springframework.stereotype.Repository;
  * Date: Jul 31, 2014
  */
 @Repository(value = "snapshotContentItemRepo")
-public interface SnapshotContentItemRepo extends JpaRepository<SnapshotContentItem, Long> {
+public interface SnapshotContentItemRepo extends JpaRepository<SnapshotContentItem, Long>,
+                                                 SnapshotContentItemRepoCustom {
 
     public List<SnapshotContentItem> findBySnapshotNameOrderByContentIdAsc(
         @Param("snapshotName") String snapshotName,
@@ -37,6 +39,9 @@ public interface SnapshotContentItemRepo extends JpaRepository<SnapshotContentIt
 
     public long countBySnapshotId(@Param("snapshotId") Long snapshotId);
 
+    public long countBySnapshotNameAndContentIdNot(@Param("snapshotName") String snapshotName,
+                                                   @Param("contentId") String contentId);
+
     /**
      * @param snapshotName
      * @param pageable
@@ -45,6 +50,40 @@ public interface SnapshotContentItemRepo extends JpaRepository<SnapshotContentIt
     public Page<SnapshotContentItem> findBySnapshotName(@Param("snapshotName") String snapshotName,
                                                         Pageable pageable);
 
+    /**
+     * Reads the next page of the content ids and MD5 checksums of the items
+     * in a snapshot, in id order, starting after the given id. Paging by id
+     * rather than by offset keeps the cost of each page constant. The
+     * returned items hold only their id, content id and MD5 checksum.
+     *
+     * @param snapshotName
+     * @param afterId  the id after which the page starts
+     * @param maxId    the largest id which may be returned
+     * @param pageable the size of the page; its page number should be 0
+     * @return
+     */
+    @Query("select new org.duracloud.snapshot.db.model.SnapshotContentItem(i.id, i.contentId, i.md5) " +
+           "from SnapshotContentItem i where i.snapshot.name = :snapshotName " +
+           "and i.id > :afterId and i.id <= :maxId order by i.id")
+    public List<SnapshotContentItem> findChecksumsBySnapshotNameAfterId(@Param("snapshotName") String snapshotName,
+                                                                        @Param("afterId") Long afterId,
+                                                                        @Param("maxId") Long maxId,
+                                                                        Pageable pageable);
+
+    /**
+     * @param snapshotName
+     * @return the smallest id of the items in the snapshot, or null if it has none
+     */
+    @Query("select min(i.id) from SnapshotContentItem i where i.snapshot.name = :snapshotName")
+    public Long findMinIdBySnapshotName(@Param("snapshotName") String snapshotName);
+
+    /**
+     * @param snapshotName
+     * @return the largest id of the items in the snapshot, or null if it has none
+     */
+    @Query("select max(i.id) from SnapshotContentItem i where i.snapshot.name = :snapshotName")
+    public Long findMaxIdBySnapshotName(@Param("snapshotName") String snapshotName);
+
     /**
      * @param id
      * @param contentIdHash
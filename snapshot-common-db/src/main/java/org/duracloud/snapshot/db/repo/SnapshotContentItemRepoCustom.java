@@ -0,0 +1,30 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.db.repo;
+
+import java.util.List;
+
+import org.duracloud.snapshot.db.model.SnapshotContentItem;
+
+/**
+ * Operations on snapshot content items which are not expressible as
+ * Spring Data query methods.
+ */
+public interface SnapshotContentItemRepoCustom {
+
+    /**
+     * Inserts the items using a single multi-row insert. Items which already
+     * exist (based on the snapshot and content id hash) are left unchanged.
+     * Must be called within a transaction.
+     *
+     * @param items the items to insert
+     * @return the number of rows affected
+     */
+    public int insertIgnoringDuplicates(List<SnapshotContentItem> items);
+
+}
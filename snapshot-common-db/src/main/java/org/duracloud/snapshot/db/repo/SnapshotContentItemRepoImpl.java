@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.db.repo;
+
+import java.util.Date;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+
+import org.duracloud.snapshot.db.model.SnapshotContentItem;
+
+/**
+ * Implementation of the custom snapshot content item operations, picked up
+ * by Spring Data as the implementation of {@link SnapshotContentItemRepoCustom}.
+ */
+public class SnapshotContentItemRepoImpl implements SnapshotContentItemRepoCustom {
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO snapshot_content_item " +
+        "(modified, content_id, content_id_hash, metadata, md5, sha256, snapshot_id) VALUES ";
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = " ON DUPLICATE KEY UPDATE id = id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int insertIgnoringDuplicates(List<SnapshotContentItem> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_VALUES);
+        }
+        sql.append(INSERT_SUFFIX);
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        Date modified = new Date();
+        int position = 1;
+        for (SnapshotContentItem item : items) {
+            query.setParameter(position++, modified, TemporalType.TIMESTAMP);
+            query.setParameter(position++, item.getContentId());
+            query.setParameter(position++, item.getContentIdHash());
+            query.setParameter(position++, item.getMetadata());
+            query.setParameter(position++, item.getMd5());
+            query.setParameter(position++, item.getSha256());
+            query.setParameter(position++, item.getSnapshot().getId());
+        }
+        return query.executeUpdate();
+    }
+
+}
@@ -54,6 +54,11 @@ CREATE TABLE IF NOT EXISTS `restoration` (
   `user_email` varchar(255) NOT NULL,
   `snapshot_id` bigint(20) NOT NULL,
   `restoration_id` varchar(255) NOT NULL,
+  `verification_policy` varchar(16) DEFAULT NULL,
+  `sample_confidence` double DEFAULT NULL,
+  `full_verification_date` datetime DEFAULT NULL,
+  `full_verification_text` varchar(512) DEFAULT NULL,
+  `chunk_size` bigint(20) DEFAULT NULL,
   PRIMARY KEY (`id`),
   UNIQUE KEY `UK_RESTORATION_ID` (`restoration_id`),
   KEY `FK_ejb7a5btov5hyhb0pyvo3yeb7` (`snapshot_id`),
@@ -70,9 +75,13 @@ CREATE TABLE IF NOT EXISTS `snapshot_content_item` (
   `content_id` varchar(2000) COLLATE utf8_bin NOT NULL,
   `content_id_hash` varchar(50) COLLATE utf8_bin NOT NULL,
   `metadata` longtext COLLATE utf8_bin,
+  `md5` varchar(32) COLLATE utf8_bin DEFAULT NULL,
+  `sha256` varchar(64) COLLATE utf8_bin DEFAULT NULL,
   `snapshot_id` bigint(20) NOT NULL,
   PRIMARY KEY (`id`),
   UNIQUE KEY `UK_30tots9ry24rjg42xn08egdrl` (`snapshot_id`,`content_id_hash`),
+  KEY `sci_snapshot_md5` (`snapshot_id`,`md5`),
+  KEY `sci_snapshot_sha256` (`snapshot_id`,`sha256`),
   CONSTRAINT `FK_bif6fhum5u975ks9uo9xufbjh` FOREIGN KEY (`snapshot_id`) REFERENCES `snapshot` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 /*!40101 SET character_set_client = @saved_cs_client */;
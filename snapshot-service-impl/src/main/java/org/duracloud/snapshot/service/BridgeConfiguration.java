@@ -22,6 +22,58 @@ public class BridgeConfiguration {
 
     public static final String DURACLOUD_BRIDGE_ROOT_SYSTEM_PROPERTY = "duracloud.bridge.root.dir";
     public static final String DURACLOUD_BRIDGE_THREADS_PER_JOB = "duracloud.bridge.threads-per-job";
+    public static final String DURACLOUD_BRIDGE_ADAPTIVE_THREADS_MIN = "duracloud.bridge.adaptive-threads.min";
+    public static final String DURACLOUD_BRIDGE_ADAPTIVE_THREADS_MAX = "duracloud.bridge.adaptive-threads.max";
+    public static final String DURACLOUD_BRIDGE_ADAPTIVE_THREADS_INTERVAL =
+        "duracloud.bridge.adaptive-threads.sample-interval-ms";
+    public static final String DURACLOUD_BRIDGE_CHUNK_THREADS_PER_ITEM = "duracloud.bridge.chunk-threads-per-item";
+    public static final String DURACLOUD_BRIDGE_ITEM_PREFETCH_SIZE = "duracloud.bridge.item-prefetch-size";
+    public static final String DURACLOUD_BRIDGE_CONTENT_ITEM_BATCH_SIZE =
+        "duracloud.bridge.content-item.batch-size";
+    public static final String DURACLOUD_BRIDGE_CONTENT_ITEM_FLUSH_INTERVAL =
+        "duracloud.bridge.content-item.flush-interval-ms";
+    public static final String DURACLOUD_BRIDGE_TRANSFER_CACHE_COMMIT_SIZE =
+        "duracloud.bridge.transfer-cache.commit-size";
+    public static final String DURACLOUD_BRIDGE_TRANSFER_CACHE_COMMIT_INTERVAL =
+        "duracloud.bridge.transfer-cache.commit-interval-ms";
+    public static final String DURACLOUD_BRIDGE_INCREMENTAL_SNAPSHOTS = "duracloud.bridge.incremental-snapshots";
+    public static final String DURACLOUD_BRIDGE_MANIFEST_FLUSH_SIZE = "duracloud.bridge.manifest.flush-size";
+    public static final String DURACLOUD_BRIDGE_MANIFEST_FLUSH_INTERVAL =
+        "duracloud.bridge.manifest.flush-interval-ms";
+    public static final String DURACLOUD_BRIDGE_BANDWIDTH_GLOBAL_LIMIT =
+        "duracloud.bridge.bandwidth.global-bytes-per-sec";
+    public static final String DURACLOUD_BRIDGE_MANIFEST_SORTED_VERIFICATION =
+        "duracloud.bridge.manifest.sorted-verification";
+    public static final String DURACLOUD_BRIDGE_MANIFEST_SORT_BUFFER_SIZE =
+        "duracloud.bridge.manifest.sort-buffer-size";
+    public static final String DURACLOUD_BRIDGE_MANIFEST_RECHECK_THRESHOLD =
+        "duracloud.bridge.manifest.recheck-threshold";
+    public static final String DURACLOUD_BRIDGE_VERIFY_THREADS = "duracloud.bridge.verify.threads";
+    public static final String DURACLOUD_BRIDGE_VERIFY_BATCH_SIZE = "duracloud.bridge.verify.batch-size";
+    public static final String DURACLOUD_BRIDGE_CHECKSUM_CACHE_ENABLED = "duracloud.bridge.checksum-cache.enabled";
+    public static final String DURACLOUD_BRIDGE_CHECKSUM_CACHE_PARANOID = "duracloud.bridge.checksum-cache.paranoid";
+    public static final String DURACLOUD_BRIDGE_VERIFY_PARALLEL = "duracloud.bridge.verify.parallel";
+    public static final String DURACLOUD_BRIDGE_VERIFY_REPO_PARTITIONS = "duracloud.bridge.verify.repo-partitions";
+    public static final String DURACLOUD_BRIDGE_VERIFY_SAMPLE_CONFIDENCE = "duracloud.bridge.verify.sample-confidence";
+    public static final String DURACLOUD_BRIDGE_VERIFY_SAMPLE_TOLERANCE = "duracloud.bridge.verify.sample-tolerance";
+    public static final String DURACLOUD_BRIDGE_FIXITY_AUDIT_ENABLED = "duracloud.bridge.fixity-audit.enabled";
+    public static final String DURACLOUD_BRIDGE_FIXITY_AUDIT_PERIOD_MS = "duracloud.bridge.fixity-audit.period-ms";
+    public static final String DURACLOUD_BRIDGE_FIXITY_AUDIT_BYTES_PER_SECOND =
+        "duracloud.bridge.fixity-audit.bytes-per-second";
+    public static final String DURACLOUD_BRIDGE_FIXITY_AUDIT_FILES_PER_SECOND =
+        "duracloud.bridge.fixity-audit.files-per-second";
+    public static final String DURACLOUD_BRIDGE_FIXITY_AUDIT_QUIET_PERIOD_MS =
+        "duracloud.bridge.fixity-audit.quiet-period-ms";
+    public static final String DURACLOUD_BRIDGE_RESTORE_PROPERTIES_PARTITIONS =
+        "duracloud.bridge.restore.properties-partitions";
+    public static final String DURACLOUD_BRIDGE_RESTORE_LARGE_FILE_THRESHOLD =
+        "duracloud.bridge.restore.large-file-threshold";
+    public static final String DURACLOUD_BRIDGE_RESTORE_BATCH_BYTES = "duracloud.bridge.restore.batch-bytes";
+    public static final String DURACLOUD_BRIDGE_RESTORE_BATCH_FILES = "duracloud.bridge.restore.batch-files";
+    public static final String DURACLOUD_BRIDGE_RESTORE_CHUNK_SIZE = "duracloud.bridge.restore.chunk-size";
+    public static final String DURACLOUD_BRIDGE_RESTORE_CHUNK_THREADS = "duracloud.bridge.restore.chunk-threads";
+    public static final String DURACLOUD_BRIDGE_RESTORE_PROPERTIES_AT_UPLOAD =
+        "duracloud.bridge.restore.properties-at-upload";
 
     private String[] duracloudEmailAddresses;
     private String duracloudUsername;
@@ -121,24 +173,360 @@ public class BridgeConfiguration {
     }
 
     public static int getBridgeThreadsPerJob() {
-        String threadsPerJobConfig = System.getProperty(DURACLOUD_BRIDGE_THREADS_PER_JOB);
-        if (null != threadsPerJobConfig) {
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        int defaultThreads = availableProcessors > 1 ? availableProcessors - 1 : 1;
+        return getIntProperty(DURACLOUD_BRIDGE_THREADS_PER_JOB, defaultThreads);
+    }
+
+    /**
+     * @return the lower bound on threads per job when adaptive concurrency is enabled
+     */
+    public static int getBridgeAdaptiveThreadsMin() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_ADAPTIVE_THREADS_MIN, 1));
+    }
+
+    /**
+     * @return the upper bound on threads per job when adaptive concurrency is
+     * enabled. A value of 0 (the default) disables adaptive concurrency, in
+     * which case the fixed threads-per-job setting applies.
+     */
+    public static int getBridgeAdaptiveThreadsMax() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_ADAPTIVE_THREADS_MAX, 0));
+    }
+
+    /**
+     * @return how often, in milliseconds, throughput is evaluated when
+     * adaptive concurrency is enabled
+     */
+    public static int getBridgeAdaptiveThreadsSampleInterval() {
+        return Math.max(1000, getIntProperty(DURACLOUD_BRIDGE_ADAPTIVE_THREADS_INTERVAL, 30000));
+    }
+
+    /**
+     * @return the number of chunks of a single chunked content item which may
+     * be retrieved concurrently when creating a snapshot. A value of 1 (the
+     * default) retrieves chunks sequentially as a single stitched stream.
+     */
+    public static int getBridgeChunkThreadsPerItem() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_CHUNK_THREADS_PER_ITEM, 1));
+    }
+
+    /**
+     * @return the number of content items which may be listed ahead of the
+     * snapshot transfer threads by a background listing thread. A value of 0
+     * (the default) lists items inline as each transfer thread asks for one.
+     */
+    public static int getBridgeItemPrefetchSize() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_ITEM_PREFETCH_SIZE, 0));
+    }
+
+    /**
+     * @return the maximum number of content items whose transfer details may
+     * be held before the snapshot transfer cache is committed to disk
+     */
+    public static int getBridgeTransferCacheCommitSize() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_TRANSFER_CACHE_COMMIT_SIZE, 100));
+    }
+
+    /**
+     * @return the maximum time in milliseconds that transfer details may be
+     * held before the snapshot transfer cache is committed to disk
+     */
+    public static int getBridgeTransferCacheCommitInterval() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_TRANSFER_CACHE_COMMIT_INTERVAL, 1000));
+    }
+
+    /**
+     * @return the number of snapshot content items written to the database in
+     * a single batch insert. A value of 0 (the default) writes each item in its
+     * own transaction as it is transferred.
+     */
+    public static int getBridgeContentItemBatchSize() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_CONTENT_ITEM_BATCH_SIZE, 0));
+    }
+
+    /**
+     * @return the maximum time in milliseconds that snapshot content items are
+     * held before being written to the database when batching is enabled
+     */
+    public static int getBridgeContentItemFlushInterval() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_CONTENT_ITEM_FLUSH_INTERVAL, 5000));
+    }
+
+    /**
+     * @return true if unchanged content should be reused from the previous
+     * snapshot of a space when that snapshot is still held on the bridge.
+     * Disabled by default.
+     */
+    public static boolean isBridgeIncrementalSnapshots() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_INCREMENTAL_SNAPSHOTS, "false"));
+    }
+
+    /**
+     * @return the number of manifest and content property entries written by
+     * a snapshot between flushes of the output files
+     */
+    public static int getBridgeManifestFlushSize() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_MANIFEST_FLUSH_SIZE, 1000));
+    }
+
+    /**
+     * @return the maximum time in milliseconds that manifest and content
+     * property entries are held before the output files are flushed
+     */
+    public static int getBridgeManifestFlushInterval() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_MANIFEST_FLUSH_INTERVAL, 1000));
+    }
+
+    /**
+     * @return the initial limit in bytes per second on the combined bandwidth
+     * of all content transfers. A value of 0 (the default) is unlimited. The
+     * limit may be changed at runtime through the bandwidth REST resource.
+     */
+    public static long getBridgeBandwidthGlobalLimit() {
+        return Math.max(0, getLongProperty(DURACLOUD_BRIDGE_BANDWIDTH_GLOBAL_LIMIT, 0));
+    }
+
+    /**
+     * @return true if space manifests should be verified against snapshot
+     * manifests by sorting both on disk and merge-joining them, rather than
+     * by holding the snapshot manifest in memory. Disabled by default.
+     */
+    public static boolean isBridgeSortedManifestVerification() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_MANIFEST_SORTED_VERIFICATION, "false"));
+    }
+
+    /**
+     * @return the number of manifest entries sorted in memory before they are
+     * spilled to disk during sorted manifest verification
+     */
+    public static int getBridgeManifestSortBufferSize() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_MANIFEST_SORT_BUFFER_SIZE, 100000));
+    }
+
+    /**
+     * @return the largest number of differing entries which a space manifest
+     * verification retry rechecks individually before regenerating the space
+     * manifest. Defaults to 0, where the space manifest is always
+     * regenerated.
+     */
+    public static int getBridgeManifestRecheckThreshold() {
+        return Math.max(0, getIntProperty(DURACLOUD_BRIDGE_MANIFEST_RECHECK_THRESHOLD, 0));
+    }
+
+    /**
+     * @return the number of restored files checksummed at once when verifying
+     * a restore against its manifest. Defaults to the number of processors.
+     */
+    public static int getBridgeVerifyThreads() {
+        int defaultThreads = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_VERIFY_THREADS, defaultThreads));
+    }
+
+    /**
+     * @return the number of manifest entries verified between checkpoints
+     * when verifying a restore against its manifest
+     */
+    public static int getBridgeVerifyBatchSize() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_VERIFY_BATCH_SIZE, 100));
+    }
+
+    /**
+     * @return true if checksums of files held on the bridge should be cached
+     * with the files so unchanged files are not read again. Disabled by default.
+     */
+    public static boolean isBridgeChecksumCacheEnabled() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_CHECKSUM_CACHE_ENABLED, "false"));
+    }
+
+    /**
+     * @return true if cached checksums should never be trusted, so files are
+     * always read again. Disabled by default.
+     */
+    public static boolean isBridgeChecksumCacheParanoid() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_CHECKSUM_CACHE_PARANOID, "false"));
+    }
+
+    /**
+     * @return true if a restore should verify its content against the manifest
+     * and verify the snapshot repository against the manifest at the same
+     * time rather than one after the other. Disabled by default.
+     */
+    public static boolean isBridgeVerifyParallel() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_VERIFY_PARALLEL, "false"));
+    }
+
+    /**
+     * @return the number of partitions of the snapshot repository which are
+     * paged through at once when verifying it against the manifest of a
+     * restore. Defaults to 1.
+     */
+    public static int getBridgeVerifyRepoPartitions() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_VERIFY_REPO_PARTITIONS, 1));
+    }
+
+    /**
+     * @return the confidence with which a sample verified restore is free of
+     * corrupt content, where the restore request does not give one. Defaults
+     * to 0.99.
+     */
+    public static double getBridgeVerifySampleConfidence() {
+        return getDoubleProperty(DURACLOUD_BRIDGE_VERIFY_SAMPLE_CONFIDENCE, 0.99);
+    }
+
+    /**
+     * @return the smallest fraction of the bytes of a restore which, if
+     * corrupt, a sample verification should detect with the requested
+     * confidence. Defaults to 0.01.
+     */
+    public static double getBridgeVerifySampleTolerance() {
+        return getDoubleProperty(DURACLOUD_BRIDGE_VERIFY_SAMPLE_TOLERANCE, 0.01);
+    }
+
+    /**
+     * @return true if content staged in the snapshots and restorations
+     * directories should be audited periodically against its manifests.
+     * Disabled by default.
+     */
+    public static boolean isBridgeFixityAuditEnabled() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_FIXITY_AUDIT_ENABLED, "false"));
+    }
+
+    /**
+     * @return the time in milliseconds between the end of one fixity audit
+     * pass and the start of the next. Defaults to one day.
+     */
+    public static long getBridgeFixityAuditPeriodMs() {
+        return Math.max(1, getLongProperty(DURACLOUD_BRIDGE_FIXITY_AUDIT_PERIOD_MS, 24 * 60 * 60 * 1000L));
+    }
+
+    /**
+     * @return the number of bytes per second the fixity audit may read.
+     * Defaults to 10 MiB.
+     */
+    public static long getBridgeFixityAuditBytesPerSecond() {
+        return Math.max(1, getLongProperty(DURACLOUD_BRIDGE_FIXITY_AUDIT_BYTES_PER_SECOND, 10 * 1024 * 1024L));
+    }
+
+    /**
+     * @return the number of files per second the fixity audit may open.
+     * Defaults to 50.
+     */
+    public static long getBridgeFixityAuditFilesPerSecond() {
+        return Math.max(1, getLongProperty(DURACLOUD_BRIDGE_FIXITY_AUDIT_FILES_PER_SECOND, 50));
+    }
+
+    /**
+     * @return the time in milliseconds a manifest or file must go unmodified
+     * before the fixity audit checks it, so that content still being written
+     * by a job is left alone. Defaults to one hour.
+     */
+    public static long getBridgeFixityAuditQuietPeriodMs() {
+        return Math.max(0, getLongProperty(DURACLOUD_BRIDGE_FIXITY_AUDIT_QUIET_PERIOD_MS, 60 * 60 * 1000L));
+    }
+
+    /**
+     * @return the number of ranges of the content properties file of a
+     * restore which are read and applied at once, each by its own reader.
+     * Defaults to 1, where a single reader is shared by the step's threads.
+     */
+    public static int getBridgeRestorePropertiesPartitions() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_RESTORE_PROPERTIES_PARTITIONS, 1));
+    }
+
+    /**
+     * @return the size in bytes of the smallest restored file which is
+     * uploaded ahead of the others, largest first. Defaults to 0, where files
+     * are uploaded in order of their paths.
+     */
+    public static long getBridgeRestoreLargeFileThreshold() {
+        return Math.max(0, getLongProperty(DURACLOUD_BRIDGE_RESTORE_LARGE_FILE_THRESHOLD, 0));
+    }
+
+    /**
+     * @return the number of bytes of restored files uploaded together in a
+     * single chunk. Defaults to 0, where each file is uploaded in a chunk of
+     * its own.
+     */
+    public static long getBridgeRestoreBatchBytes() {
+        return Math.max(0, getLongProperty(DURACLOUD_BRIDGE_RESTORE_BATCH_BYTES, 0));
+    }
+
+    /**
+     * @return the most restored files uploaded together in a single chunk,
+     * where a number of bytes to batch is set. Defaults to 100.
+     */
+    public static int getBridgeRestoreBatchFiles() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_RESTORE_BATCH_FILES, 100));
+    }
+
+    /**
+     * @return the size in bytes, a multiple of 1000, of the chunks restored
+     * files larger than a chunk are uploaded in, where the restore does not
+     * give one. Defaults to 1 GB.
+     */
+    public static long getBridgeRestoreChunkSize() {
+        return Math.max(1, getLongProperty(DURACLOUD_BRIDGE_RESTORE_CHUNK_SIZE, 1000 * 1000 * 1000L));
+    }
+
+    /**
+     * @return the number of chunks of restored files which are uploaded at
+     * once by each restore. Defaults to 1, where the chunks of each file are
+     * uploaded one after another.
+     */
+    public static int getBridgeRestoreChunkThreads() {
+        return Math.max(1, getIntProperty(DURACLOUD_BRIDGE_RESTORE_CHUNK_THREADS, 1));
+    }
+
+    /**
+     * @return true if a restore should send the restored properties of each
+     * file with its upload, leaving the content properties step to apply only
+     * those it could not. Disabled by default.
+     */
+    public static boolean isBridgeRestorePropertiesAtUpload() {
+        return Boolean.parseBoolean(System.getProperty(DURACLOUD_BRIDGE_RESTORE_PROPERTIES_AT_UPLOAD, "false"));
+    }
+
+    private static int getIntProperty(String property, int defaultValue) {
+        String value = System.getProperty(property);
+        if (null != value) {
             try {
-                return Integer.parseInt(threadsPerJobConfig);
+                return Integer.parseInt(value);
             } catch (NumberFormatException e) {
-                log.warn("Could not parse system property " +
-                         DURACLOUD_BRIDGE_THREADS_PER_JOB +
-                         " with value " + threadsPerJobConfig +
-                         " into an int. Proceeding with default threads setting.");
+                log.warn("Could not parse system property " + property +
+                         " with value " + value +
+                         " into an int. Proceeding with default setting of " + defaultValue + ".");
             }
         }
+        return defaultValue;
+    }
 
-        int availableProcessors = Runtime.getRuntime().availableProcessors();
-        if (availableProcessors > 1) {
-            return availableProcessors - 1;
-        } else {
-            return 1;
+    private static long getLongProperty(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (null != value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                log.warn("Could not parse system property " + property +
+                         " with value " + value +
+                         " into a long. Proceeding with default setting of " + defaultValue + ".");
+            }
+        }
+        return defaultValue;
+    }
+
+    private static double getDoubleProperty(String property, double defaultValue) {
+        String value = System.getProperty(property);
+        if (null != value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                log.warn("Could not parse system property " + property +
+                         " with value " + value +
+                         " into a double. Proceeding with default setting of " + defaultValue + ".");
+            }
         }
+        return defaultValue;
     }
 
 }
@@ -11,6 +11,7 @@ import org.duracloud.snapshot.service.BridgeConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.step.factory.SimpleStepFactoryBean;
+import org.springframework.core.task.TaskExecutor;
 
 /**
  * @author Daniel Bernstein
@@ -22,11 +23,32 @@ public class AbstractJobBuilder {
 
     /**
      * @param stepFactory
+     * @param taskExecutor the executor on which the step runs its chunks
+     * @return the controller which adjusts the number of active threads when
+     * adaptive concurrency is enabled (it must be registered as a listener of
+     * the step), otherwise null
      */
-    protected void setThrottleLimitForContentTransfers(SimpleStepFactoryBean<?, ?> stepFactory) {
+    protected AdaptiveConcurrencyController setThrottleLimitForContentTransfers(
+        SimpleStepFactoryBean<?, ?> stepFactory, TaskExecutor taskExecutor) {
         int threadsPerJob = BridgeConfiguration.getBridgeThreadsPerJob();
+        int maxThreads = BridgeConfiguration.getBridgeAdaptiveThreadsMax();
+        if (maxThreads > 0) {
+            AdaptiveConcurrencyController controller =
+                new AdaptiveConcurrencyController(BridgeConfiguration.getBridgeAdaptiveThreadsMin(),
+                                                  maxThreads,
+                                                  threadsPerJob,
+                                                  BridgeConfiguration.getBridgeAdaptiveThreadsSampleInterval());
+            log.info("Setting adaptive threadsPerJob: initial = {}, max = {}",
+                     controller.getLimit(), controller.getMaxLimit());
+            stepFactory.setThrottleLimit(controller.getMaxLimit());
+            stepFactory.setTaskExecutor(controller.limit(taskExecutor));
+            return controller;
+        }
+
         log.info("Setting threadsPerJob = {}", threadsPerJob);
         stepFactory.setThrottleLimit(threadsPerJob);
+        stepFactory.setTaskExecutor(taskExecutor);
+        return null;
     }
 
 }
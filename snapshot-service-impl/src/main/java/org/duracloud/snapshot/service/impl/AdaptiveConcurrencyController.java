@@ -0,0 +1,230 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Limits the number of step threads actively transferring content, adjusting
+ * the limit between configured bounds based on observed throughput. The step
+ * should be configured with a throttle limit equal to the upper bound and with
+ * a task executor wrapped by {@link #limit(TaskExecutor)}; chunks beyond the
+ * current limit are held back before they are handed to the executor, so a
+ * waiting chunk holds no transaction or database connection.
+ *
+ * The limit is adjusted AIMD-style once per sample interval: it is raised by
+ * one while bytes/sec or items/sec keeps improving, cut by a quarter when both
+ * fall, and otherwise held. The current limit and the reason for the most
+ * recent change are logged and recorded in the step execution context.
+ */
+public class AdaptiveConcurrencyController implements ChunkListener, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    public static final String LIMIT_KEY = "concurrency.limit";
+    public static final String REASON_KEY = "concurrency.reason";
+
+    // relative change in throughput which is considered significant
+    private static final double TOLERANCE = 0.05;
+    private static final double DECREASE_FACTOR = 0.75;
+
+    private int minLimit;
+    private int maxLimit;
+    private long sampleIntervalMillis;
+
+    private int limit;
+    private int active = 0;
+    private String reason;
+
+    private AtomicLong bytesInWindow = new AtomicLong(0);
+    private AtomicLong itemsInWindow = new AtomicLong(0);
+    private long windowStart = System.currentTimeMillis();
+    private double lastBytesPerSecond = -1;
+    private double lastItemsPerSecond = -1;
+
+    private StepExecution stepExecution;
+
+    /**
+     * @param minLimit             the lowest number of active threads
+     * @param maxLimit             the highest number of active threads
+     * @param initialLimit         the number of active threads to start with
+     * @param sampleIntervalMillis how often throughput is evaluated
+     */
+    public AdaptiveConcurrencyController(int minLimit,
+                                         int maxLimit,
+                                         int initialLimit,
+                                         long sampleIntervalMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.reason = "initial limit";
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    /**
+     * Records bytes transferred by a step thread.
+     */
+    public void addBytesTransferred(long bytes) {
+        bytesInWindow.addAndGet(bytes);
+    }
+
+    /**
+     * @param executor the task executor of the step
+     * @return an executor which runs each task on the given one once fewer
+     * tasks than the current limit are running, waiting in the submitting
+     * thread until then
+     */
+    public TaskExecutor limit(TaskExecutor executor) {
+        return task -> {
+            acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                release();
+                throw ex;
+            }
+        };
+    }
+
+    private synchronized void acquire() {
+        try {
+            while (active >= limit) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted waiting for a content transfer thread", ex);
+        }
+        active++;
+    }
+
+    private synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        // no-op impl
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        itemsInWindow.incrementAndGet();
+        adjustIfDue();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        // no-op impl
+    }
+
+    private synchronized void adjustIfDue() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - windowStart;
+        if (elapsed < Math.max(1, sampleIntervalMillis)) {
+            return;
+        }
+
+        windowStart = now;
+        adjust(bytesInWindow.getAndSet(0), itemsInWindow.getAndSet(0), elapsed);
+    }
+
+    /**
+     * Adjusts the limit based on the throughput of a single sample interval.
+     */
+    protected synchronized void adjust(long bytes, long items, long elapsedMillis) {
+        double bytesPerSecond = bytes * 1000d / elapsedMillis;
+        double itemsPerSecond = items * 1000d / elapsedMillis;
+
+        String rates = String.format("bytes/sec %.0f -> %.0f, items/sec %.2f -> %.2f",
+                                     lastBytesPerSecond, bytesPerSecond,
+                                     lastItemsPerSecond, itemsPerSecond);
+
+        if (lastBytesPerSecond < 0) {
+            setLimit(limit + 1, "probing after first sample (" + rates + ")");
+        } else if (improved(lastBytesPerSecond, bytesPerSecond) ||
+                   improved(lastItemsPerSecond, itemsPerSecond)) {
+            setLimit(limit + 1, "throughput increased (" + rates + ")");
+        } else if (declined(lastBytesPerSecond, bytesPerSecond) &&
+                   declined(lastItemsPerSecond, itemsPerSecond)) {
+            setLimit((int) (limit * DECREASE_FACTOR), "throughput decreased (" + rates + ")");
+        } else {
+            log.debug("concurrency limit held at {}: throughput unchanged ({})", limit, rates);
+        }
+
+        lastBytesPerSecond = bytesPerSecond;
+        lastItemsPerSecond = itemsPerSecond;
+    }
+
+    private boolean improved(double previous, double current) {
+        return current > previous * (1 + TOLERANCE);
+    }
+
+    private boolean declined(double previous, double current) {
+        return current < previous * (1 - TOLERANCE);
+    }
+
+    private void setLimit(int newLimit, String changeReason) {
+        newLimit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        if (newLimit == limit) {
+            return;
+        }
+
+        log.info("concurrency limit changed from {} to {}: {}", limit, newLimit, changeReason);
+        this.limit = newLimit;
+        this.reason = changeReason;
+        notifyAll();
+
+        if (stepExecution != null) {
+            stepExecution.getExecutionContext().putInt(LIMIT_KEY, limit);
+            stepExecution.getExecutionContext().putString(REASON_KEY, reason);
+        }
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        this.windowStart = System.currentTimeMillis();
+        stepExecution.getExecutionContext().putInt(LIMIT_KEY, limit);
+        stepExecution.getExecutionContext().putString(REASON_KEY, reason);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.duracloud.snapshot.service.BridgeConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the bandwidth used by snapshot downloads and restore uploads. A
+ * single instance is shared by all transfer threads, so the global limit
+ * caps the combined bandwidth of every running job. Limits may also be set
+ * for individual jobs and DuraCloud hosts; a transfer must stay within all
+ * limits which apply to it. Limits may be changed while transfers are running.
+ */
+@Component
+public class BandwidthLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(BandwidthLimiter.class);
+
+    private volatile TokenBucket globalBucket;
+    private ConcurrentMap<String, TokenBucket> jobBuckets = new ConcurrentHashMap<>();
+    private ConcurrentMap<String, TokenBucket> hostBuckets = new ConcurrentHashMap<>();
+
+    public BandwidthLimiter() {
+        setGlobalLimit(BridgeConfiguration.getBridgeBandwidthGlobalLimit());
+    }
+
+    /**
+     * Blocks until transferring the given number of bytes is within the
+     * limits which apply to the job and host.
+     *
+     * @param jobId the snapshot name or restoration id, may be null
+     * @param host  the DuraCloud host, may be null
+     * @param bytes the number of bytes about to be transferred
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(String jobId, String host, long bytes) throws InterruptedIOException {
+        try {
+            acquire(globalBucket, bytes);
+            acquire(jobId != null ? jobBuckets.get(jobId) : null, bytes);
+            acquire(host != null ? hostBuckets.get(host) : null, bytes);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    private void acquire(TokenBucket bucket, long bytes) throws InterruptedException {
+        if (bucket != null) {
+            bucket.acquire(bytes);
+        }
+    }
+
+    /**
+     * @param bytesPerSecond the combined limit for all transfers, or 0 for unlimited
+     */
+    public synchronized void setGlobalLimit(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            globalBucket = null;
+        } else if (globalBucket == null) {
+            globalBucket = new TokenBucket(bytesPerSecond);
+        } else {
+            globalBucket.setBytesPerSecond(bytesPerSecond);
+        }
+        log.info("global bandwidth limit set to {} bytes/sec", Math.max(0, bytesPerSecond));
+    }
+
+    public long getGlobalLimit() {
+        TokenBucket bucket = globalBucket;
+        return bucket != null ? bucket.getBytesPerSecond() : 0;
+    }
+
+    /**
+     * @param jobId          the snapshot name or restoration id
+     * @param bytesPerSecond the limit for the job, or 0 for unlimited
+     */
+    public void setJobLimit(String jobId, long bytesPerSecond) {
+        setLimit(jobBuckets, jobId, bytesPerSecond);
+        log.info("bandwidth limit for job {} set to {} bytes/sec", jobId, Math.max(0, bytesPerSecond));
+    }
+
+    /**
+     * @param host           the DuraCloud host
+     * @param bytesPerSecond the limit for the host, or 0 for unlimited
+     */
+    public void setHostLimit(String host, long bytesPerSecond) {
+        setLimit(hostBuckets, host, bytesPerSecond);
+        log.info("bandwidth limit for host {} set to {} bytes/sec", host, Math.max(0, bytesPerSecond));
+    }
+
+    private synchronized void setLimit(ConcurrentMap<String, TokenBucket> buckets,
+                                       String key,
+                                       long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            buckets.remove(key);
+            return;
+        }
+
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            buckets.put(key, new TokenBucket(bytesPerSecond));
+        } else {
+            bucket.setBytesPerSecond(bytesPerSecond);
+        }
+    }
+
+    /**
+     * @return the limits currently in effect
+     */
+    public synchronized BandwidthLimits getLimits() {
+        BandwidthLimits limits = new BandwidthLimits();
+        limits.setGlobalBytesPerSecond(getGlobalLimit());
+        for (Map.Entry<String, TokenBucket> entry : jobBuckets.entrySet()) {
+            limits.getJobBytesPerSecond().put(entry.getKey(), entry.getValue().getBytesPerSecond());
+        }
+        for (Map.Entry<String, TokenBucket> entry : hostBuckets.entrySet()) {
+            limits.getHostBytesPerSecond().put(entry.getKey(), entry.getValue().getBytesPerSecond());
+        }
+        return limits;
+    }
+
+    /**
+     * Applies the given limits. The global limit is changed only if it is
+     * set; job and host limits which are not listed are left unchanged.
+     */
+    public synchronized void setLimits(BandwidthLimits limits) {
+        if (limits.getGlobalBytesPerSecond() != null) {
+            setGlobalLimit(limits.getGlobalBytesPerSecond());
+        }
+        if (limits.getJobBytesPerSecond() != null) {
+            for (Map.Entry<String, Long> entry : limits.getJobBytesPerSecond().entrySet()) {
+                setJobLimit(entry.getKey(), entry.getValue() != null ? entry.getValue() : 0);
+            }
+        }
+        if (limits.getHostBytesPerSecond() != null) {
+            for (Map.Entry<String, Long> entry : limits.getHostBytesPerSecond().entrySet()) {
+                setHostLimit(entry.getKey(), entry.getValue() != null ? entry.getValue() : 0);
+            }
+        }
+    }
+}
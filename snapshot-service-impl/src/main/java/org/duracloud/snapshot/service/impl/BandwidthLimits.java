@@ -0,0 +1,47 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bandwidth limits, in bytes per second, applied to content transfers.
+ * A limit of 0 means unlimited. Job limits are keyed by snapshot name or
+ * restoration id, host limits by DuraCloud host name.
+ */
+public class BandwidthLimits {
+
+    private Long globalBytesPerSecond;
+    private Map<String, Long> jobBytesPerSecond = new HashMap<>();
+    private Map<String, Long> hostBytesPerSecond = new HashMap<>();
+
+    public Long getGlobalBytesPerSecond() {
+        return globalBytesPerSecond;
+    }
+
+    public void setGlobalBytesPerSecond(Long globalBytesPerSecond) {
+        this.globalBytesPerSecond = globalBytesPerSecond;
+    }
+
+    public Map<String, Long> getJobBytesPerSecond() {
+        return jobBytesPerSecond;
+    }
+
+    public void setJobBytesPerSecond(Map<String, Long> jobBytesPerSecond) {
+        this.jobBytesPerSecond = jobBytesPerSecond;
+    }
+
+    public Map<String, Long> getHostBytesPerSecond() {
+        return hostBytesPerSecond;
+    }
+
+    public void setHostBytesPerSecond(Map<String, Long> hostBytesPerSecond) {
+        this.hostBytesPerSecond = hostBytesPerSecond;
+    }
+}
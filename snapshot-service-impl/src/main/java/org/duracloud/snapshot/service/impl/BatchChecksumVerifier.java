@@ -0,0 +1,243 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+
+/**
+ * Computes the MD5 checksums of the local files of a batch of manifest
+ * entries. Files are read through a direct buffer held by each worker
+ * thread, and the batch is divided among the threads by size (largest
+ * files first, each to the least loaded thread) so that a few large files
+ * do not leave the other threads idle. Files whose checksums are held in a
+ * checksum cache are not read at all.
+ */
+public class BatchChecksumVerifier {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    /**
+     * The outcome of checksumming the file of one manifest entry.
+     */
+    public static class Result {
+        private ManifestEntry entry;
+        private File file;
+        private long size;
+        private String checksum;
+        private Exception error;
+
+        Result(ManifestEntry entry, File file) {
+            this.entry = entry;
+            this.file = file;
+            this.size = file.length();
+        }
+
+        public ManifestEntry getEntry() {
+            return entry;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the checksum of the file, or null if it does not exist or
+         * could not be read
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return the error which prevented the file from being read, if any
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    private File contentDir;
+    private int threads;
+    private ExecutorService executor;
+    private FileChecksumCache checksumCache;
+
+    /**
+     * @param contentDir the directory holding the files named by the manifest
+     * @param threads    the number of files checksummed at once
+     */
+    public BatchChecksumVerifier(File contentDir, int threads) {
+        this.contentDir = contentDir;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param checksumCache provides the checksums of unchanged files and
+     *                      records newly computed checksums, may be null
+     */
+    public void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
+    /**
+     * Checksums the files of the given entries. A batch of a single entry,
+     * or a verifier with a single thread, runs on the calling thread.
+     *
+     * @return a result for each entry, in the order given
+     */
+    public List<Result> checksum(List<? extends ManifestEntry> entries) throws InterruptedException {
+        List<Result> results = new ArrayList<>(entries.size());
+        List<Result> uncached = new ArrayList<>(entries.size());
+        for (ManifestEntry entry : entries) {
+            Result result = new Result(entry, new File(contentDir, entry.getContentId()));
+            results.add(result);
+            if (checksumCache != null) {
+                result.checksum = checksumCache.get(result.file, Algorithm.MD5);
+            }
+            if (result.checksum == null) {
+                uncached.add(result);
+            }
+        }
+
+        List<List<Result>> batches = balance(uncached, Math.min(threads, uncached.size()));
+        if (batches.size() <= 1) {
+            checksumAll(uncached);
+            return results;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(batches.size());
+        for (final List<Result> batch : batches) {
+            futures.add(getExecutor().submit(() -> checksumAll(batch)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                // checksumAll records errors on the results
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    /*
+     * Divides the results into at most the given number of batches of
+     * roughly equal total size.
+     */
+    private List<List<Result>> balance(List<Result> results, int count) {
+        List<List<Result>> batches = new ArrayList<>();
+        if (count <= 1) {
+            batches.add(results);
+            return batches;
+        }
+
+        final long[] loads = new long[count];
+        PriorityQueue<Integer> leastLoaded =
+            new PriorityQueue<>(count, Comparator.comparingLong((Integer batch) -> loads[batch]));
+        for (int i = 0; i < count; i++) {
+            batches.add(new ArrayList<>());
+            leastLoaded.add(i);
+        }
+
+        List<Result> bySize = new ArrayList<>(results);
+        bySize.sort(Comparator.comparingLong((Result result) -> result.size).reversed());
+        for (Result result : bySize) {
+            int batch = leastLoaded.poll();
+            batches.get(batch).add(result);
+            // count each file as at least one block so many empty files still spread out
+            loads[batch] += Math.max(result.size, 4096);
+            leastLoaded.add(batch);
+        }
+        return batches;
+    }
+
+    private void checksumAll(List<Result> batch) {
+        for (Result result : batch) {
+            if (!result.file.exists()) {
+                continue;
+            }
+            try {
+                String identity = checksumCache != null ? checksumCache.identify(result.file) : null;
+                result.checksum = md5(result.file);
+                if (checksumCache != null) {
+                    checksumCache.put(result.file, identity, Algorithm.MD5, result.checksum);
+                }
+            } catch (Exception ex) {
+                result.error = ex;
+            }
+        }
+    }
+
+    /**
+     * @return the MD5 checksum of the file as a hex string
+     */
+    public static String md5(File file) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return ChecksumUtil.checksumBytesToString(digest.digest());
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger(0);
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "manifest-verify-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
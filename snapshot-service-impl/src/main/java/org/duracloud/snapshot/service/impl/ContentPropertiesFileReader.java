@@ -7,8 +7,14 @@
  */
 package org.duracloud.snapshot.service.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,12 +23,20 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
 
 /**
+ * Reads the entries of a content properties file. On restart, and when
+ * reading a partition of the file given by a
+ * {@link ContentPropertiesPartitioner}, the reader seeks to its starting
+ * entry using a {@link ContentPropertiesIndex} rather than parsing every
+ * entry before it.
+ *
  * @author Daniel Bernstein
  * Date: Jul 16, 2014
  */
@@ -32,12 +46,25 @@ public class ContentPropertiesFileReader extends StepExecutionSupport implements
 
     private File propertiesFile;
 
+    private ContentPropertiesIndex index;
+
     private JsonParser jParser;
 
+    private long remaining = -1;
+
     public ContentPropertiesFileReader(File propertiesFile) {
         this.propertiesFile = propertiesFile;
     }
 
+    /**
+     * @param propertiesFile the content properties file
+     * @param index          the index of the file, used for any restart
+     */
+    public ContentPropertiesFileReader(File propertiesFile, ContentPropertiesIndex index) {
+        this(propertiesFile);
+        this.index = index;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -48,18 +75,67 @@ public class ContentPropertiesFileReader extends StepExecutionSupport implements
         throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
 
         if (jParser == null) {
-            JsonFactory jfactory = new JsonFactory();
-            jParser = jfactory.createJsonParser(this.propertiesFile);
-            jParser.nextToken(); //skips the first [
+            open();
+        }
 
-            //skip properties already read.
-            int itemsRead = (int) getItemsRead();
-            for (int i = 0; i < itemsRead; i++) {
-                doRead();
-            }
+        if (remaining == 0) {
+            jParser.close();
+            return null;
+        }
+
+        ContentProperties properties = doRead();
+        if (properties != null && remaining > 0) {
+            remaining--;
+        }
+        return properties;
+    }
+
+    /*
+     * Opens the parser at the first entry not yet read, seeking to the
+     * nearest indexed entry before it where there are many to skip.
+     */
+    private void open() throws IOException {
+        long firstEntry = 0;
+        long endEntry = -1;
+        StepExecution stepExecution = getStepExecution();
+        if (stepExecution != null) {
+            ExecutionContext context = stepExecution.getExecutionContext();
+            firstEntry = context.getLong(ContentPropertiesPartitioner.FIRST_ENTRY_KEY, 0L);
+            endEntry = context.getLong(ContentPropertiesPartitioner.END_ENTRY_KEY, -1L);
+        }
+
+        long position = firstEntry + getItemsRead();
+        if (endEntry >= 0) {
+            remaining = Math.max(0, endEntry - position);
         }
 
-        return doRead();
+        if (index == null && (firstEntry > 0 || position >= ContentPropertiesIndex.DEFAULT_STRIDE)) {
+            index = ContentPropertiesIndex.load(this.propertiesFile);
+        }
+
+        JsonFactory jfactory = new JsonFactory();
+        long skip = position;
+        long offset = index != null && position > 0 ? index.getOffset(position) : -1;
+        if (offset >= 0) {
+            // the entry is parsed as the first of an array, as it is when
+            // reading from the start of the file
+            FileChannel channel = FileChannel.open(this.propertiesFile.toPath());
+            channel.position(offset);
+            InputStream entries =
+                new SequenceInputStream(new ByteArrayInputStream("[".getBytes(StandardCharsets.UTF_8)),
+                                        Channels.newInputStream(channel));
+            jParser = jfactory.createJsonParser(entries);
+            skip = position - index.getIndexedEntry(position);
+            log.info("seeking to entry {} of {} at byte {}", position - skip, this.propertiesFile, offset);
+        } else {
+            jParser = jfactory.createJsonParser(this.propertiesFile);
+        }
+        jParser.nextToken(); //skips the first [
+
+        //skip properties already read.
+        for (long i = 0; i < skip; i++) {
+            doRead();
+        }
     }
 
     /**
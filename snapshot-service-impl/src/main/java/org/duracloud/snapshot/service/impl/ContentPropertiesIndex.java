@@ -0,0 +1,186 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sparse index of the byte offsets of the entries of a content properties
+ * file, which lets a {@link ContentPropertiesFileReader} start part way
+ * through the file without parsing the entries before it. The offset of
+ * every stride-th entry is recorded, so at most stride - 1 entries are
+ * parsed to reach any position.
+ *
+ * The index is kept in a sidecar file next to the properties file, and is
+ * built again if the properties file has changed since it was written.
+ */
+public class ContentPropertiesIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentPropertiesIndex.class);
+
+    public static final String INDEX_SUFFIX = ".idx";
+
+    static final int DEFAULT_STRIDE = 1024;
+
+    private static final int MAGIC = 0x43504958;
+
+    private int stride;
+    private long entryCount;
+    private long[] offsets;
+
+    ContentPropertiesIndex(int stride, long entryCount, long[] offsets) {
+        this.stride = stride;
+        this.entryCount = entryCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Loads the index of the properties file from its sidecar file, or builds
+     * the index and writes the sidecar file if there is none or it is stale.
+     */
+    public static ContentPropertiesIndex load(File propertiesFile) throws IOException {
+        File indexFile = new File(propertiesFile.getPath() + INDEX_SUFFIX);
+        if (indexFile.isFile()) {
+            try (DataInputStream in =
+                     new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+                if (in.readInt() == MAGIC &&
+                    in.readLong() == propertiesFile.length() &&
+                    in.readLong() == propertiesFile.lastModified()) {
+                    int stride = in.readInt();
+                    long entryCount = in.readLong();
+                    long[] offsets = new long[in.readInt()];
+                    for (int i = 0; i < offsets.length; i++) {
+                        offsets[i] = in.readLong();
+                    }
+                    return new ContentPropertiesIndex(stride, entryCount, offsets);
+                }
+            } catch (IOException ex) {
+                log.warn("rebuilding unreadable index {}: {}", indexFile, ex.getMessage());
+            }
+        }
+
+        ContentPropertiesIndex index = build(propertiesFile, DEFAULT_STRIDE);
+        index.write(propertiesFile, indexFile);
+        return index;
+    }
+
+    /**
+     * Builds the index of the properties file by scanning it once, without
+     * parsing the properties of each entry.
+     */
+    public static ContentPropertiesIndex build(File propertiesFile, int stride) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        long entryCount = 0;
+        try (JsonParser jParser = new JsonFactory().createParser(propertiesFile)) {
+            jParser.nextToken(); //skips the first [
+            JsonToken token;
+            while ((token = jParser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (entryCount % stride == 0) {
+                    offsets.add(jParser.getTokenLocation().getByteOffset());
+                }
+                entryCount++;
+                jParser.skipChildren();
+            }
+        }
+        long[] offsetArray = new long[offsets.size()];
+        for (int i = 0; i < offsetArray.length; i++) {
+            offsetArray[i] = offsets.get(i);
+        }
+        log.info("indexed {} entries of {}", entryCount, propertiesFile);
+        return new ContentPropertiesIndex(stride, entryCount, offsetArray);
+    }
+
+    private void write(File propertiesFile, File indexFile) {
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeLong(propertiesFile.length());
+                out.writeLong(propertiesFile.lastModified());
+                out.writeInt(stride);
+                out.writeLong(entryCount);
+                out.writeInt(offsets.length);
+                for (long offset : offsets) {
+                    out.writeLong(offset);
+                }
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            // the index is built again the next time it is needed
+            log.warn("unable to write index {}: {}", indexFile, ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of entries in the properties file
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the position of the nearest indexed entry at or before the given one
+     */
+    public long getIndexedEntry(long entry) {
+        return Math.min(entry / stride, offsets.length - 1L) * stride;
+    }
+
+    /**
+     * @return the byte offset of the nearest indexed entry at or before the
+     * given one, or -1 if the file has no entries
+     */
+    public long getOffset(long entry) {
+        if (offsets.length == 0) {
+            return -1;
+        }
+        return offsets[(int) Math.min(entry / stride, offsets.length - 1L)];
+    }
+
+    /**
+     * Divides the entries into at most the given number of ranges of roughly
+     * equal size, each starting at an indexed entry.
+     *
+     * @return the first entry of each range followed by the entry after its
+     * last, in order
+     */
+    public List<long[]> split(int count) {
+        List<long[]> ranges = new ArrayList<>();
+        long strides = (entryCount + stride - 1) / stride;
+        long stridesPerRange = Math.max(1, (strides + count - 1) / Math.max(1, count));
+        for (long first = 0; first < entryCount; first += stridesPerRange * stride) {
+            ranges.add(new long[] {first, Math.min(entryCount, first + stridesPerRange * stride)});
+        }
+        if (ranges.isEmpty()) {
+            ranges.add(new long[] {0, 0});
+        }
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentPropertiesIndex[stride=" + stride + ", entryCount=" + entryCount +
+               ", offsets=" + Arrays.toString(Arrays.copyOf(offsets, Math.min(4, offsets.length))) + "]";
+    }
+}
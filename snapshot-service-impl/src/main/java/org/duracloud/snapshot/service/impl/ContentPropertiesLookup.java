@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up the properties of a content item in a content properties file by
+ * its content id. The file is scanned once, on first use, into a table of
+ * the byte offset of each entry keyed by a 64-bit hash of its content id.
+ * The table is an {@link OffHeapLongTable}, and a lookup parses only the
+ * entry it finds.
+ *
+ * Each entry also carries a flag recording that its properties have been
+ * applied, so that a later pass over the file need only apply the rest. A
+ * hash shared by more than one entry is never looked up, leaving those
+ * entries to the later pass.
+ */
+public class ContentPropertiesLookup {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentPropertiesLookup.class);
+
+    private static final long APPLIED = 1L << 63;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private File propertiesFile;
+    private JsonFactory jsonFactory = new JsonFactory();
+
+    private volatile OffHeapLongTable table;
+    private Set<Long> ambiguous = new HashSet<>();
+
+    public ContentPropertiesLookup(File propertiesFile) {
+        this.propertiesFile = propertiesFile;
+    }
+
+    /**
+     * @return the properties of the content item, or null if the file holds
+     * no entry for it which may be looked up
+     */
+    public Map<String, String> get(String contentId) throws IOException {
+        int slot = find(contentId);
+        if (slot < 0) {
+            return null;
+        }
+        long offset = table.getValue(slot) & ~APPLIED;
+        try (FileChannel channel = FileChannel.open(propertiesFile.toPath());
+             JsonParser jParser = jsonFactory.createParser(Channels.newInputStream(channel.position(offset)))) {
+            jParser.nextToken(); // {
+            jParser.nextToken();
+            if (!contentId.equals(jParser.getCurrentName())) {
+                // the content id only shares its hash with an entry
+                return null;
+            }
+            jParser.nextToken(); // {
+            Map<String, String> properties = new HashMap<>();
+            while (jParser.nextToken() != JsonToken.END_OBJECT && jParser.getText() != null) {
+                String key = jParser.getCurrentName();
+                jParser.nextToken();
+                properties.put(key, jParser.getText());
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * Records that the properties of the content item, as given by
+     * {@link #get(String)}, have been applied.
+     */
+    public synchronized void setApplied(String contentId) throws IOException {
+        int slot = find(contentId);
+        if (slot >= 0) {
+            table.setValue(slot, table.getValue(slot) | APPLIED);
+        }
+    }
+
+    /**
+     * @return true if the properties of the content item, an entry of the
+     * file, have been applied
+     */
+    public synchronized boolean isApplied(String contentId) throws IOException {
+        int slot = find(contentId);
+        return slot >= 0 && (table.getValue(slot) & APPLIED) != 0;
+    }
+
+    /*
+     * @return the slot of the content id's hash, or -1 if it has none or the
+     * hash is shared
+     */
+    private int find(String contentId) throws IOException {
+        load();
+        long key = key(contentId);
+        if (ambiguous.contains(key)) {
+            return -1;
+        }
+        return table.indexOf(key);
+    }
+
+    private synchronized void load() throws IOException {
+        if (table != null) {
+            return;
+        }
+        // sized from the length of the file to avoid a separate counting pass
+        OffHeapLongTable newTable = new OffHeapLongTable("Content properties lookup", propertiesFile.length() / 256);
+        try (JsonParser jParser = jsonFactory.createParser(propertiesFile)) {
+            jParser.nextToken(); //skips the first [
+            JsonToken token;
+            while ((token = jParser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                long offset = jParser.getTokenLocation().getByteOffset();
+                if (jParser.nextToken() != JsonToken.FIELD_NAME) {
+                    continue;
+                }
+                long key = key(jParser.getCurrentName());
+                do {
+                    jParser.nextToken();
+                    jParser.skipChildren();
+                } while (jParser.nextToken() == JsonToken.FIELD_NAME);
+
+                if (newTable.indexOf(key) >= 0) {
+                    ambiguous.add(key);
+                    continue;
+                }
+                newTable.insert(key, offset);
+            }
+        }
+        table = newTable;
+        log.info("loaded lookup of {} entries of {} ({} shared hashes, {} bytes of native memory)",
+                 newTable.size(), propertiesFile, ambiguous.size(), newTable.getNativeBytes());
+    }
+
+    private static long key(String contentId) {
+        long key = ByteBuffer.wrap(DIGEST.get().digest(contentId.getBytes(StandardCharsets.UTF_8))).getLong();
+        return key != 0 ? key : 1;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * Divides the entries of a content properties file into ranges of roughly
+ * equal size, one for each partition, to be read by a
+ * {@link ContentPropertiesFileReader}. Each range starts at an entry of the
+ * file's {@link ContentPropertiesIndex}, so its reader seeks straight to it.
+ */
+public class ContentPropertiesPartitioner implements Partitioner {
+
+    public static final String FIRST_ENTRY_KEY = "partition.first-entry";
+    public static final String END_ENTRY_KEY = "partition.end-entry";
+
+    private File propertiesFile;
+
+    public ContentPropertiesPartitioner(File propertiesFile) {
+        this.propertiesFile = propertiesFile;
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.batch.core.partition.support.Partitioner#partition(int)
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        ContentPropertiesIndex index;
+        try {
+            index = ContentPropertiesIndex.load(propertiesFile);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to index " + propertiesFile.getAbsolutePath() + ": " +
+                                       ex.getMessage(), ex);
+        }
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        List<long[]> ranges = index.split(gridSize);
+        for (int i = 0; i < ranges.size(); i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(FIRST_ENTRY_KEY, ranges.get(i)[0]);
+            context.putLong(END_ENTRY_KEY, ranges.get(i)[1]);
+            partitions.put("partition" + i, context);
+        }
+        return partitions;
+    }
+
+}
@@ -34,6 +34,7 @@ public class ContentPropertiesWriter extends StepExecutionSupport
     private ContentStore contentStore;
     private String storeId;
     private String storageProviderType;
+    private ContentPropertiesLookup appliedProperties;
 
     /**
      * @param contentStore
@@ -50,6 +51,14 @@ public class ContentPropertiesWriter extends StepExecutionSupport
                   storageProviderType);
     }
 
+    /**
+     * @param appliedProperties records the content whose properties were
+     *                          applied as it was uploaded, which are skipped
+     */
+    public void setAppliedProperties(ContentPropertiesLookup appliedProperties) {
+        this.appliedProperties = appliedProperties;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -139,6 +148,10 @@ public class ContentPropertiesWriter extends StepExecutionSupport
     @Override
     public void write(List<? extends ContentProperties> items) throws Exception {
         for (final ContentProperties props : items) {
+            if (appliedProperties != null && appliedProperties.isApplied(props.getContentId())) {
+                log.debug("skipping content properties ({}), applied on upload", props);
+                continue;
+            }
             new Retrier().execute(new Retriable() {
 
                 @Override
@@ -0,0 +1,180 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts manifest entries by content id (then checksum) using a bounded
+ * amount of memory. Entries are collected in memory until the buffer is
+ * full, at which point they are sorted and spilled to a run file in the
+ * spill directory. The sorted entries are then read back by merging the
+ * runs, so memory use depends on the buffer size and the number of runs
+ * rather than on the number of entries.
+ */
+public class ExternalManifestSorter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalManifestSorter.class);
+
+    public static final Comparator<ManifestEntry> ENTRY_ORDER =
+        Comparator.comparing(ManifestEntry::getContentId).thenComparing(ManifestEntry::getChecksum);
+
+    private File spillDir;
+    private int bufferSize;
+    private List<ManifestEntry> buffer = new ArrayList<>();
+    private List<File> runs = new ArrayList<>();
+    private List<RunReader> readers = new ArrayList<>();
+    private long count = 0;
+
+    /**
+     * @param spillDir   the directory in which sorted runs are written
+     * @param bufferSize the number of entries sorted in memory at a time
+     */
+    public ExternalManifestSorter(File spillDir, int bufferSize) {
+        this.spillDir = spillDir;
+        this.bufferSize = Math.max(1, bufferSize);
+    }
+
+    public void add(String contentId, String checksum) throws IOException {
+        buffer.add(new ManifestEntry(checksum != null ? checksum : "", contentId));
+        count++;
+        if (buffer.size() >= bufferSize) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of entries added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return all entries added, in content id order. The iterator throws
+     * UncheckedIOException if a run cannot be read.
+     */
+    public Iterator<ManifestEntry> sort() throws IOException {
+        buffer.sort(ENTRY_ORDER);
+        if (runs.isEmpty()) {
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        log.info("merging {} sorted runs of {} manifest entries", runs.size(), count);
+
+        final PriorityQueue<RunReader> queue =
+            new PriorityQueue<>((a, b) -> ENTRY_ORDER.compare(a.head, b.head));
+        for (File run : runs) {
+            RunReader reader = new RunReader(run);
+            readers.add(reader);
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+        }
+
+        return new Iterator<ManifestEntry>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public ManifestEntry next() {
+                RunReader reader = queue.poll();
+                if (reader == null) {
+                    throw new NoSuchElementException();
+                }
+                ManifestEntry entry = reader.head;
+                try {
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return entry;
+            }
+        };
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(ENTRY_ORDER);
+        spillDir.mkdirs();
+        File run = File.createTempFile("manifest-sort-", ".run", spillDir);
+        runs.add(run);
+        // the checksum never contains a tab, so it is written first
+        try (BufferedWriter writer = Files.newBufferedWriter(run.toPath(), StandardCharsets.UTF_8)) {
+            for (ManifestEntry entry : buffer) {
+                writer.write(entry.getChecksum());
+                writer.write('\t');
+                writer.write(entry.getContentId());
+                writer.write('\n');
+            }
+        }
+        log.debug("spilled {} sorted manifest entries to {}", buffer.size(), run.getAbsolutePath());
+        buffer = new ArrayList<>();
+    }
+
+    /**
+     * Deletes all run files.
+     */
+    @Override
+    public void close() {
+        for (RunReader reader : readers) {
+            IOUtils.closeQuietly(reader.reader);
+        }
+        for (File run : runs) {
+            if (!run.delete()) {
+                log.warn("unable to delete manifest sort run {}", run.getAbsolutePath());
+            }
+        }
+        readers.clear();
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+
+    private static class RunReader {
+        private BufferedReader reader;
+        private ManifestEntry head;
+
+        RunReader(File run) throws IOException {
+            this.reader = Files.newBufferedReader(run.toPath(), StandardCharsets.UTF_8);
+        }
+
+        boolean advance() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                head = null;
+                reader.close();
+                return false;
+            }
+            int tab = line.indexOf('\t');
+            head = new ManifestEntry(line.substring(0, tab), line.substring(tab + 1));
+            return true;
+        }
+    }
+}
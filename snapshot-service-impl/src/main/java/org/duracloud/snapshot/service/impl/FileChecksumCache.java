@@ -0,0 +1,244 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.snapshot.service.BridgeConfiguration;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the checksums of files held on the bridge so that a file which
+ * has not changed since it was last checksummed need not be read again. A
+ * cached checksum is tied to the identity of the file when it was computed:
+ * its size, modification time and file key (device and inode). Any change to
+ * these makes the cached checksum stale.
+ *
+ * Checksums are stored in user extended attributes of the file where the
+ * file system supports them, so they follow the file through hard links and
+ * renames. Otherwise they are stored in a sidecar index under the content
+ * root, keyed by path. In paranoid mode cached checksums are never used,
+ * though newly computed checksums are still recorded.
+ *
+ * Disabled unless duracloud.bridge.checksum-cache.enabled is set.
+ */
+@Component
+public class FileChecksumCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FileChecksumCache.class);
+
+    private static final String ATTRIBUTE_PREFIX = "duracloud.checksum.";
+    private static final String INDEX_FILE_NAME = ".checksum-cache.db";
+
+    private boolean enabled;
+    private boolean paranoid;
+    private File indexFile;
+    private DB db;
+    private Map<String, String> index;
+
+    public FileChecksumCache() {
+        this.enabled = BridgeConfiguration.isBridgeChecksumCacheEnabled();
+        this.paranoid = BridgeConfiguration.isBridgeChecksumCacheParanoid();
+    }
+
+    /**
+     * @param indexFile the sidecar index used where extended attributes are not supported
+     * @param paranoid  true if cached checksums should never be used
+     */
+    public FileChecksumCache(File indexFile, boolean paranoid) {
+        this.enabled = true;
+        this.paranoid = paranoid;
+        this.indexFile = indexFile;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isParanoid() {
+        return paranoid;
+    }
+
+    /**
+     * @return the cached checksum of the file, or null if there is none, the
+     * file has changed since it was cached, or the cache is paranoid
+     */
+    public String get(File file, Algorithm algorithm) {
+        if (!enabled || paranoid) {
+            return null;
+        }
+        try {
+            Path path = file.toPath();
+            String value = read(path, algorithm);
+            if (value == null) {
+                return null;
+            }
+            int separator = value.lastIndexOf('|');
+            if (separator < 0 || !value.substring(0, separator).equals(identity(path))) {
+                return null;
+            }
+            return value.substring(separator + 1);
+        } catch (IOException ex) {
+            log.debug("no cached {} checksum for {}: {}", algorithm, file, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the identity of the file as it is now, to be taken before the
+     * file is checksummed and given to put(), or null if it cannot be read
+     */
+    public String identify(File file) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            return identity(file.toPath());
+        } catch (IOException ex) {
+            log.debug("unable to identify {}: {}", file, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Records the checksum of the file, tied to the identity the file had
+     * when it was checksummed. Should the file have changed while it was
+     * read, the recorded checksum is never used.
+     *
+     * @param identity the identity of the file taken by identify() before it was checksummed
+     */
+    public void put(File file, String identity, Algorithm algorithm, String checksum) {
+        if (!enabled || identity == null || checksum == null) {
+            return;
+        }
+        try {
+            write(file.toPath(), algorithm, identity + "|" + checksum);
+        } catch (IOException ex) {
+            log.warn("unable to cache {} checksum of {}: {}", algorithm, file, ex.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the checksums held in the sidecar index for the files under the
+     * directory, as it is deleted. Checksums held in extended attributes go
+     * with the files themselves.
+     */
+    public void removeAll(File dir) {
+        if (!enabled || !hasIndex()) {
+            return;
+        }
+        String prefix = dir.getAbsolutePath() + File.separator;
+        int removed = 0;
+        Map<String, String> checksums = getIndex();
+        for (Iterator<String> keys = checksums.keySet().iterator(); keys.hasNext(); ) {
+            String key = keys.next();
+            if (key.startsWith(prefix, key.indexOf(':') + 1)) {
+                keys.remove();
+                removed++;
+            }
+        }
+        log.info("removed {} cached checksums of files under {}", removed, dir);
+    }
+
+    private String identity(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.fileKey();
+    }
+
+    private String read(Path path, Algorithm algorithm) throws IOException {
+        UserDefinedFileAttributeView view = getAttributeView(path);
+        String name = ATTRIBUTE_PREFIX + algorithm.name().toLowerCase();
+        if (view != null) {
+            try {
+                if (!view.list().contains(name)) {
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(view.size(name));
+                view.read(name, buffer);
+                buffer.flip();
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            } catch (IOException | UnsupportedOperationException ex) {
+                log.debug("extended attributes unavailable for {}: {}", path, ex.getMessage());
+            }
+        }
+        return getIndex().get(name + ":" + path.toAbsolutePath());
+    }
+
+    private void write(Path path, Algorithm algorithm, String value) throws IOException {
+        UserDefinedFileAttributeView view = getAttributeView(path);
+        String name = ATTRIBUTE_PREFIX + algorithm.name().toLowerCase();
+        if (view != null) {
+            try {
+                view.write(name, StandardCharsets.UTF_8.encode(value));
+                return;
+            } catch (IOException | UnsupportedOperationException ex) {
+                log.debug("extended attributes unavailable for {}: {}", path, ex.getMessage());
+            }
+        }
+        getIndex().put(name + ":" + path.toAbsolutePath(), value);
+    }
+
+    protected UserDefinedFileAttributeView getAttributeView(Path path) throws IOException {
+        if (!Files.getFileStore(path).supportsFileAttributeView(UserDefinedFileAttributeView.class)) {
+            return null;
+        }
+        return Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+    }
+
+    private synchronized boolean hasIndex() {
+        return index != null || getIndexFile().exists();
+    }
+
+    private synchronized File getIndexFile() {
+        if (indexFile == null) {
+            indexFile = new File(BridgeConfiguration.getContentRootDir(), INDEX_FILE_NAME);
+        }
+        return indexFile;
+    }
+
+    private synchronized Map<String, String> getIndex() {
+        if (index == null) {
+            File file = getIndexFile();
+            try {
+                db = DBMaker.fileDB(file).checksumHeaderBypass().closeOnJvmShutdown().make();
+            } catch (Exception ex) {
+                // the index is only a cache, so one left unreadable by a crash is started over
+                log.warn("recreating unreadable checksum cache {}: {}", file, ex.getMessage());
+                file.delete();
+                db = DBMaker.fileDB(file).closeOnJvmShutdown().make();
+            }
+            index = db.hashMap("checksums", Serializer.STRING, Serializer.STRING).createOrOpen();
+        }
+        return index;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (db != null) {
+            db.close();
+            db = null;
+            index = null;
+        }
+    }
+}
@@ -9,29 +9,104 @@ package org.duracloud.snapshot.service.impl;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.concurrent.SynchronousQueue;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.DirectoryWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
 
 /**
+ * Reads the files beneath a directory, in order of their paths, from a
+ * walk of the directory on a thread of its own.
+ *
+ * As each read file is written, the path of the last file before which all
+ * files have been written is kept in the execution context. A restarted
+ * step resumes the walk after that path, skipping any directory which lies
+ * wholly before it without listing it. Only the files not yet written are
+ * held to do so, so memory does not grow with the files written behind one
+ * which is slow to write.
+ *
+ * Where a large file threshold is set, the files of at least that size are
+ * found first and read before the others, largest first, so that they are
+ * not left to upload on their own once every other file is done. They are
+ * tracked apart from the walk, by the number of them which have been
+ * written, so an unwritten large file does not hold back the position.
+ *
  * @author Daniel Bernstein
  * Date: Jul 16, 2014
  */
-public class FileSystemReader extends StepExecutionSupport implements ItemReader<File> {
+public class FileSystemReader extends StepExecutionSupport implements ItemReader<File>, ItemWriteListener<File> {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemReader.class);
+
+    public static final String POSITION_KEY = "walk.position";
+    public static final String LARGE_FILES_WRITTEN_KEY = "walk.large-files-written";
+
+    static final int QUEUE_CAPACITY = 1000;
+
+    /*
+     * Marks the end of the walk.
+     */
+    private static final File END = new File("");
 
-    private SimpleDirectoryWalker walker;
     private File rootDirectory = null;
+    private BlockingQueue<File> queue;
+    private Thread walker;
+    private volatile boolean closed;
+    private volatile Exception walkError;
+    private boolean ended;
+
+    /*
+     * The files read and not yet written, in the order they were read, each
+     * mapped to the file read just before it.
+     */
+    private final Map<File, File> pending = new LinkedHashMap<>();
+    private File lastRead;
+    private File position;
+    private boolean tracking = true;
+
+    /*
+     * The large files read and not yet written, in the order they were read,
+     * each mapped to the number of large files read before it.
+     */
+    private long largeFileThreshold = 0;
+    private final Map<File, Long> pendingLarge = new LinkedHashMap<>();
+    private long largeFilesRead;
+    private long largeFilesWritten;
 
     public FileSystemReader(File rootDirectory) {
         this.rootDirectory = rootDirectory;
     }
 
+    /**
+     * @param largeFileThreshold the size in bytes of the smallest file which
+     *                           is read ahead of the others, or 0 to read
+     *                           all files in order of their paths
+     */
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
     /* (non-Javadoc)
      * @see org.springframework.batch.item.ItemReader#read()
      */
@@ -39,73 +114,230 @@ public class FileSystemReader extends StepExecutionSupport implements ItemReader
     public synchronized File read()
         throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
 
-        if (walker == null) {
-            this.walker = new SimpleDirectoryWalker(rootDirectory);
-            this.walker.start();
-            //skip ahead if items have already been processed.
-            long itemsRead = getItemsRead();
-            if (itemsRead > 0) {
-                for (int i = 0; i < itemsRead; i++) {
-                    this.walker.next();
+        if (queue == null) {
+            open();
+        }
+
+        if (ended) {
+            return null;
+        }
+
+        File file = queue.take();
+        if (file == END) {
+            ended = true;
+            if (walkError != null) {
+                throw new NonTransientResourceException("Failed to walk " + rootDirectory.getAbsolutePath() + ": " +
+                                                        walkError.getMessage(), walkError);
+            }
+            return null;
+        }
+
+        synchronized (pending) {
+            if (tracking) {
+                if (largeFileThreshold > 0 && file.length() >= largeFileThreshold) {
+                    pendingLarge.put(file, largeFilesRead++);
+                } else {
+                    pending.put(file, lastRead);
+                    lastRead = file;
                 }
             }
         }
+        return file;
+    }
+
+    private void open() {
+        // a position left by a run which failed some files is not trusted
+        ExecutionContext context = getExecutionContext();
+        boolean resume = getErrors().isEmpty();
+        final String position = resume && context.containsKey(POSITION_KEY) ?
+                                context.getString(POSITION_KEY) : null;
+        if (position != null) {
+            log.info("resuming walk of {} after {}", rootDirectory, position);
+        }
+        this.largeFilesWritten = resume ? context.getLong(LARGE_FILES_WRITTEN_KEY, 0L) : 0;
+        this.largeFilesRead = largeFilesWritten;
 
-        return this.walker.next();
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.walker = new Thread(() -> {
+            try {
+                // the large files are tracked apart from the position, so those
+                // not yet written are read again whatever the position
+                if (largeFileThreshold > 0) {
+                    List<Path> large = findLargeFiles();
+                    for (int i = (int) Math.min(largeFilesWritten, large.size()); i < large.size(); i++) {
+                        put(large.get(i).toFile());
+                    }
+                }
+                walk(rootDirectory.toPath(), position != null ? position.split("/") : null);
+            } catch (Exception ex) {
+                log.error("failed to walk {}: {}", rootDirectory, ex.getMessage(), ex);
+                walkError = ex;
+            } finally {
+                put(END);
+            }
+        }, "restore-walker-" + rootDirectory.getName());
+        this.walker.setDaemon(true);
+        this.walker.start();
     }
 
-    private class SimpleDirectoryWalker extends DirectoryWalker<File> {
-        private SynchronousQueue<File> queue = new SynchronousQueue<>();
-        private File root;
+    /*
+     * Finds the files of at least the large file threshold in size, largest
+     * first and otherwise in order of their paths.
+     */
+    private List<Path> findLargeFiles() throws IOException {
+        final Map<Path, Long> sizes = new LinkedHashMap<>();
+        Files.walkFileTree(rootDirectory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && attributes.size() >= largeFileThreshold) {
+                    sizes.put(file, attributes.size());
+                }
+                return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+        });
 
-        public SimpleDirectoryWalker(final File root) {
+        List<Path> large = new ArrayList<>(sizes.keySet());
+        large.sort(Comparator.comparing((Path file) -> sizes.get(file)).reversed()
+                             .thenComparing(file -> split(rootDirectory.toPath().relativize(file)),
+                                            FileSystemReader::compare));
+        log.info("found {} file(s) of at least {} bytes in {} to upload first",
+                 large.size(), largeFileThreshold, rootDirectory);
+        return large;
+    }
 
-            this.root = root;
+    /*
+     * Walks the directory depth first with the entries of each directory in
+     * order of name, so that the files are read in a repeatable order.
+     */
+    private void walk(Path directory, String[] after) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                children.add(child);
+            }
         }
+        children.sort(Comparator.comparing(child -> child.getFileName().toString()));
 
-        /**
-         *
-         */
-        public void start() {
-            Thread t = new Thread(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        walk(root, queue);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
+        for (Path child : children) {
+            if (closed) {
+                return;
+            }
+            String[] path = split(rootDirectory.toPath().relativize(child));
+            BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                if (after == null) {
+                    walk(child, null);
+                } else if (isPrefix(path, after)) {
+                    walk(child, after);
+                } else if (compare(path, after) > 0) {
+                    walk(child, null);
                 }
-            });
-
-            t.start();
+            } else if (attributes.isRegularFile() &&
+                       (largeFileThreshold <= 0 || attributes.size() < largeFileThreshold) &&
+                       (after == null || compare(path, after) > 0)) {
+                put(child.toFile());
+            }
         }
+    }
 
-        /* (non-Javadoc)
-         * @see org.apache.commons.io.DirectoryWalker#handleFile(java.io.File, int, java.util.Collection)
-         */
-        @Override
-        protected void handleFile(File file, int depth, Collection<File> results) throws IOException {
-            try {
-                if (file.isFile()) {
-                    queue.put(file);
+    private void put(File file) {
+        try {
+            while (!closed) {
+                if (queue.offer(file, 1, TimeUnit.SECONDS)) {
+                    return;
                 }
-            } catch (InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String[] split(Path relative) {
+        String[] names = new String[relative.getNameCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = relative.getName(i).toString();
         }
+        return names;
+    }
 
-        public File next() {
-            try {
-                return queue.poll(5000, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    private static boolean isPrefix(String[] directory, String[] path) {
+        if (directory.length >= path.length) {
+            return false;
+        }
+        for (int i = 0; i < directory.length; i++) {
+            if (!directory[i].equals(path[i])) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            return null;
+    /*
+     * Compares paths in the order in which they are walked.
+     */
+    private static int compare(String[] path, String[] other) {
+        for (int i = 0; i < Math.min(path.length, other.length); i++) {
+            int result = path[i].compareTo(other[i]);
+            if (result != 0) {
+                return result;
+            }
         }
+        return Integer.compare(path.length, other.length);
+    }
+
+    @Override
+    public void beforeWrite(List<? extends File> items) {
+    }
+
+    /*
+     * Moves the position up to the oldest file which has not been written.
+     */
+    @Override
+    public void afterWrite(List<? extends File> items) {
+        synchronized (pending) {
+            if (!tracking) {
+                return;
+            }
+            for (File file : items) {
+                pending.remove(file);
+                pendingLarge.remove(file);
+            }
+
+            long largeWritten = pendingLarge.isEmpty() ? largeFilesRead : pendingLarge.values().iterator().next();
+            if (largeWritten > largeFilesWritten) {
+                largeFilesWritten = largeWritten;
+                synchronized (getStepExecution()) {
+                    getExecutionContext().putLong(LARGE_FILES_WRITTEN_KEY, largeFilesWritten);
+                }
+            }
+
+            File last = pending.isEmpty() ? lastRead : pending.values().iterator().next();
+            if (last != null && last != position) {
+                position = last;
+                String path = String.join("/", split(rootDirectory.toPath().relativize(last.toPath())));
+                synchronized (getStepExecution()) {
+                    getExecutionContext().putString(POSITION_KEY, path);
+                }
+            }
+        }
+    }
+
+    /*
+     * The position is left before a file which failed to be written.
+     */
+    @Override
+    public void onWriteError(Exception exception, List<? extends File> items) {
+        synchronized (pending) {
+            tracking = false;
+            pending.clear();
+            pendingLarge.clear();
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        closed = true;
+        return super.afterStep(stepExecution);
     }
 
 }
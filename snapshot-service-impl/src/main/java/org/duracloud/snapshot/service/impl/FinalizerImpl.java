@@ -29,6 +29,7 @@ import org.springframework.stereotype.Component;
 public class FinalizerImpl implements Finalizer {
     private static Logger log = LoggerFactory.getLogger(FinalizerImpl.class);
     private Timer timer;
+    private Timer verificationTimer;
 
     @Autowired
     private SnapshotManager snapshotManager;
@@ -78,6 +79,22 @@ public class FinalizerImpl implements Finalizer {
             }
 
             timer.schedule(task, new Date(), pollingPeriodMs);
+
+            // the full check of a sampled restore can take hours on large
+            // spaces, so it runs on its own thread rather than holding up
+            // the finalization of snapshots and restores
+            verificationTimer = new Timer("sampled-restore-verification", true);
+            TimerTask verificationTask = new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        restoreManager.verifySampledRestores();
+                    } catch (Exception ex) {
+                        log.error("Verification of sampled restores failed: " + ex.getMessage(), ex);
+                    }
+                }
+            };
+            verificationTimer.schedule(verificationTask, new Date(), pollingPeriodMs);
             log.info("Finalization scheduled to run every "
                      + pollingPeriodMs + " milliseconds.");
         }
@@ -93,5 +110,9 @@ public class FinalizerImpl implements Finalizer {
             timer.cancel();
             timer = null;
         }
+        if (verificationTimer != null) {
+            verificationTimer.cancel();
+            verificationTimer = null;
+        }
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The progress of the fixity audit of staged content and the drift it has
+ * found in the current pass.
+ */
+public class FixityAuditStatus {
+
+    /**
+     * A staged file which no longer matches its manifest.
+     */
+    public static class Drift {
+        private String location;
+        private String contentId;
+        private String algorithm;
+        private String expected;
+        private String actual;
+        private Date detected;
+
+        public Drift() {
+        }
+
+        public Drift(String location, String contentId, String algorithm, String expected, String actual) {
+            this.location = location;
+            this.contentId = contentId;
+            this.algorithm = algorithm;
+            this.expected = expected;
+            this.actual = actual;
+            this.detected = new Date();
+        }
+
+        /**
+         * @return the staging directory, relative to the content root
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+
+        public String getContentId() {
+            return contentId;
+        }
+
+        public void setContentId(String contentId) {
+            this.contentId = contentId;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public String getExpected() {
+            return expected;
+        }
+
+        public void setExpected(String expected) {
+            this.expected = expected;
+        }
+
+        /**
+         * @return the checksum of the file, or "missing" if it no longer exists
+         */
+        public String getActual() {
+            return actual;
+        }
+
+        public void setActual(String actual) {
+            this.actual = actual;
+        }
+
+        public Date getDetected() {
+            return detected;
+        }
+
+        public void setDetected(Date detected) {
+            this.detected = detected;
+        }
+    }
+
+    private boolean enabled;
+    private boolean running;
+    private Date passStarted;
+    private Date lastPassCompleted;
+    private String currentLocation;
+    private long filesAudited;
+    private long bytesAudited;
+    private long driftCount;
+    private List<Drift> drift = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public Date getPassStarted() {
+        return passStarted;
+    }
+
+    public void setPassStarted(Date passStarted) {
+        this.passStarted = passStarted;
+    }
+
+    public Date getLastPassCompleted() {
+        return lastPassCompleted;
+    }
+
+    public void setLastPassCompleted(Date lastPassCompleted) {
+        this.lastPassCompleted = lastPassCompleted;
+    }
+
+    public String getCurrentLocation() {
+        return currentLocation;
+    }
+
+    public void setCurrentLocation(String currentLocation) {
+        this.currentLocation = currentLocation;
+    }
+
+    public long getFilesAudited() {
+        return filesAudited;
+    }
+
+    public void setFilesAudited(long filesAudited) {
+        this.filesAudited = filesAudited;
+    }
+
+    public long getBytesAudited() {
+        return bytesAudited;
+    }
+
+    public void setBytesAudited(long bytesAudited) {
+        this.bytesAudited = bytesAudited;
+    }
+
+    /**
+     * @return the number of drifted files found in the current pass, which
+     * may be more than the number listed
+     */
+    public long getDriftCount() {
+        return driftCount;
+    }
+
+    public void setDriftCount(long driftCount) {
+        this.driftCount = driftCount;
+    }
+
+    public List<Drift> getDrift() {
+        return drift;
+    }
+
+    public void setDrift(List<Drift> drift) {
+        this.drift = drift;
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.snapshot.common.SnapshotServiceConstants;
+import org.duracloud.snapshot.service.BridgeConfiguration;
+import org.duracloud.snapshot.service.EventLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically re-reads the content staged under the snapshots and
+ * restorations directories of the content root and checks it against the
+ * MD5 and SHA-256 manifests held alongside it. Each file is read once for
+ * both checksums. Drift is written to the event log and listed in the
+ * status of the audit.
+ *
+ * The audit runs on a single low priority thread and is held to a budget
+ * of bytes read and files opened per second, so it does not compete with
+ * running jobs for disk. Manifests and files modified within the quiet
+ * period are passed over, as they are likely still being written by a job.
+ * The position of the audit is saved to the work directory as it goes, so
+ * a pass interrupted by a restart resumes where it stopped.
+ *
+ * Disabled unless duracloud.bridge.fixity-audit.enabled is set.
+ */
+@Component
+public class FixityAuditor {
+
+    private static final Logger log = LoggerFactory.getLogger(FixityAuditor.class);
+
+    public static final String STATE_FILE_NAME = "fixity-audit.properties";
+
+    static final String MISSING = "missing";
+
+    private static final String LOCATION_KEY = "location";
+    private static final String ENTRY_KEY = "entry";
+    private static final String[] STAGING_DIRS = {"restorations", "snapshots"};
+    private static final int SAVE_INTERVAL = 100;
+    private static final int MAX_DRIFT_LISTED = 1000;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private EventLog eventLog;
+    private boolean enabled;
+    private long periodMs;
+    private long quietPeriodMs;
+    private TokenBucket byteBudget;
+    private TokenBucket fileBudget;
+    private File contentRoot;
+    private File stateFile;
+
+    private Timer timer;
+    private volatile boolean stopped;
+    private ByteBuffer buffer;
+    private MessageDigest md5;
+    private MessageDigest sha256;
+    private final FixityAuditStatus status = new FixityAuditStatus();
+
+    @Autowired
+    public FixityAuditor(EventLog eventLog) {
+        this.eventLog = eventLog;
+        this.enabled = BridgeConfiguration.isBridgeFixityAuditEnabled();
+        this.periodMs = BridgeConfiguration.getBridgeFixityAuditPeriodMs();
+        this.quietPeriodMs = BridgeConfiguration.getBridgeFixityAuditQuietPeriodMs();
+        this.byteBudget = new TokenBucket(BridgeConfiguration.getBridgeFixityAuditBytesPerSecond());
+        this.fileBudget = new TokenBucket(BridgeConfiguration.getBridgeFixityAuditFilesPerSecond());
+        this.status.setEnabled(enabled);
+    }
+
+    /**
+     * @param contentRoot    the directory holding the snapshots and restorations directories
+     * @param stateFile      the file in which the position of the audit is saved
+     * @param bytesPerSecond the number of bytes per second the audit may read
+     * @param filesPerSecond the number of files per second the audit may open
+     * @param quietPeriodMs  the time a file must go unmodified before it is audited
+     */
+    public FixityAuditor(EventLog eventLog,
+                         File contentRoot,
+                         File stateFile,
+                         long bytesPerSecond,
+                         long filesPerSecond,
+                         long quietPeriodMs) {
+        this.eventLog = eventLog;
+        this.enabled = true;
+        this.contentRoot = contentRoot;
+        this.stateFile = stateFile;
+        this.quietPeriodMs = quietPeriodMs;
+        this.byteBudget = new TokenBucket(bytesPerSecond);
+        this.fileBudget = new TokenBucket(filesPerSecond);
+        this.status.setEnabled(true);
+    }
+
+    /**
+     * Schedules the audit, if it is enabled.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || timer != null) {
+            return;
+        }
+        timer = new Timer("fixity-audit", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                try {
+                    audit();
+                } catch (Exception ex) {
+                    log.error("fixity audit failed: " + ex.getMessage(), ex);
+                }
+            }
+        }, periodMs, periodMs);
+        log.info("Fixity audit scheduled to run every " + periodMs + " milliseconds.");
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        stopped = true;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * @return a copy of the status of the audit
+     */
+    public FixityAuditStatus getStatus() {
+        synchronized (status) {
+            FixityAuditStatus copy = new FixityAuditStatus();
+            copy.setEnabled(status.isEnabled());
+            copy.setRunning(status.isRunning());
+            copy.setPassStarted(status.getPassStarted());
+            copy.setLastPassCompleted(status.getLastPassCompleted());
+            copy.setCurrentLocation(status.getCurrentLocation());
+            copy.setFilesAudited(status.getFilesAudited());
+            copy.setBytesAudited(status.getBytesAudited());
+            copy.setDriftCount(status.getDriftCount());
+            copy.setDrift(new ArrayList<>(status.getDrift()));
+            return copy;
+        }
+    }
+
+    /**
+     * Audits the staged content, starting where the last pass stopped if it
+     * did not complete.
+     *
+     * @return true if the pass completed, false if it was stopped
+     */
+    public boolean audit() throws IOException {
+        Properties state = loadState();
+        String resumeLocation = state.getProperty(LOCATION_KEY);
+        long resumeEntry = Long.parseLong(state.getProperty(ENTRY_KEY, "0"));
+        synchronized (status) {
+            status.setRunning(true);
+            if (resumeLocation == null || status.getPassStarted() == null) {
+                status.setPassStarted(new Date());
+                status.setFilesAudited(0);
+                status.setBytesAudited(0);
+                status.setDriftCount(0);
+                status.getDrift().clear();
+            }
+        }
+
+        try {
+            for (String location : listLocations()) {
+                if (resumeLocation != null && location.compareTo(resumeLocation) < 0) {
+                    continue;
+                }
+                long skip = location.equals(resumeLocation) ? resumeEntry : 0;
+                if (!auditLocation(location, skip)) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            synchronized (status) {
+                status.setRunning(false);
+                status.setCurrentLocation(null);
+            }
+        }
+
+        Files.deleteIfExists(getStateFile().toPath());
+        synchronized (status) {
+            status.setLastPassCompleted(new Date());
+        }
+        log.info("Fixity audit pass completed.");
+        return true;
+    }
+
+    /*
+     * Lists the staging directories under the content root, relative to it,
+     * in the order in which they are audited.
+     */
+    private List<String> listLocations() {
+        List<String> locations = new ArrayList<>();
+        for (String stagingDir : STAGING_DIRS) {
+            String[] names = new File(getContentRoot(), stagingDir).list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                locations.add(stagingDir + "/" + name);
+            }
+        }
+        locations.sort(null);
+        return locations;
+    }
+
+    /*
+     * Audits the files of one staging directory, passing over the given
+     * number of manifest entries which were audited before a restart.
+     */
+    private boolean auditLocation(String location, long skip) throws IOException, InterruptedException {
+        File dir = new File(getContentRoot(), location);
+        File md5Manifest = new File(dir, SnapshotServiceConstants.MANIFEST_MD5_TXT_FILE_NAME);
+        if (!md5Manifest.isFile() || isRecentlyModified(md5Manifest)) {
+            return true;
+        }
+
+        ManifestFingerprintSet sha256Manifest = null;
+        File sha256File = new File(dir, SnapshotServiceConstants.MANIFEST_SHA256_TXT_FILE_NAME);
+        if (sha256File.isFile() && !isRecentlyModified(sha256File)) {
+            try {
+                sha256Manifest = ManifestFingerprintSet.load(sha256File);
+            } catch (ParseException ex) {
+                log.warn("unable to read {}: {}", sha256File, ex.getMessage());
+            }
+        }
+
+        synchronized (status) {
+            status.setCurrentLocation(location);
+        }
+        File dataDir = new File(dir, "data");
+        long entry = 0;
+        try (BufferedReader reader = Files.newBufferedReader(md5Manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.isBlank(line) || ++entry <= skip) {
+                    continue;
+                }
+                if (stopped) {
+                    saveState(location, entry - 1);
+                    return false;
+                }
+                if (!md5Manifest.exists()) {
+                    // the job which staged the content has cleaned it up
+                    return true;
+                }
+                try {
+                    ManifestEntry manifestEntry = ManifestFileHelper.parseManifestEntry(line);
+                    if (!auditFile(location, new File(dataDir, manifestEntry.getContentId()),
+                                   manifestEntry, sha256Manifest)) {
+                        return true;
+                    }
+                } catch (ParseException ex) {
+                    log.warn("unable to parse line {} of {}: {}", entry, md5Manifest, ex.getMessage());
+                } catch (InterruptedException ex) {
+                    saveState(location, entry - 1);
+                    throw ex;
+                }
+                if (entry % SAVE_INTERVAL == 0) {
+                    saveState(location, entry);
+                }
+            }
+        }
+        saveState(location, Long.MAX_VALUE);
+        return true;
+    }
+
+    /*
+     * @return false if the staging directory has been cleaned up
+     */
+    private boolean auditFile(String location,
+                              File file,
+                              ManifestEntry entry,
+                              ManifestFingerprintSet sha256Manifest) throws IOException, InterruptedException {
+        if (!file.exists()) {
+            // cleanup may delete the data files before the manifest
+            if (!isStaged(location)) {
+                return false;
+            }
+            drift(location, entry.getContentId(), "MD5", entry.getChecksum(), MISSING);
+            return true;
+        }
+        if (isRecentlyModified(file)) {
+            return true;
+        }
+
+        fileBudget.acquire(1);
+        long size = checksum(file);
+        String md5Checksum = ChecksumUtil.checksumBytesToString(md5.digest());
+        String sha256Checksum = ChecksumUtil.checksumBytesToString(sha256.digest());
+        synchronized (status) {
+            status.setFilesAudited(status.getFilesAudited() + 1);
+            status.setBytesAudited(status.getBytesAudited() + size);
+        }
+
+        if (!md5Checksum.equalsIgnoreCase(entry.getChecksum())) {
+            drift(location, entry.getContentId(), "MD5", entry.getChecksum(), md5Checksum);
+        }
+        if (sha256Manifest != null && !sha256Manifest.contains(entry.getContentId(), sha256Checksum)) {
+            drift(location, entry.getContentId(), "SHA-256", null, sha256Checksum);
+        }
+        return true;
+    }
+
+    /*
+     * @return true if the staging directory still holds its manifest and data
+     */
+    private boolean isStaged(String location) {
+        File dir = new File(getContentRoot(), location);
+        return new File(dir, SnapshotServiceConstants.MANIFEST_MD5_TXT_FILE_NAME).isFile() &&
+               new File(dir, "data").isDirectory();
+    }
+
+    /*
+     * Reads the file into both digests within the byte budget.
+     *
+     * @return the number of bytes read
+     */
+    private long checksum(File file) throws IOException, InterruptedException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        md5.reset();
+        sha256.reset();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer.clear();
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                byteBudget.acquire(read);
+                size += read;
+                buffer.flip();
+                md5.update(buffer);
+                buffer.rewind();
+                sha256.update(buffer);
+                buffer.clear();
+            }
+        }
+        return size;
+    }
+
+    private void drift(String location, String contentId, String algorithm, String expected, String actual) {
+        eventLog.logFixityDrift(location, contentId, algorithm, expected, actual);
+        synchronized (status) {
+            status.setDriftCount(status.getDriftCount() + 1);
+            if (status.getDrift().size() < MAX_DRIFT_LISTED) {
+                status.getDrift().add(new FixityAuditStatus.Drift(location, contentId, algorithm, expected, actual));
+            }
+        }
+    }
+
+    private boolean isRecentlyModified(File file) {
+        return file.lastModified() > System.currentTimeMillis() - quietPeriodMs;
+    }
+
+    private Properties loadState() throws IOException {
+        Properties state = new Properties();
+        File file = getStateFile();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                state.load(in);
+            }
+        }
+        return state;
+    }
+
+    /*
+     * Saves the position of the audit, writing to a temporary file first so
+     * a crash part way through the write does not lose it.
+     */
+    private void saveState(String location, long entry) throws IOException {
+        Properties state = new Properties();
+        state.setProperty(LOCATION_KEY, location);
+        state.setProperty(ENTRY_KEY, String.valueOf(entry));
+        File file = getStateFile();
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+            state.store(out, "fixity audit position");
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getContentRoot() {
+        if (contentRoot == null) {
+            contentRoot = BridgeConfiguration.getContentRootDir();
+        }
+        return contentRoot;
+    }
+
+    private File getStateFile() {
+        if (stateFile == null) {
+            stateFile = new File(BridgeConfiguration.getBridgeWorkDir(), STATE_FILE_NAME);
+        }
+        return stateFile;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A set of (content id, checksum) manifest entries used to verify manifests.
+ * Each entry is stored as a fixed-width 128-bit fingerprint (the MD5 of the
+ * entry), its two halves paired in an {@link OffHeapLongTable}, so a
+ * manifest of ten million entries needs a few hundred megabytes of native
+ * memory rather than gigabytes of heap.
+ *
+ * When two different entries of a manifest share a fingerprint, the entries
+ * with that fingerprint are kept as exact strings and checked exactly. Entries are
+ * added by a single thread; once loaded the set may be read concurrently.
+ */
+public class ManifestFingerprintSet {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestFingerprintSet.class);
+
+    // the largest table sized from the length of a manifest
+    private static final int MAX_ESTIMATE = 1 << 25;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private OffHeapLongTable table;
+
+    // fingerprints shared by more than one entry, and those entries in full
+    private Set<Fingerprint> ambiguous = new HashSet<>();
+    private Set<String> exact = new HashSet<>();
+
+    /**
+     * @param expectedSize the expected number of entries; the table grows as needed
+     */
+    public ManifestFingerprintSet(int expectedSize) {
+        this.table = new OffHeapLongTable("Manifest fingerprint set", expectedSize);
+    }
+
+    /**
+     * Loads a manifest in a single pass over the file.
+     *
+     * @param manifestFile an md5 or sha256 manifest
+     * @return a set of the entries of the manifest
+     */
+    public static ManifestFingerprintSet load(File manifestFile) throws IOException, ParseException {
+        // sized from the length of the file to avoid a separate counting pass
+        long estimate = manifestFile.length() / 64;
+        ManifestFingerprintSet set = new ManifestFingerprintSet((int) Math.min(estimate, MAX_ESTIMATE));
+        set.addAll(manifestFile);
+        return set;
+    }
+
+    /**
+     * Adds all entries of a manifest.
+     *
+     * @param manifestFile an md5 or sha256 manifest
+     */
+    public void addAll(File manifestFile) throws IOException, ParseException {
+        Set<Fingerprint> collisions = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                Fingerprint fingerprint = fingerprint(entry.getContentId(), entry.getChecksum());
+                if (!addFingerprint(fingerprint)) {
+                    collisions.add(fingerprint);
+                }
+            }
+        }
+
+        if (!collisions.isEmpty()) {
+            // only read again in the rare case of a repeated fingerprint
+            resolve(manifestFile, collisions);
+        }
+
+        log.info("loaded {} manifest entries from {} ({} bytes of native memory)",
+                 size(), manifestFile.getAbsolutePath(), table.getNativeBytes());
+    }
+
+    /*
+     * Keeps the entries with the given fingerprints in full. A repeated
+     * fingerprint is either a repeated entry or a true fingerprint collision;
+     * the exact strings tell the two apart.
+     */
+    private void resolve(File manifestFile, Set<Fingerprint> collisions) throws IOException, ParseException {
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                Fingerprint fingerprint = fingerprint(entry.getContentId(), entry.getChecksum());
+                if (collisions.contains(fingerprint)) {
+                    exact.add(ManifestFileHelper.formatManifestSetString(entry.getContentId(),
+                                                                         entry.getChecksum()));
+                }
+            }
+        }
+        ambiguous.addAll(collisions);
+        log.info("{} repeated fingerprints in {} resolved with {} exact entries",
+                 collisions.size(), manifestFile.getAbsolutePath(), exact.size());
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @return true if the set did not already contain an entry with the same fingerprint
+     */
+    public boolean add(String contentId, String checksum) {
+        return addFingerprint(fingerprint(contentId, checksum));
+    }
+
+    public boolean contains(String contentId, String checksum) {
+        Fingerprint fingerprint = fingerprint(contentId, checksum);
+        if (!ambiguous.isEmpty() && ambiguous.contains(fingerprint)) {
+            return exact.contains(ManifestFileHelper.formatManifestSetString(contentId, checksum));
+        }
+        return table.indexOf(fingerprint.high, fingerprint.low) >= 0;
+    }
+
+    /**
+     * @return the number of distinct entries
+     */
+    public int size() {
+        return table.size() - ambiguous.size() + exact.size();
+    }
+
+    private boolean addFingerprint(Fingerprint fingerprint) {
+        if (table.indexOf(fingerprint.high, fingerprint.low) >= 0) {
+            return false;
+        }
+        table.insert(fingerprint.high, fingerprint.low);
+        return true;
+    }
+
+    private Fingerprint fingerprint(String contentId, String checksum) {
+        ByteBuffer buffer = ByteBuffer.wrap(
+            digest(ManifestFileHelper.formatManifestSetString(contentId, checksum)));
+        long high = buffer.getLong();
+        long low = buffer.getLong();
+        if (high == 0) {
+            // the high half is the key of the table, which may not be zero
+            high = 1;
+        }
+        return new Fingerprint(high, low);
+    }
+
+    /**
+     * @param entry a combined content id and checksum
+     * @return the 16 byte fingerprint of the entry
+     */
+    protected byte[] digest(String entry) {
+        return DIGEST.get().digest(entry.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class Fingerprint {
+        private final long high;
+        private final long low;
+
+        Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high) * 31 + Long.hashCode(low);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the MD5 and SHA-256 manifests and the content properties JSON file
+ * of a snapshot. Writer threads add entries to a lock-free queue which is
+ * drained by a single output thread, so adding an entry never blocks on
+ * file I/O. The output thread flushes once the configured number of entries
+ * has been written or the configured interval has elapsed, and
+ * {@link #checkpoint()} and {@link #close()} sync all files to disk.
+ *
+ * The files are rewritten when a snapshot step is restarted. Entries which
+ * were not synced before the bridge stopped are recovered from the transfer
+ * cache, or the items are simply retrieved again.
+ */
+public class ManifestOutputStage {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestOutputStage.class);
+
+    // the longest the output thread sleeps while no entries arrive
+    private static final long MAX_IDLE_MILLIS = 100;
+
+    private enum Type {
+        MD5, SHA256, PROPERTIES, CHECKPOINT
+    }
+
+    private static class Entry {
+        private Type type;
+        private String contentId;
+        private String checksum;
+        private Map<String, String> props;
+        private CountDownLatch synced;
+
+        Entry(Type type, String contentId, String checksum, Map<String, String> props) {
+            this.type = type;
+            this.contentId = contentId;
+            this.checksum = checksum;
+            this.props = props;
+        }
+    }
+
+    private File propsFile;
+    private File md5File;
+    private File sha256File;
+    private int flushSize;
+    private long flushIntervalMillis;
+
+    private Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private AtomicInteger queued = new AtomicInteger(0);
+    private AtomicLong entriesWritten = new AtomicLong(0);
+    private volatile boolean running = false;
+    private volatile IOException failure;
+    private Thread outputThread;
+
+    private FileOutputStream propsOut;
+    private FileOutputStream md5Out;
+    private FileOutputStream sha256Out;
+    private JsonGenerator propsGenerator;
+    private Writer md5Writer;
+    private Writer sha256Writer;
+    private int unflushed = 0;
+    private long lastFlush;
+
+    /**
+     * @param propsFile           the content properties JSON file
+     * @param md5File             the MD5 manifest
+     * @param sha256File          the SHA-256 manifest
+     * @param flushSize           the number of entries written between flushes
+     * @param flushIntervalMillis the maximum time an entry is held before being flushed
+     */
+    public ManifestOutputStage(File propsFile,
+                               File md5File,
+                               File sha256File,
+                               int flushSize,
+                               long flushIntervalMillis) {
+        this.propsFile = propsFile;
+        this.md5File = md5File;
+        this.sha256File = sha256File;
+        this.flushSize = Math.max(1, flushSize);
+        this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+    }
+
+    /**
+     * Creates (or truncates) the output files and starts the output thread.
+     */
+    public synchronized void open() throws IOException {
+        this.md5Out = new FileOutputStream(md5File);
+        this.md5Writer = new BufferedWriter(new OutputStreamWriter(md5Out, StandardCharsets.UTF_8));
+        this.sha256Out = new FileOutputStream(sha256File);
+        this.sha256Writer = new BufferedWriter(new OutputStreamWriter(sha256Out, StandardCharsets.UTF_8));
+        this.propsOut = new FileOutputStream(propsFile);
+        this.propsGenerator = new JsonFactory().createGenerator(propsOut, JsonEncoding.UTF8);
+        this.propsGenerator.useDefaultPrettyPrinter();
+        this.propsGenerator.writeStartArray();
+        this.propsGenerator.flush();
+
+        this.lastFlush = System.currentTimeMillis();
+        this.running = true;
+        this.outputThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "manifest-output");
+        this.outputThread.setDaemon(true);
+        this.outputThread.start();
+    }
+
+    public void addMd5(String contentId, String md5) throws IOException {
+        add(new Entry(Type.MD5, contentId, md5, null));
+    }
+
+    public void addSha256(String contentId, String sha256) throws IOException {
+        add(new Entry(Type.SHA256, contentId, sha256, null));
+    }
+
+    public void addProperties(String contentId, Map<String, String> props) throws IOException {
+        add(new Entry(Type.PROPERTIES, contentId, null, props));
+    }
+
+    /**
+     * Blocks until all entries added before this call have been written and
+     * synced to disk. Does nothing once the output is closed, as closing
+     * syncs every entry.
+     *
+     * @throws IOException if any entry could not be written
+     */
+    public void checkpoint() throws IOException {
+        if (!running) {
+            checkFailure();
+            return;
+        }
+        Entry checkpoint = new Entry(Type.CHECKPOINT, null, null, null);
+        checkpoint.synced = new CountDownLatch(1);
+        add(checkpoint);
+        LockSupport.unpark(outputThread);
+        try {
+            while (!checkpoint.synced.await(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for manifest checkpoint", ex);
+        }
+    }
+
+    /**
+     * @return the number of entries written to the output files so far
+     */
+    public long getEntriesWritten() {
+        return entriesWritten.get();
+    }
+
+    private void add(Entry entry) throws IOException {
+        checkFailure();
+        if (!running) {
+            throw new IOException("Manifest output is not open");
+        }
+        queue.offer(entry);
+        if (queued.incrementAndGet() >= flushSize) {
+            LockSupport.unpark(outputThread);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Failed to write manifest output: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void drain() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, Math.min(MAX_IDLE_MILLIS, flushIntervalMillis)));
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (entry.type == Type.CHECKPOINT) {
+                        sync();
+                        entry.synced.countDown();
+                        continue;
+                    }
+                    write(entry);
+                    if (++unflushed >= flushSize) {
+                        flush();
+                    }
+                }
+
+                if (unflushed > 0 && System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+                    flush();
+                }
+
+                if (running) {
+                    LockSupport.parkNanos(this, idleNanos);
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Failed to write manifest output: " + ex.getMessage(), ex);
+            failure = ex;
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        switch (entry.type) {
+            case MD5:
+                ManifestFileHelper.appendManifestEntry(md5Writer, entry.contentId, entry.checksum);
+                break;
+            case SHA256:
+                ManifestFileHelper.appendManifestEntry(sha256Writer, entry.contentId, entry.checksum);
+                break;
+            default:
+                propsGenerator.writeStartObject();
+                propsGenerator.writeObjectFieldStart(entry.contentId);
+                for (Map.Entry<String, String> prop : entry.props.entrySet()) {
+                    propsGenerator.writeStringField(prop.getKey(), prop.getValue());
+                }
+                propsGenerator.writeEndObject();
+                propsGenerator.writeEndObject();
+                break;
+        }
+        entriesWritten.incrementAndGet();
+    }
+
+    private void flush() throws IOException {
+        md5Writer.flush();
+        sha256Writer.flush();
+        propsGenerator.flush();
+        log.debug("flushed {} manifest entries", unflushed);
+        unflushed = 0;
+        lastFlush = System.currentTimeMillis();
+    }
+
+    private void sync() throws IOException {
+        flush();
+        md5Out.getChannel().force(true);
+        sha256Out.getChannel().force(true);
+        propsOut.getChannel().force(true);
+    }
+
+    /**
+     * Writes all remaining entries, completes the content properties JSON
+     * and syncs all files to disk.
+     *
+     * @throws IOException if any entry could not be written
+     */
+    public synchronized void close() throws IOException {
+        if (outputThread == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(outputThread);
+        try {
+            outputThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for manifest output", ex);
+        } finally {
+            outputThread = null;
+        }
+
+        try {
+            checkFailure();
+            propsGenerator.writeEndArray();
+            propsGenerator.writeRaw('\n');
+            sync();
+            log.info("closed manifest output after writing {} entries", entriesWritten.get());
+        } finally {
+            IOUtils.closeQuietly(propsGenerator);
+            IOUtils.closeQuietly(md5Writer);
+            IOUtils.closeQuietly(sha256Writer);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemProcessor;
+
+/**
+ * Passes on a random, size-weighted sample of manifest entries for
+ * verification and filters out the rest.
+ *
+ * Each entry is chosen with a probability proportional to the size of its
+ * file, so that if at least the tolerated fraction of the bytes of the
+ * content is corrupt, the sample includes some of it with the requested
+ * confidence. The number of files sampled is then about
+ * -ln(1 - confidence) / tolerance, however many files there are. Whether an
+ * entry is chosen depends only on the seed and its content id, so a
+ * restarted step chooses the same sample. Entries whose files are missing
+ * are always passed on, as finding them costs nothing.
+ */
+public class ManifestSampler implements ItemProcessor<ManifestEntry, ManifestEntry>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestSampler.class);
+
+    private File manifestFile;
+    private File contentDir;
+    private long seed;
+    private double sampleSize;
+    private long totalBytes;
+
+    /**
+     * @param manifestFile the manifest of the content
+     * @param contentDir   the directory holding the files named by the manifest
+     * @param seed         chooses the sample, such as the id of the restoration
+     * @param confidence   the confidence with which corrupt content is detected
+     * @param tolerance    the fraction of the bytes of the content which must be
+     *                     corrupt for it to be detected with that confidence
+     */
+    public ManifestSampler(File manifestFile, File contentDir, String seed, double confidence, double tolerance) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("The confidence must be between 0 and 1: " + confidence);
+        }
+        if (tolerance <= 0 || tolerance >= 1) {
+            throw new IllegalArgumentException("The tolerance must be between 0 and 1: " + tolerance);
+        }
+        this.manifestFile = manifestFile;
+        this.contentDir = contentDir;
+        this.seed = hash(seed);
+        this.sampleSize = Math.ceil(-Math.log(1 - confidence) / tolerance);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        totalBytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.isNotBlank(line)) {
+                    totalBytes += weight(ManifestFileHelper.parseManifestEntry(line));
+                }
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("failed to size the content of " + manifestFile + ": " + ex.getMessage(),
+                                            ex);
+        }
+        log.info("sampling about {} files by size from {} bytes of content in {}",
+                 (long) sampleSize, totalBytes, contentDir);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return stepExecution.getExitStatus();
+    }
+
+    @Override
+    public ManifestEntry process(ManifestEntry entry) throws Exception {
+        if (!new File(contentDir, entry.getContentId()).exists()) {
+            return entry;
+        }
+        double probability = sampleSize * weight(entry) / Math.max(1, totalBytes);
+        double draw = new SplittableRandom(seed ^ hash(entry.getContentId())).nextDouble();
+        return draw < probability ? entry : null;
+    }
+
+    /*
+     * Counts each file as at least one byte so empty files may be chosen.
+     */
+    private long weight(ManifestEntry entry) {
+        return Math.max(1, new File(contentDir, entry.getContentId()).length());
+    }
+
+    /*
+     * A 64 bit FNV-1a hash, as String.hashCode leaves too few distinct seeds.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -13,8 +13,6 @@ import java.util.List;
 
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
-import org.duracloud.common.util.ChecksumUtil;
-import org.duracloud.common.util.ChecksumUtil.Algorithm;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.service.RestoreManager;
 import org.slf4j.Logger;
@@ -38,6 +36,8 @@ public class ManifestVerifier extends StepExecutionSupport implements ItemWriter
     private String restorationId;
     private File contentDir;
     private RestoreManager restoreManager;
+    private BatchChecksumVerifier checksumVerifier;
+    private FileChecksumCache checksumCache;
 
     /**
      * @param restorationId
@@ -51,6 +51,25 @@ public class ManifestVerifier extends StepExecutionSupport implements ItemWriter
         this.restorationId = restorationId;
         this.contentDir = contentDir;
         this.restoreManager = restorationManager;
+        this.checksumVerifier = new BatchChecksumVerifier(contentDir, 1);
+    }
+
+    /**
+     * @param threads the number of files in each written batch which are
+     *                checksummed at once
+     */
+    public void setThreads(int threads) {
+        this.checksumVerifier = new BatchChecksumVerifier(contentDir, threads);
+        this.checksumVerifier.setChecksumCache(checksumCache);
+    }
+
+    /**
+     * @param checksumCache provides the checksums of files which have not
+     *                      changed since they were last checksummed
+     */
+    public void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+        this.checksumVerifier.setChecksumCache(checksumCache);
     }
 
     /*
@@ -127,6 +146,7 @@ public class ManifestVerifier extends StepExecutionSupport implements ItemWriter
      */
     @Override
     public ExitStatus afterStep(StepExecution stepExecution) {
+        checksumVerifier.shutdown();
         ExitStatus status = stepExecution.getExitStatus();
         List<String> errors = getErrors();
         if (errors.size() > 0) {
@@ -166,45 +186,38 @@ public class ManifestVerifier extends StepExecutionSupport implements ItemWriter
      */
     @Override
     public void write(List<? extends ManifestEntry> items) throws Exception {
-        for (ManifestEntry entry : items) {
-            try {
-                String contentId = entry.getContentId();
-                String checksum = entry.getChecksum();
-
-                File file = new File(this.contentDir, contentId);
-                if (!file.exists()) {
-                    String message =
-                        MessageFormat.format("content ({0}) not found in " +
-                                             "path ({1}) for restore ({2})",
-                                             contentId,
-                                             file.getAbsolutePath(),
-                                             restorationId);
-                    log.error(message);
-                    addError(message);
-                } else {
-                    ChecksumUtil checksumUtil = new ChecksumUtil(Algorithm.MD5);
-
-                    String fileChecksum = checksumUtil.generateChecksum(file);
-                    if (!checksum.equals(fileChecksum)) {
-                        String message =
-                            MessageFormat.format("content id ({0}) manifest " +
-                                                 "checksum ({1})  does not match " +
-                                                 "file ({2}) checksum ({3})",
-                                                 contentId,
-                                                 checksum,
-                                                 file.getAbsolutePath(),
-                                                 fileChecksum);
-                        log.error(message);
-                        addError(message);
-                    } else {
-                        log.debug("successfully verified entry {}", entry);
-                    }
-                }
-
-            } catch (Exception ex) {
-                String message = "failed to verify " + entry + ": " + ex.getMessage();
-                log.error(message, ex);
+        for (BatchChecksumVerifier.Result result : checksumVerifier.checksum(items)) {
+            ManifestEntry entry = result.getEntry();
+            String contentId = entry.getContentId();
+            String checksum = entry.getChecksum();
+            File file = result.getFile();
+
+            if (result.getError() != null) {
+                String message = "failed to verify " + entry + ": " + result.getError().getMessage();
+                log.error(message, result.getError());
+                addError(message);
+            } else if (result.getChecksum() == null) {
+                String message =
+                    MessageFormat.format("content ({0}) not found in " +
+                                         "path ({1}) for restore ({2})",
+                                         contentId,
+                                         file.getAbsolutePath(),
+                                         restorationId);
+                log.error(message);
+                addError(message);
+            } else if (!result.getChecksum().equals(checksum)) {
+                String message =
+                    MessageFormat.format("content id ({0}) manifest " +
+                                         "checksum ({1})  does not match " +
+                                         "file ({2}) checksum ({3})",
+                                         contentId,
+                                         checksum,
+                                         file.getAbsolutePath(),
+                                         result.getChecksum());
+                log.error(message);
                 addError(message);
+            } else {
+                log.debug("successfully verified entry {}", entry);
             }
         }
     }
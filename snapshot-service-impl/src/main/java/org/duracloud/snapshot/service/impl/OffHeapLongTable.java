@@ -0,0 +1,155 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An open-addressing hash table of (key, value) pairs of longs held outside
+ * of the Java heap in 16 bytes a slot, used where millions of entries must
+ * be held without gigabytes of heap. Keys should be well distributed, such
+ * as hashes, and must not be zero, which marks an empty slot. A key may be
+ * inserted more than once with different values.
+ *
+ * The table grows as needed. Pairs are inserted by a single thread; callers
+ * which update values concurrently synchronize themselves.
+ */
+public class OffHeapLongTable {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+
+    private String name;
+    private ByteBuffer table;
+    private int capacity;
+    private int size = 0;
+
+    /**
+     * @param name         what the table holds, for the error raised when it is full
+     * @param expectedSize the expected number of pairs
+     */
+    public OffHeapLongTable(String name, long expectedSize) {
+        this.name = name;
+        int initialCapacity = MIN_CAPACITY;
+        while (initialCapacity < MAX_CAPACITY && initialCapacity * MAX_LOAD < expectedSize) {
+            initialCapacity <<= 1;
+        }
+        this.capacity = initialCapacity;
+        this.table = allocate(initialCapacity);
+    }
+
+    /**
+     * @param key a non-zero key
+     * @return the slot of the first pair with the key, or -1 if there is none
+     */
+    public int indexOf(long key) {
+        int mask = capacity - 1;
+        int slot = (int) key & mask;
+        while (true) {
+            long slotKey = table.getLong(slot * SLOT_BYTES);
+            if (slotKey == key) {
+                return slot;
+            }
+            if (slotKey == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @param key   a non-zero key
+     * @param value the value paired with the key
+     * @return the slot of the pair, or -1 if there is none
+     */
+    public int indexOf(long key, long value) {
+        int mask = capacity - 1;
+        int slot = (int) key & mask;
+        while (true) {
+            long slotKey = table.getLong(slot * SLOT_BYTES);
+            if (slotKey == key && table.getLong(slot * SLOT_BYTES + 8) == value) {
+                return slot;
+            }
+            if (slotKey == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserts a pair, growing the table if needed. Slots returned before an
+     * insert may not be used after it.
+     *
+     * @param key a non-zero key
+     */
+    public void insert(long key, long value) {
+        if (size + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+        insert(table, capacity, key, value);
+        size++;
+    }
+
+    public long getValue(int slot) {
+        return table.getLong(slot * SLOT_BYTES + 8);
+    }
+
+    public void setValue(int slot, long value) {
+        table.putLong(slot * SLOT_BYTES + 8, value);
+    }
+
+    /**
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes of native memory held
+     */
+    public long getNativeBytes() {
+        return (long) capacity * SLOT_BYTES;
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException(name + " cannot hold more than " +
+                                            (int) (MAX_CAPACITY * MAX_LOAD) + " entries");
+        }
+        int newCapacity = capacity << 1;
+        ByteBuffer newTable = allocate(newCapacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = table.getLong(slot * SLOT_BYTES);
+            if (key != 0) {
+                insert(newTable, newCapacity, key, table.getLong(slot * SLOT_BYTES + 8));
+            }
+        }
+        table = newTable;
+        capacity = newCapacity;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    private static void insert(ByteBuffer table, int capacity, long key, long value) {
+        int mask = capacity - 1;
+        int slot = (int) key & mask;
+        while (table.getLong(slot * SLOT_BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * SLOT_BYTES, key);
+        table.putLong(slot * SLOT_BYTES + 8, value);
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestEntry;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestHeader;
+import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.retry.Retriable;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.domain.Content;
+import org.duracloud.retrieval.mgmt.RetrievalListener;
+import org.duracloud.storage.provider.StorageProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retrieves the chunks of a chunked content item concurrently, writing each
+ * chunk directly into its offset of the local (stitched) file. Each chunk is
+ * verified against the MD5 recorded in the chunks manifest as it is written.
+ */
+public class ParallelChunkRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelChunkRetriever.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentStore contentStore;
+    private int chunkThreads;
+    private BandwidthLimiter bandwidthLimiter;
+    private String jobId;
+    private String host;
+
+    /**
+     * @param contentStore the content store from which chunks are retrieved
+     * @param chunkThreads the number of chunks of a single item which may be
+     *                     retrieved at the same time
+     */
+    public ParallelChunkRetriever(ContentStore contentStore, int chunkThreads) {
+        this.contentStore = contentStore;
+        this.chunkThreads = Math.max(1, chunkThreads);
+    }
+
+    /**
+     * Limits the bandwidth used to retrieve chunks.
+     *
+     * @param bandwidthLimiter the limiter shared by all transfers
+     * @param jobId            the name of the snapshot
+     * @param host             the DuraCloud host chunks are retrieved from
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter, String jobId, String host) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.jobId = jobId;
+        this.host = host;
+    }
+
+    public int getChunkThreads() {
+        return chunkThreads;
+    }
+
+    /**
+     * Retrieves all chunks listed in the chunks manifest identified by the
+     * content item into the local file.
+     *
+     * @param manifestItem a content item which refers to a chunks manifest
+     * @param localFile    the file into which the stitched content is written
+     * @param listener     notified as each chunk is retrieved
+     * @return the properties of the stitched content item
+     * @throws IOException if any chunk could not be retrieved or verified
+     */
+    public Map<String, String> retrieve(final ContentItem manifestItem,
+                                        final File localFile,
+                                        final RetrievalListener listener) throws IOException {
+        final String spaceId = manifestItem.getSpaceId();
+        final Content manifestContent = getContent(spaceId, manifestItem.getContentId());
+
+        ChunksManifest manifest;
+        try (InputStream manifestStream = manifestContent.getStream()) {
+            manifest = ManifestDocumentBinding.createManifestFrom(manifestStream);
+        }
+
+        final ManifestHeader header = manifest.getHeader();
+        List<ChunkRange> ranges = getChunkRanges(manifest);
+        if (ranges.isEmpty()) {
+            throw new IOException("No chunks found in manifest for " + header.getSourceContentId());
+        }
+        log.info("Retrieving {} chunks of {} using {} threads",
+                 ranges.size(), header.getSourceContentId(), chunkThreads);
+
+        File parent = localFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(chunkThreads, ranges.size()));
+        try (RandomAccessFile raf = new RandomAccessFile(localFile, "rw")) {
+            raf.setLength(header.getSourceByteSize());
+            final FileChannel channel = raf.getChannel();
+
+            List<Future<Void>> futures = new ArrayList<>(ranges.size());
+            for (final ChunkRange range : ranges) {
+                futures.add(executor.submit(() -> {
+                    retrieveChunk(spaceId, range, channel);
+                    if (listener != null) {
+                        listener.chunkRetrieved(range.chunkId);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+
+            channel.force(false);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrieving chunks of " + header.getSourceContentId(), ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw new IOException("Failed to retrieve chunks of " + header.getSourceContentId() +
+                                  ": " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return getStitchedProperties(manifestContent, header);
+    }
+
+    private void retrieveChunk(final String spaceId,
+                               final ChunkRange range,
+                               final FileChannel channel) throws Exception {
+        new Retrier().execute(new Retriable() {
+            @Override
+            public Object retry() throws Exception {
+                Content chunk = contentStore.getContent(spaceId, range.chunkId);
+                InputStream chunkStream = chunk.getStream();
+                if (bandwidthLimiter != null) {
+                    chunkStream = new ThrottledInputStream(chunkStream, bandwidthLimiter, jobId, host);
+                }
+                try (DigestInputStream is = ChecksumUtil.wrapStream(chunkStream, Algorithm.MD5)) {
+                    long position = range.offset;
+                    byte[] bytes = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = is.read(bytes)) != -1) {
+                        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                    }
+
+                    long written = position - range.offset;
+                    if (written != range.length) {
+                        throw new IOException("Chunk " + range.chunkId + " has size " + written +
+                                              " but the manifest expects " + range.length);
+                    }
+
+                    String checksum = ChecksumUtil.getChecksum(is);
+                    if (range.md5 != null && !range.md5.equals(checksum)) {
+                        throw new IOException("Chunk " + range.chunkId + " has checksum " + checksum +
+                                              " but the manifest expects " + range.md5);
+                    }
+                }
+                log.debug("retrieved chunk {} at offset {}", range.chunkId, range.offset);
+                return null;
+            }
+        });
+    }
+
+    private Content getContent(String spaceId, String contentId) throws IOException {
+        try {
+            return new Retrier().execute(new Retriable() {
+                @Override
+                public Content retry() throws Exception {
+                    return contentStore.getContent(spaceId, contentId);
+                }
+            });
+        } catch (Exception ex) {
+            throw new IOException("Unable to get " + contentId + " from space " + spaceId +
+                                  ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Orders the manifest entries by chunk index (falling back to the index
+     * embedded in the chunk id) and computes the offset of each chunk within
+     * the stitched file.
+     */
+    protected List<ChunkRange> getChunkRanges(ChunksManifest manifest) {
+        Map<Integer, ManifestEntry> sorted = new TreeMap<>();
+        for (ManifestEntry entry : manifest.getEntries()) {
+            int index = entry.getIndex();
+            if (index == 0) {
+                // older manifests do not carry an index field
+                index = manifest.parseIndex(entry.getChunkId());
+            }
+            sorted.put(index, entry);
+        }
+
+        List<ChunkRange> ranges = new ArrayList<>(sorted.size());
+        long offset = 0;
+        for (ManifestEntry entry : sorted.values()) {
+            ranges.add(new ChunkRange(entry.getChunkId(), entry.getChunkMD5(), offset, entry.getByteSize()));
+            offset += entry.getByteSize();
+        }
+        return ranges;
+    }
+
+    /*
+     * Mirrors the property set produced by the stitching retrieval source:
+     * the manifest's own properties overlaid with those of the source content.
+     */
+    private Map<String, String> getStitchedProperties(Content manifestContent, ManifestHeader header) {
+        Map<String, String> props = new HashMap<>();
+        if (manifestContent.getProperties() != null) {
+            props.putAll(manifestContent.getProperties());
+        }
+        props.put(StorageProvider.PROPERTIES_CONTENT_SIZE, Long.toString(header.getSourceByteSize()));
+        props.put(StorageProvider.PROPERTIES_CONTENT_MIMETYPE, header.getSourceMimetype());
+        props.put(StorageProvider.PROPERTIES_CONTENT_MD5, header.getSourceMD5());
+        props.put(StorageProvider.PROPERTIES_CONTENT_CHECKSUM, header.getSourceMD5());
+        return props;
+    }
+
+    protected static class ChunkRange {
+        private final String chunkId;
+        private final String md5;
+        private final long offset;
+        private final long length;
+
+        ChunkRange(String chunkId, String md5, long offset, long length) {
+            this.chunkId = chunkId;
+            this.md5 = md5;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getChunkId() {
+            return chunkId;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.stream.KnownLengthInputStream;
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.error.ContentStoreException;
+import org.duracloud.sync.endpoint.MonitoredFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A chunking sync endpoint which uploads the chunks of a large file several
+ * at a time rather than one after another.
+ *
+ * Each chunk is streamed straight from its range of the file, and its MD5 is
+ * computed as it is uploaded and checked against the checksum returned by
+ * the store, so a chunk is read once for each attempt to upload it. The MD5
+ * of the whole file, for the chunks manifest, is taken from the MD5 manifest
+ * of the restore when one is set, and is otherwise computed on the calling
+ * thread while the chunks upload. No more chunks of a file are queued than
+ * there are upload threads, which are shared by all of the files being
+ * uploaded, so memory is bounded by neither the chunk size nor the size of
+ * the file.
+ *
+ * Files no larger than a chunk are uploaded as they are by the parent
+ * endpoint.
+ */
+public class ParallelChunkSyncEndpoint extends RestoreChunkSyncEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelChunkSyncEndpoint.class);
+
+    private static final String CHUNK_MIMETYPE = "application/octet-stream";
+    private static final String CREATOR_PROP = "creator";
+
+    private long chunkSize;
+    private int threads;
+    private ThreadPoolExecutor executor;
+    private File md5Manifest;
+    private File watchDir;
+    // the MD5 checksums of the files larger than a chunk, loaded on first use
+    private Map<String, String> checksums;
+
+    /**
+     * @param contentStore the store to upload to
+     * @param username     the user recorded as the creator of the content
+     * @param spaceId      the space to upload to
+     * @param chunkSize    the size in bytes of each chunk
+     * @param threads      the most chunks uploaded at once
+     */
+    public ParallelChunkSyncEndpoint(ContentStore contentStore,
+                                     String username,
+                                     String spaceId,
+                                     long chunkSize,
+                                     int threads) {
+        super(contentStore, username, spaceId, chunkSize);
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "chunk-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                               threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param md5Manifest the MD5 manifest of the restored content, from which
+     *                    the checksums of chunked files are taken
+     * @param watchDir    the directory the content ids of files are relative to
+     */
+    public void setMd5Manifest(File md5Manifest, File watchDir) {
+        this.md5Manifest = md5Manifest;
+        this.watchDir = watchDir;
+    }
+
+    @Override
+    protected void addUpdateContent(String contentId, MonitoredFile monitoredFile) {
+        if (monitoredFile.length() <= chunkSize) {
+            super.addUpdateContent(contentId, monitoredFile);
+            return;
+        }
+
+        File file = monitoredFile.getFile();
+        long size = file.length();
+        int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+        ChunksManifest manifest = new ChunksManifest(contentId, monitoredFile.getMimetype(), size);
+        List<String> chunkIds = new ArrayList<>();
+        List<Future<String>> uploads = new ArrayList<>();
+        try {
+            while (uploads.size() < Math.min(threads, chunks)) {
+                uploads.add(submitChunk(monitoredFile, manifest, chunkIds, uploads.size()));
+            }
+
+            String checksum = getChecksum(contentId);
+            if (checksum == null) {
+                checksum = new ChecksumUtil(Algorithm.MD5).generateChecksum(file);
+            }
+
+            // a chunk is queued as each one ahead of it completes
+            for (int i = 0; i < chunks; i++) {
+                long length = Math.min(chunkSize, size - i * chunkSize);
+                manifest.addEntry(chunkIds.get(i), uploads.get(i).get(), length);
+                if (uploads.size() < chunks) {
+                    uploads.add(submitChunk(monitoredFile, manifest, chunkIds, uploads.size()));
+                }
+            }
+            manifest.setMD5OfSourceContent(checksum);
+            addManifest(manifest, createProps(monitoredFile.getAbsolutePath(), getUsername()));
+            log.info("uploaded {} in {} chunks to {}", contentId, uploads.size(), getSpaceId());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted uploading " + contentId, ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Failed to upload a chunk of " + contentId + ": " +
+                                       ex.getCause().getMessage(), ex.getCause());
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to upload " + contentId + ": " + ex.getMessage(), ex);
+        } finally {
+            for (Future<String> upload : uploads) {
+                upload.cancel(true);
+            }
+        }
+    }
+
+    private Future<String> submitChunk(MonitoredFile monitoredFile,
+                                       ChunksManifest manifest,
+                                       List<String> chunkIds,
+                                       int index) {
+        final String chunkId = manifest.nextChunkId();
+        final long offset = index * chunkSize;
+        final long length = Math.min(chunkSize, monitoredFile.length() - offset);
+        chunkIds.add(chunkId);
+        return executor.submit(() -> uploadChunk(monitoredFile, chunkId, offset, length));
+    }
+
+    /*
+     * @return the MD5 of the content in the restore manifest, or null if it
+     * is not known
+     */
+    private synchronized String getChecksum(String contentId) {
+        if (md5Manifest == null) {
+            return null;
+        }
+        if (checksums == null) {
+            checksums = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(md5Manifest.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                    if (new File(watchDir, entry.getContentId()).length() > chunkSize) {
+                        checksums.put(entry.getContentId(), entry.getChecksum());
+                    }
+                }
+                log.info("loaded the checksums of {} file(s) larger than a chunk from {}",
+                         checksums.size(), md5Manifest);
+            } catch (IOException | ParseException ex) {
+                log.warn("unable to read {}, chunked files will be checksummed: {}", md5Manifest, ex.getMessage());
+            }
+        }
+        return checksums.get(contentId);
+    }
+
+    /*
+     * Uploads a range of the file as a chunk, returning its MD5.
+     */
+    private String uploadChunk(final MonitoredFile monitoredFile,
+                               final String chunkId,
+                               final long offset,
+                               final long length) throws Exception {
+        final Map<String, String> properties = new HashMap<>();
+        properties.put(CREATOR_PROP, getUsername());
+        return new Retrier().execute(() -> {
+            try (FileChannel channel = FileChannel.open(monitoredFile.getFile().toPath())) {
+                channel.position(offset);
+                InputStream range = new BufferedInputStream(
+                    new BoundedInputStream(Channels.newInputStream(channel), length));
+                if (monitoredFile instanceof ThrottledMonitoredFile) {
+                    range = ((ThrottledMonitoredFile) monitoredFile).throttle(range);
+                }
+                DigestInputStream digestStream = ChecksumUtil.wrapStream(range, Algorithm.MD5);
+                String stored = getContentStore().addContent(getSpaceId(), chunkId, digestStream, length,
+                                                             CHUNK_MIMETYPE, null, properties);
+                String checksum = ChecksumUtil.getChecksum(digestStream);
+                if (stored != null && !stored.equals(checksum)) {
+                    throw new IOException("The checksum of chunk " + chunkId + " in storage (" + stored +
+                                          ") does not match the checksum of the file (" + checksum + ")");
+                }
+                return checksum;
+            }
+        });
+    }
+
+    private void addManifest(final ChunksManifest manifest, final Map<String, String> properties) throws Exception {
+        properties.putIfAbsent(CREATOR_PROP, getUsername());
+        new Retrier().execute(() -> {
+            try (KnownLengthInputStream body = manifest.getBody()) {
+                return getContentStore().addContent(getSpaceId(), manifest.getManifestId(), body, body.getLength(),
+                                                    manifest.getMimetype(), null, properties);
+            } catch (ContentStoreException ex) {
+                throw new IOException("Unable to add manifest " + manifest.getManifestId() + ": " +
+                                      ex.getMessage(), ex);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.AbstractPartitionHandler;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Runs each partition of a partitioned step on a task executor as a step
+ * of its own, built for that partition. Unlike a handler which runs one
+ * step for every partition, the readers and writers of each partition hold
+ * no state shared with the other partitions.
+ */
+public class PerPartitionStepHandler extends AbstractPartitionHandler {
+
+    /**
+     * Builds the step which runs a single partition.
+     */
+    public interface StepFactory {
+        /**
+         * @param stepName the name of the partition's step execution
+         * @return a new step with the given name
+         */
+        Step createStep(String stepName) throws Exception;
+    }
+
+    private StepFactory stepFactory;
+    private TaskExecutor taskExecutor;
+
+    /**
+     * @param stepFactory  builds the step of each partition
+     * @param taskExecutor runs the partitions
+     * @param gridSize     the number of partitions
+     */
+    public PerPartitionStepHandler(StepFactory stepFactory, TaskExecutor taskExecutor, int gridSize) {
+        this.stepFactory = stepFactory;
+        this.taskExecutor = taskExecutor;
+        setGridSize(gridSize);
+    }
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution masterStepExecution,
+                                          Set<StepExecution> partitionStepExecutions) throws Exception {
+        Set<Future<StepExecution>> tasks = new HashSet<>();
+        Set<StepExecution> results = new HashSet<>();
+
+        for (final StepExecution partitionStepExecution : partitionStepExecutions) {
+            final Step step = stepFactory.createStep(partitionStepExecution.getStepName());
+            FutureTask<StepExecution> task = new FutureTask<>(() -> {
+                step.execute(partitionStepExecution);
+                return partitionStepExecution;
+            });
+            try {
+                taskExecutor.execute(task);
+                tasks.add(task);
+            } catch (TaskRejectedException ex) {
+                partitionStepExecution.setStatus(BatchStatus.FAILED);
+                partitionStepExecution.setExitStatus(
+                    ExitStatus.FAILED.addExitDescription("partition rejected by task executor: " + ex.getMessage()));
+                results.add(partitionStepExecution);
+            }
+        }
+
+        for (Future<StepExecution> task : tasks) {
+            results.add(task.get());
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.NonTransientResourceException;
+import org.springframework.batch.item.ParseException;
+import org.springframework.batch.item.UnexpectedInputException;
+
+/**
+ * A space item reader which lists the space on a background thread, keeping a
+ * bounded number of content items queued ahead of the step's worker threads.
+ * This allows listing round-trips to overlap with content transfers rather
+ * than every worker waiting on the listing in turn.
+ *
+ * The current queue depth and listing latency are available for monitoring,
+ * logged periodically and recorded in the step execution context when the
+ * step completes.
+ */
+public class PrefetchingSpaceItemReader implements ItemReader<ContentItem>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefetchingSpaceItemReader.class);
+
+    public static final String ITEMS_LISTED_KEY = "prefetch.items-listed";
+    public static final String AVG_LISTING_LATENCY_KEY = "prefetch.avg-listing-latency-ms";
+    public static final String MAX_LISTING_LATENCY_KEY = "prefetch.max-listing-latency-ms";
+
+    private static final int LOG_INTERVAL = 10000;
+
+    // marks the end of the listing; returned to the queue so every reader sees it
+    private static final ContentItem END_OF_LISTING = new ContentItem("", "");
+
+    private RetrievalSource retrievalSource;
+    private BlockingQueue<ContentItem> queue;
+    private AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
+    private volatile Exception listingError;
+    private Thread producer;
+
+    private AtomicLong itemsListed = new AtomicLong(0);
+    private AtomicLong totalListingNanos = new AtomicLong(0);
+    private AtomicLong maxListingNanos = new AtomicLong(0);
+
+    /**
+     * @param retrievalSource the source from which content items are listed
+     * @param prefetchSize    the maximum number of items listed ahead of the readers
+     */
+    public PrefetchingSpaceItemReader(RetrievalSource retrievalSource, int prefetchSize) {
+        this.retrievalSource = retrievalSource;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, prefetchSize));
+    }
+
+    @Override
+    public ContentItem read()
+        throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
+        if (started.compareAndSet(false, true)) {
+            startProducer();
+        }
+
+        ContentItem contentItem = queue.take();
+        if (contentItem == END_OF_LISTING) {
+            queue.put(END_OF_LISTING);
+            if (listingError != null) {
+                log.error("item read failed:  " + listingError.getMessage(), listingError);
+                throw listingError;
+            }
+            log.debug("contentItem is null");
+            return null;
+        }
+
+        log.debug("contentItem: {}", contentItem.getContentId());
+        return contentItem;
+    }
+
+    private void startProducer() {
+        producer = new Thread(() -> {
+            try {
+                while (!stopped) {
+                    long start = System.nanoTime();
+                    ContentItem contentItem = retrievalSource.getNextContentItem();
+                    recordListingLatency(System.nanoTime() - start);
+
+                    if (contentItem == null) {
+                        break;
+                    }
+
+                    queue.put(contentItem);
+                    long listed = itemsListed.incrementAndGet();
+                    if (listed % LOG_INTERVAL == 0) {
+                        log.info("listed {} items: queue depth={}, avg listing latency={} ms, " +
+                                 "max listing latency={} ms",
+                                 listed, getQueueDepth(), getAverageListingLatencyMillis(),
+                                 getMaxListingLatencyMillis());
+                    }
+                }
+            } catch (InterruptedException ex) {
+                stopped = true;
+            } catch (Exception ex) {
+                listingError = ex;
+            }
+            endListing();
+        }, "space-item-prefetch");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void endListing() {
+        if (!stopped) {
+            try {
+                // waits for the readers to drain the remaining items
+                queue.put(END_OF_LISTING);
+                return;
+            } catch (InterruptedException ex) {
+                stopped = true;
+            }
+        }
+        // the step is ending, so items still queued will not be read
+        queue.clear();
+        queue.offer(END_OF_LISTING);
+    }
+
+    private void recordListingLatency(long nanos) {
+        totalListingNanos.addAndGet(nanos);
+        maxListingNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of listed items waiting to be read
+     */
+    public int getQueueDepth() {
+        int depth = queue.size();
+        return queue.contains(END_OF_LISTING) ? depth - 1 : depth;
+    }
+
+    /**
+     * @return the number of items listed so far
+     */
+    public long getItemsListed() {
+        return itemsListed.get();
+    }
+
+    /**
+     * @return the mean time taken to list a single item from the source
+     */
+    public long getAverageListingLatencyMillis() {
+        long listed = Math.max(1, itemsListed.get());
+        return TimeUnit.NANOSECONDS.toMillis(totalListingNanos.get() / listed);
+    }
+
+    /**
+     * @return the longest time taken to list a single item (for instance when a
+     * new page of the listing was fetched)
+     */
+    public long getMaxListingLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxListingNanos.get());
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stopped = true;
+        if (producer != null) {
+            producer.interrupt();
+        }
+
+        stepExecution.getExecutionContext().putLong(ITEMS_LISTED_KEY, getItemsListed());
+        stepExecution.getExecutionContext().putLong(AVG_LISTING_LATENCY_KEY,
+                                                    getAverageListingLatencyMillis());
+        stepExecution.getExecutionContext().putLong(MAX_LISTING_LATENCY_KEY,
+                                                    getMaxListingLatencyMillis());
+        log.info("space listing finished: items listed={}, avg listing latency={} ms, " +
+                 "max listing latency={} ms",
+                 getItemsListed(), getAverageListingLatencyMillis(), getMaxListingLatencyMillis());
+        return stepExecution.getExitStatus();
+    }
+}
@@ -39,8 +39,7 @@ public class PropertiesSerializer {
         HashMap<String, String> props;
 
         try {
-            props =
-                new ObjectMapper().readValue(src, mapTypeRef);
+            props = mapper.readValue(src, mapTypeRef);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException(e);
@@ -0,0 +1,94 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.util.ContentIdUtil;
+import org.duracloud.sync.endpoint.DuraStoreChunkSyncEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The chunking sync endpoint used to upload restored content. Given the
+ * restored content properties, it sends the properties of each content item
+ * with its upload, or with the chunks manifest of a chunked item, and records
+ * them as applied.
+ *
+ * Properties which the endpoint would strip, those with names or values
+ * which are not US-ASCII, are not sent; such items are left to the content
+ * properties step.
+ */
+public class RestoreChunkSyncEndpoint extends DuraStoreChunkSyncEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(RestoreChunkSyncEndpoint.class);
+
+    private ContentPropertiesLookup contentProperties;
+    private File watchDir;
+
+    /**
+     * @param contentStore the store to upload to
+     * @param username     the user recorded as the creator of the content
+     * @param spaceId      the space to upload to
+     * @param chunkSize    the size in bytes of each chunk
+     */
+    public RestoreChunkSyncEndpoint(ContentStore contentStore, String username, String spaceId, long chunkSize) {
+        super(contentStore, username, spaceId, false, true, chunkSize);
+    }
+
+    /**
+     * @param contentProperties the restored properties of the content
+     * @param watchDir          the directory the content ids of files are relative to
+     */
+    public void setContentProperties(ContentPropertiesLookup contentProperties, File watchDir) {
+        this.contentProperties = contentProperties;
+        this.watchDir = watchDir;
+    }
+
+    @Override
+    protected Map<String, String> createProps(String absPath, String username) {
+        Map<String, String> props = super.createProps(absPath, username);
+        // files outside of the content, such as the snapshot properties file, have none
+        if (contentProperties == null || !absPath.startsWith(watchDir.getAbsolutePath() + File.separator)) {
+            return props;
+        }
+
+        String contentId = ContentIdUtil.getContentId(new File(absPath), watchDir, null);
+        try {
+            Map<String, String> restored = contentProperties.get(contentId);
+            if (restored == null || !isAllUSASCII(restored)) {
+                return props;
+            }
+            Map<String, String> merged = new HashMap<>(props);
+            merged.putAll(restored);
+            contentProperties.setApplied(contentId);
+            return merged;
+        } catch (Exception ex) {
+            log.warn("unable to look up the properties of {}, they will be set after upload: {}",
+                     contentId, ex.getMessage());
+            return props;
+        }
+    }
+
+    private boolean isAllUSASCII(Map<String, String> properties) {
+        CharsetEncoder encoder = StandardCharsets.US_ASCII.newEncoder();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            if (!encoder.canEncode(entry.getKey()) ||
+                (entry.getValue() != null && !encoder.canEncode(entry.getValue()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
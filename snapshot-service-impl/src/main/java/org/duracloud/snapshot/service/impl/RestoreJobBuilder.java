@@ -8,8 +8,11 @@
 package org.duracloud.snapshot.service.impl;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.duracloud.client.ContentStore;
+import org.duracloud.common.constant.Constants;
 import org.duracloud.manifeststitch.StitchedManifestGenerator;
 import org.duracloud.snapshot.SnapshotException;
 import org.duracloud.snapshot.common.SnapshotServiceConstants;
@@ -17,25 +20,33 @@ import org.duracloud.snapshot.db.ContentDirUtils;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.SnapshotContentItem;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.db.repo.SnapshotContentItemRepo;
+import org.duracloud.snapshot.service.BridgeConfiguration;
 import org.duracloud.snapshot.service.RestoreManager;
 import org.duracloud.snapshot.service.SnapshotJobManagerConfig;
-import org.duracloud.sync.endpoint.DuraStoreChunkSyncEndpoint;
 import org.duracloud.sync.endpoint.EndPointLogger;
-import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.StepListener;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.builder.FlowJobBuilder;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.job.builder.SimpleJobBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
+import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.partition.support.SimpleStepExecutionSplitter;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.factory.SimpleStepFactoryBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -55,6 +66,8 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
     private RestoreManager restoreManager;
     private SnapshotContentItemRepo snapshotContentItemRepo;
     private StoreClientHelper storeClientHelper;
+    private BandwidthLimiter bandwidthLimiter;
+    private FileChecksumCache checksumCache;
 
     @Autowired
     public RestoreJobBuilder(RestoreJobExecutionListener jobListener,
@@ -63,7 +76,9 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
                              @Qualifier("itemTaskExecutor") TaskExecutor taskExecutor,
                              RestoreManager restoreManager,
                              SnapshotContentItemRepo snapshotContentItemRepo,
-                             StoreClientHelper storeClientHelper) {
+                             StoreClientHelper storeClientHelper,
+                             BandwidthLimiter bandwidthLimiter,
+                             FileChecksumCache checksumCache) {
         this.jobListener = jobListener;
         this.jobRepository = jobRepository;
         this.transactionManager = transactionManager;
@@ -71,6 +86,8 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         this.restoreManager = restoreManager;
         this.snapshotContentItemRepo = snapshotContentItemRepo;
         this.storeClientHelper = storeClientHelper;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.checksumCache = checksumCache;
     }
 
     /*
@@ -98,20 +115,62 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
 
             JobBuilderFactory jobBuilderFactory = new JobBuilderFactory(jobRepository);
             JobBuilder jobBuilder = jobBuilderFactory.get(getJobName());
-            SimpleJobBuilder simpleJobBuilder =
-                jobBuilder.start(buildVerifyTransferUsingManifestStep(restoreId, jobManagerConfig))
-                          .next(buildVerifyTransferUsingSnapshotRepoStep(restoreId, jobManagerConfig))
-                          .next(buildRestoreContentStep(restoreId, destinationSpaceId, contentStore, jobManagerConfig))
-                          .next(buildRestoreContentPropertiesStep(restoreId,
-                                                                  destinationSpaceId,
-                                                                  contentStore,
-                                                                  jobManagerConfig))
-                          .next(buildVerifyDuraCloudTransferStep(restoreId,
-                                                                 destinationSpaceId,
-                                                                 contentStore,
-                                                                 jobManagerConfig));
-            simpleJobBuilder.listener(jobListener);
-            job = simpleJobBuilder.build();
+            Step verifyTransferUsingManifestStep = buildVerifyTransferUsingManifestStep(restoration, jobManagerConfig);
+            Step verifyTransferUsingSnapshotRepoStep =
+                buildVerifyTransferUsingSnapshotRepoStep(restoreId, jobManagerConfig);
+            // properties sent with the upload of their content are skipped
+            // by the content properties step
+            ContentPropertiesLookup appliedProperties = null;
+            if (BridgeConfiguration.isBridgeRestorePropertiesAtUpload()) {
+                appliedProperties = new ContentPropertiesLookup(getContentPropertiesJsonFile(restoreId,
+                                                                                             jobManagerConfig));
+            }
+            Step restoreContentStep =
+                buildRestoreContentStep(restoreId, destination, restoration.getChunkSize(), appliedProperties,
+                                        contentStore, jobManagerConfig);
+            Step restoreContentPropertiesStep =
+                buildRestoreContentPropertiesStep(restoreId, destinationSpaceId, appliedProperties, contentStore,
+                                                  jobManagerConfig);
+            // a sample verified restore completes without verifying the space,
+            // which the restore manager does fully once the restore is complete
+            Step verifyDuraCloudTransferStep = null;
+            if (restoration.getVerificationPolicy() == VerificationPolicy.FULL) {
+                verifyDuraCloudTransferStep =
+                    buildVerifyDuraCloudTransferStep(restoreId, destinationSpaceId, contentStore, jobManagerConfig);
+            }
+
+            if (BridgeConfiguration.isBridgeVerifyParallel()) {
+                // the manifest check is disk bound and the snapshot repo check is
+                // database bound, so both run at once and join before the transfer
+                Flow verifyFlow =
+                    new FlowBuilder<SimpleFlow>("verifyTransfer")
+                        .split(new SimpleAsyncTaskExecutor("restore-verify-"))
+                        .add(new FlowBuilder<SimpleFlow>("verifyTransferUsingManifestFlow")
+                                 .start(verifyTransferUsingManifestStep).build(),
+                             new FlowBuilder<SimpleFlow>("verifyTransferUsingSnapshotRepoFlow")
+                                 .start(verifyTransferUsingSnapshotRepoStep).build())
+                        .build();
+                FlowBuilder<FlowJobBuilder> flowBuilder = jobBuilder.start(verifyFlow)
+                                                                    .next(restoreContentStep)
+                                                                    .next(restoreContentPropertiesStep);
+                if (verifyDuraCloudTransferStep != null) {
+                    flowBuilder.next(verifyDuraCloudTransferStep);
+                }
+                job = flowBuilder.end()
+                                 .listener(jobListener)
+                                 .build();
+            } else {
+                SimpleJobBuilder simpleJobBuilder =
+                    jobBuilder.start(verifyTransferUsingManifestStep)
+                              .next(verifyTransferUsingSnapshotRepoStep)
+                              .next(restoreContentStep)
+                              .next(restoreContentPropertiesStep);
+                if (verifyDuraCloudTransferStep != null) {
+                    simpleJobBuilder.next(verifyDuraCloudTransferStep);
+                }
+                simpleJobBuilder.listener(jobListener);
+                job = simpleJobBuilder.build();
+            }
             log.debug("build job {}", job);
         } catch (Exception e) {
             log.error("Error creating job: {}", e.getMessage(), e);
@@ -130,24 +189,54 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         throws Exception {
         File restoreDir = new File(ContentDirUtils.getSourcePath(restoreId, jobManagerConfig.getContentRootDir()));
         Restoration restore = this.restoreManager.get(restoreId);
-        SnapshotRepoManifestReader reader =
-            new SnapshotRepoManifestReader(this.snapshotContentItemRepo, restore.getSnapshot().getName());
+        final String snapshotName = restore.getSnapshot().getName();
 
-        SnapshotContentItemVerifier writer =
+        final SnapshotContentItemVerifier writer =
             new SnapshotContentItemVerifier(restoreId,
                                             getRestoreMd5Manifest(restoreDir),
-                                            restore.getSnapshot().getName(),
+                                            snapshotName,
                                             restoreManager);
+
+        int partitions = BridgeConfiguration.getBridgeVerifyRepoPartitions();
+        if (partitions <= 1) {
+            return buildVerifySnapshotRepoItemsStep("verifyTransferUsingSnapshotRepo", snapshotName, writer);
+        }
+
+        // each partition reads and verifies its own range of the snapshot's
+        // items, while the writer loads the manifest and checks the count
+        writer.setSnapshotItemCount(
+            () -> snapshotContentItemRepo.countBySnapshotNameAndContentIdNot(snapshotName,
+                                                                            Constants.SNAPSHOT_PROPS_FILENAME));
+        PartitionStep step = new PartitionStep();
+        step.setName("verifyTransferUsingSnapshotRepo");
+        step.setJobRepository(jobRepository);
+        step.setStepExecutionSplitter(
+            new SimpleStepExecutionSplitter(jobRepository,
+                                            false,
+                                            "verifyTransferUsingSnapshotRepo",
+                                            new SnapshotRepoPartitioner(snapshotContentItemRepo, snapshotName)));
+        step.setPartitionHandler(
+            new PerPartitionStepHandler(stepName -> buildVerifySnapshotRepoItemsStep(
+                stepName, snapshotName, new SnapshotContentItemVerifier(writer)),
+                                        new SimpleAsyncTaskExecutor("snapshot-repo-verify-"),
+                                        partitions));
+        step.setStepExecutionListeners(new StepExecutionListener[] {writer});
+        step.afterPropertiesSet();
+        return step;
+    }
+
+    private Step buildVerifySnapshotRepoItemsStep(String stepName,
+                                                  String snapshotName,
+                                                  SnapshotContentItemVerifier writer) throws Exception {
+        SnapshotRepoManifestReader reader = new SnapshotRepoManifestReader(this.snapshotContentItemRepo, snapshotName);
         SimpleStepFactoryBean<SnapshotContentItem, SnapshotContentItem> stepFactory = new SimpleStepFactoryBean<>();
 
         stepFactory.setJobRepository(jobRepository);
         stepFactory.setTransactionManager(transactionManager);
-        stepFactory.setBeanName("verifyTransferUsingSnapshotRepo");
+        stepFactory.setBeanName(stepName);
         stepFactory.setItemReader(reader);
         stepFactory.setItemWriter(writer);
         stepFactory.setCommitInterval(50);
-        stepFactory.setThrottleLimit(1);
-        stepFactory.setTaskExecutor(taskExecutor);
         stepFactory.setListeners(new StepListener[] {writer});
         return stepFactory.getObject();
     }
@@ -173,6 +262,14 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
             new SpaceManifestSnapshotManifestVerifier(md5Manifest,
                                                       new StitchedManifestGenerator(contentStore),
                                                       destinationSpaceId);
+        if (BridgeConfiguration.isBridgeSortedManifestVerification()) {
+            spaceManifestVerifier.setSortedVerification(new File(jobManagerConfig.getWorkDir(), "manifest-sort"),
+                                                        BridgeConfiguration.getBridgeManifestSortBufferSize());
+        }
+        int recheckThreshold = BridgeConfiguration.getBridgeManifestRecheckThreshold();
+        if (recheckThreshold > 0) {
+            spaceManifestVerifier.setRecheckDifferences(contentStore, recheckThreshold);
+        }
         SpaceVerifier writer = new SpaceVerifier(restoreId,
                                                  spaceManifestVerifier,
                                                  destinationSpaceId,
@@ -193,13 +290,15 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
     }
 
     /**
-     * @param restoreId
+     * @param restoration
      * @param jobManagerConfig
      * @return
      */
-    private Step buildVerifyTransferUsingManifestStep(String restoreId, SnapshotJobManagerConfig jobManagerConfig)
+    private Step buildVerifyTransferUsingManifestStep(Restoration restoration,
+                                                      SnapshotJobManagerConfig jobManagerConfig)
         throws Exception {
 
+        String restoreId = restoration.getRestorationId();
         File restoreDir = getRestoreDir(restoreId, jobManagerConfig);
 
         File md5Manifest = getRestoreMd5Manifest(restoreDir);
@@ -209,6 +308,12 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         File contentDir = getRestoreContentDir(restoreDir);
 
         ManifestVerifier writer = new ManifestVerifier(restoreId, contentDir, restoreManager);
+        // files are checksummed in parallel within each batch, so the step
+        // itself reads and commits a batch at a time on a single thread
+        writer.setThreads(BridgeConfiguration.getBridgeVerifyThreads());
+        if (checksumCache.isEnabled()) {
+            writer.setChecksumCache(checksumCache);
+        }
 
         SimpleStepFactoryBean<ManifestEntry, ManifestEntry> stepFactory = new SimpleStepFactoryBean<>();
         stepFactory.setJobRepository(jobRepository);
@@ -216,10 +321,21 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         stepFactory.setBeanName("verifyTransferUsingManifest");
         stepFactory.setItemReader(reader);
         stepFactory.setItemWriter(writer);
-        stepFactory.setCommitInterval(1);
-        stepFactory.setThrottleLimit(20);
-        stepFactory.setTaskExecutor(taskExecutor);
-        stepFactory.setListeners(new StepListener[] {writer, reader});
+        stepFactory.setCommitInterval(BridgeConfiguration.getBridgeVerifyBatchSize());
+        if (restoration.getVerificationPolicy() == VerificationPolicy.SAMPLE) {
+            Double confidence = restoration.getSampleConfidence();
+            ManifestSampler sampler =
+                new ManifestSampler(md5Manifest,
+                                    contentDir,
+                                    restoreId,
+                                    confidence != null ? confidence
+                                                       : BridgeConfiguration.getBridgeVerifySampleConfidence(),
+                                    BridgeConfiguration.getBridgeVerifySampleTolerance());
+            stepFactory.setItemProcessor(sampler);
+            stepFactory.setListeners(new StepListener[] {writer, reader, sampler});
+        } else {
+            stepFactory.setListeners(new StepListener[] {writer, reader});
+        }
         return stepFactory.getObject();
     }
 
@@ -265,50 +381,89 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         return restoreDir;
     }
 
+    private File getContentPropertiesJsonFile(String restorationId, SnapshotJobManagerConfig jobManagerConfig) {
+        return new File(ContentDirUtils.getSourcePath(restorationId, jobManagerConfig.getContentRootDir()),
+                        SnapshotServiceConstants.CONTENT_PROPERTIES_JSON_FILENAME);
+    }
+
     private Step buildRestoreContentPropertiesStep(String restorationId,
                                                    String destinationSpaceId,
+                                                   ContentPropertiesLookup appliedProperties,
                                                    ContentStore contentStore,
                                                    SnapshotJobManagerConfig jobManagerConfig) throws Exception {
 
-        File contentPropertiesJsonFile =
-            new File(ContentDirUtils.getSourcePath(restorationId, jobManagerConfig.getContentRootDir()),
-                     SnapshotServiceConstants.CONTENT_PROPERTIES_JSON_FILENAME);
+        File contentPropertiesJsonFile = getContentPropertiesJsonFile(restorationId, jobManagerConfig);
 
         if (!contentPropertiesJsonFile.exists()) {
             throw new RuntimeException("The restored content properties file is missing : "
                                        + contentPropertiesJsonFile.getAbsolutePath());
         }
 
-        ContentPropertiesFileReader reader = new ContentPropertiesFileReader(contentPropertiesJsonFile);
+        int partitions = BridgeConfiguration.getBridgeRestorePropertiesPartitions();
+        if (partitions <= 1) {
+            ContentPropertiesFileReader reader = new ContentPropertiesFileReader(contentPropertiesJsonFile);
+
+            ContentPropertiesWriter writer = new ContentPropertiesWriter(contentStore, destinationSpaceId);
+            writer.setAppliedProperties(appliedProperties);
+
+            SimpleStepFactoryBean<ContentProperties, ContentProperties> stepFactory = new SimpleStepFactoryBean<>();
+            stepFactory.setJobRepository(jobRepository);
+            stepFactory.setTransactionManager(transactionManager);
+            stepFactory.setBeanName("restoreContentProperties");
+            stepFactory.setItemReader(reader);
+            stepFactory.setItemWriter(writer);
+            stepFactory.setCommitInterval(1);
+            stepFactory.setThrottleLimit(20);
+            stepFactory.setTaskExecutor(taskExecutor);
+            stepFactory.setListeners(new StepListener[] {writer});
+            return stepFactory.getObject();
+        }
 
-        ContentPropertiesWriter writer = new ContentPropertiesWriter(contentStore, destinationSpaceId);
+        // each partition reads its own range of the file on its own thread,
+        // rather than all threads sharing a single reader
+        PartitionStep step = new PartitionStep();
+        step.setName("restoreContentProperties");
+        step.setJobRepository(jobRepository);
+        step.setStepExecutionSplitter(
+            new SimpleStepExecutionSplitter(jobRepository,
+                                            false,
+                                            "restoreContentProperties",
+                                            new ContentPropertiesPartitioner(contentPropertiesJsonFile)));
+        step.setPartitionHandler(
+            new PerPartitionStepHandler(stepName -> {
+                ContentPropertiesWriter writer = new ContentPropertiesWriter(contentStore, destinationSpaceId);
+                writer.setAppliedProperties(appliedProperties);
+                return buildRestoreContentPropertiesRangeStep(stepName, contentPropertiesJsonFile, writer);
+            }, new SimpleAsyncTaskExecutor("restore-properties-"), partitions));
+        step.afterPropertiesSet();
+        return step;
+    }
 
+    private Step buildRestoreContentPropertiesRangeStep(String stepName,
+                                                        File contentPropertiesJsonFile,
+                                                        ContentPropertiesWriter writer) throws Exception {
+        ContentPropertiesFileReader reader = new ContentPropertiesFileReader(contentPropertiesJsonFile);
         SimpleStepFactoryBean<ContentProperties, ContentProperties> stepFactory = new SimpleStepFactoryBean<>();
         stepFactory.setJobRepository(jobRepository);
         stepFactory.setTransactionManager(transactionManager);
-        stepFactory.setBeanName("restoreContentProperties");
+        stepFactory.setBeanName(stepName);
         stepFactory.setItemReader(reader);
         stepFactory.setItemWriter(writer);
         stepFactory.setCommitInterval(1);
-        stepFactory.setThrottleLimit(20);
-        stepFactory.setTaskExecutor(taskExecutor);
         stepFactory.setListeners(new StepListener[] {writer});
         return stepFactory.getObject();
     }
 
     private Step buildRestoreContentStep(String restorationId,
-                                         String destinationSpaceId,
+                                         DuracloudEndPointConfig destination,
+                                         Long chunkSize,
+                                         ContentPropertiesLookup appliedProperties,
                                          ContentStore contentStore,
                                          SnapshotJobManagerConfig jobManagerConfig) throws Exception {
-
-        SyncEndpoint endpoint =
-            new DuraStoreChunkSyncEndpoint(contentStore,
-                                           jobManagerConfig.getDuracloudUsername(),
-                                           destinationSpaceId,
-                                           false,
-                                           true,
-                                           1000 * 1000 * 1000); // 1GB chunk size
-        endpoint.addEndPointListener(new EndPointLogger());
+        String destinationSpaceId = destination.getSpaceId();
+        if (chunkSize == null) {
+            chunkSize = BridgeConfiguration.getBridgeRestoreChunkSize();
+        }
 
         File watchDir =
             new File(ContentDirUtils.getSourcePath(restorationId, jobManagerConfig.getContentRootDir())
@@ -319,8 +474,33 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
                                        + "snapshot does not exist in bridge storage: " + "missing watchDir: " +
                                        watchDir.getAbsolutePath());
         }
+        File md5Manifest = getRestoreMd5Manifest(getRestoreDir(restorationId, jobManagerConfig));
+
+        RestoreChunkSyncEndpoint endpoint;
+        int chunkThreads = BridgeConfiguration.getBridgeRestoreChunkThreads();
+        if (chunkThreads > 1) {
+            ParallelChunkSyncEndpoint parallelEndpoint =
+                new ParallelChunkSyncEndpoint(contentStore,
+                                              jobManagerConfig.getDuracloudUsername(),
+                                              destinationSpaceId,
+                                              chunkSize,
+                                              chunkThreads);
+            parallelEndpoint.setMd5Manifest(md5Manifest, watchDir);
+            endpoint = parallelEndpoint;
+        } else {
+            endpoint = new RestoreChunkSyncEndpoint(contentStore,
+                                                    jobManagerConfig.getDuracloudUsername(),
+                                                    destinationSpaceId,
+                                                    chunkSize);
+        }
+        endpoint.addEndPointListener(new EndPointLogger());
+
+        if (appliedProperties != null) {
+            endpoint.setContentProperties(appliedProperties, watchDir);
+        }
 
         FileSystemReader reader = new FileSystemReader(watchDir);
+        reader.setLargeFileThreshold(BridgeConfiguration.getBridgeRestoreLargeFileThreshold());
 
         SyncWriter writer =
             new SyncWriter(restorationId,
@@ -329,6 +509,9 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
                            contentStore,
                            destinationSpaceId,
                            restoreManager);
+        writer.setBandwidthLimiter(bandwidthLimiter, destination.getHost());
+        writer.setManifestGenerator(new StitchedManifestGenerator(contentStore),
+                                    md5Manifest);
 
         SimpleStepFactoryBean<File, File> stepFactory = new SimpleStepFactoryBean<>();
         stepFactory.setJobRepository(jobRepository);
@@ -336,10 +519,26 @@ public class RestoreJobBuilder extends AbstractJobBuilder implements BatchJobBui
         stepFactory.setBeanName("restoreContent");
         stepFactory.setItemReader(reader);
         stepFactory.setItemWriter(writer);
-        stepFactory.setCommitInterval(1);
-        setThrottleLimitForContentTransfers(stepFactory);
-        stepFactory.setTaskExecutor(taskExecutor);
-        stepFactory.setListeners(new StepListener[] {writer});
+        List<StepListener> listeners = new ArrayList<>();
+        listeners.add(writer);
+        long batchBytes = BridgeConfiguration.getBridgeRestoreBatchBytes();
+        if (batchBytes > 0) {
+            // small files are uploaded in chunks of several at a time
+            UploadBatchCompletionPolicy completionPolicy =
+                new UploadBatchCompletionPolicy(BridgeConfiguration.getBridgeRestoreBatchFiles(), batchBytes);
+            stepFactory.setCommitInterval(0);
+            stepFactory.setChunkCompletionPolicy(completionPolicy);
+            listeners.add(completionPolicy);
+        } else {
+            stepFactory.setCommitInterval(1);
+        }
+        AdaptiveConcurrencyController concurrencyController =
+            setThrottleLimitForContentTransfers(stepFactory, taskExecutor);
+        if (concurrencyController != null) {
+            writer.setConcurrencyController(concurrencyController);
+            listeners.add(concurrencyController);
+        }
+        stepFactory.setListeners(listeners.toArray(new StepListener[0]));
         return stepFactory.getObject();
     }
 
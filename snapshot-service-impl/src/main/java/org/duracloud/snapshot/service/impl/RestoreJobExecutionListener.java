@@ -30,6 +30,7 @@ import org.duracloud.snapshot.db.ContentDirUtils;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.db.repo.RestoreRepo;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.service.BridgeConfiguration;
@@ -73,6 +74,9 @@ public class RestoreJobExecutionListener implements JobExecutionListener {
     @Autowired
     private EventLog eventLog;
 
+    @Autowired
+    private FileChecksumCache checksumCache;
+
     private ExecutionListenerConfig config;
 
     private Integer daysToExpire;
@@ -105,6 +109,13 @@ public class RestoreJobExecutionListener implements JobExecutionListener {
         this.bridgeConfig = bridgeConfig;
     }
 
+    /**
+     * @param checksumCache the checksumCache to set
+     */
+    public void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     public void init(ExecutionListenerConfig config, int daysToExpire) {
         this.config = config;
         this.daysToExpire = daysToExpire;
@@ -166,6 +177,12 @@ public class RestoreJobExecutionListener implements JobExecutionListener {
                            ". At that time, the contents of the space '" +
                            destination.getSpaceId() +
                            "' will be removed, and the space will be deleted." + "\n";
+                boolean sampled = restoration.getVerificationPolicy() == VerificationPolicy.SAMPLE;
+                if (sampled) {
+                    message += "\nA sample of the restored content was verified with " +
+                               restoration.getSampleConfidence() + " confidence. All of the " +
+                               "restored content will be verified shortly.\n";
+                }
 
                 // Add history event
                 String history =
@@ -174,13 +191,20 @@ public class RestoreJobExecutionListener implements JobExecutionListener {
                     "{'" + RESTORE_EXPIRES_TITLE + "':'" + formattedExpDate + "'}]";
                 snapshotManager.updateHistory(snapshot, history);
 
-                log.info("deleting restoration path " + restorationPath);
-
-                try {
-                    FileUtils.deleteDirectory(new File(restorationPath));
-                } catch (IOException e) {
-                    log.error("failed to delete restoration path = "
-                              + restorationPath + ": " + e.getMessage(), e);
+                // the restore manager removes the restoration path of a sampled
+                // restore once it has verified all of the restored content
+                if (!sampled) {
+                    log.info("deleting restoration path " + restorationPath);
+
+                    try {
+                        FileUtils.deleteDirectory(new File(restorationPath));
+                        if (checksumCache != null) {
+                            checksumCache.removeAll(new File(restorationPath));
+                        }
+                    } catch (IOException e) {
+                        log.error("failed to delete restoration path = "
+                                  + restorationPath + ": " + e.getMessage(), e);
+                    }
                 }
 
                 List<String> emailAddresses =
@@ -19,10 +19,13 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.notification.NotificationManager;
 import org.duracloud.common.notification.NotificationType;
 import org.duracloud.common.util.DateUtil;
+import org.duracloud.manifeststitch.StitchedManifestGenerator;
 import org.duracloud.snapshot.SnapshotException;
 import org.duracloud.snapshot.SnapshotInProcessException;
 import org.duracloud.snapshot.SnapshotNotFoundException;
@@ -30,6 +33,7 @@ import org.duracloud.snapshot.db.ContentDirUtils;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.db.repo.RestoreRepo;
 import org.duracloud.snapshot.db.repo.SnapshotRepo;
 import org.duracloud.snapshot.dto.RestoreStatus;
@@ -59,6 +63,15 @@ import org.springframework.util.CollectionUtils;
 public class RestoreManagerImpl implements RestoreManager {
     private static Logger log =
         LoggerFactory.getLogger(RestoreManagerImpl.class);
+
+    /*
+     * The bounds of the chunk size a restore may be given, which must also be
+     * a multiple of 1000. The upper bound is the largest object which may be
+     * stored in a single request.
+     */
+    private static final long MIN_CHUNK_SIZE = 1000 * 1000L;
+    private static final long MAX_CHUNK_SIZE = 5 * 1000 * 1000 * 1000L;
+
     private RestoreManagerConfig config;
     private SnapshotJobManager jobManager;
 
@@ -83,9 +96,20 @@ public class RestoreManagerImpl implements RestoreManager {
     @Autowired
     private EventLog eventLog;
 
+    @Autowired
+    private FileChecksumCache checksumCache;
+
     public RestoreManagerImpl() {
     }
 
+    /**
+     * For testing purposes only
+     * @param checksumCache the checksumCache to set
+     */
+    protected void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /**
      * For testing purposes only
      * @param snapshotRepo the snapshotRepo to set
@@ -151,9 +175,44 @@ public class RestoreManagerImpl implements RestoreManager {
                                        DuracloudEndPointConfig destination,
                                        String userEmail)
         throws SnapshotNotFoundException, SnapshotInProcessException, SnapshotException {
+        return restoreSnapshot(snapshotId, destination, userEmail, VerificationPolicy.FULL, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.duracloud.snapshot.service.RestoreManager#restoreSnapshot(java.lang.String,
+     * org.duracloud.snapshot.db.model.DuracloudEndPointConfig, java.lang.String,
+     * org.duracloud.snapshot.db.model.VerificationPolicy, java.lang.Double, java.lang.Long)
+     */
+    @Override
+    public Restoration restoreSnapshot(String snapshotId,
+                                       DuracloudEndPointConfig destination,
+                                       String userEmail,
+                                       VerificationPolicy verificationPolicy,
+                                       Double sampleConfidence,
+                                       Long chunkSize)
+        throws SnapshotNotFoundException, SnapshotInProcessException, SnapshotException {
 
         checkInitialized();
 
+        if (chunkSize != null &&
+            (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE || chunkSize % 1000 != 0)) {
+            throw new SnapshotException("The chunk size must be a multiple of 1000 bytes between " +
+                                        MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes: " + chunkSize, null);
+        }
+
+        if (verificationPolicy == VerificationPolicy.SAMPLE) {
+            if (sampleConfidence == null) {
+                sampleConfidence = BridgeConfiguration.getBridgeVerifySampleConfidence();
+            }
+            if (sampleConfidence <= 0 || sampleConfidence >= 1) {
+                throw new SnapshotException("The sample confidence must be between 0 and 1: "
+                                            + sampleConfidence, null);
+            }
+        } else {
+            verificationPolicy = VerificationPolicy.FULL;
+            sampleConfidence = null;
+        }
+
         Snapshot snapshot = getSnapshot(snapshotId);
 
         if (!snapshot.getStatus().equals(SnapshotStatus.SNAPSHOT_COMPLETE)) {
@@ -164,6 +223,9 @@ public class RestoreManagerImpl implements RestoreManager {
 
         Restoration restoration =
             createRestoration(snapshot, destination, userEmail);
+        restoration.setVerificationPolicy(verificationPolicy);
+        restoration.setSampleConfidence(sampleConfidence);
+        restoration.setChunkSize(chunkSize);
 
         validateAndSet(restoration, RestoreStatus.RETRIEVING_FROM_STORAGE, "Restoration request issued");
 
@@ -519,6 +581,85 @@ public class RestoreManagerImpl implements RestoreManager {
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.duracloud.snapshot.service.RestoreManager#verifySampledRestores()
+     */
+    @Override
+    public void verifySampledRestores() {
+        List<Restoration> sampledRestores =
+            restoreRepo.findByStatusAndVerificationPolicyAndFullVerificationDateIsNull(
+                RestoreStatus.RESTORATION_COMPLETE, VerificationPolicy.SAMPLE);
+
+        for (Restoration restoration : sampledRestores) {
+            String restorationId = restoration.getRestorationId();
+            try {
+                verifySampledRestore(restoration);
+            } catch (Exception e) {
+                log.error("Failed to verify sampled restore " + restorationId +
+                          " due to: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /*
+     * Verifies the checksums of all of the content in the destination space
+     * against the manifest of the restore, which covers every file the
+     * sample verification of the restore passed over. The restore directory,
+     * kept for this, is then removed.
+     */
+    private void verifySampledRestore(Restoration restoration) throws Exception {
+        String restorationId = restoration.getRestorationId();
+        File restoreDir = getRestoreDir(restorationId);
+        File md5Manifest = new File(restoreDir, ManifestFileHelper.MANIFEST_MD5_TEXT_FILE_NAME);
+        DuracloudEndPointConfig destination = restoration.getDestination();
+
+        List<String> errors = new ArrayList<>();
+        if (!md5Manifest.exists()) {
+            errors.add("The md5 manifest file is missing: " + md5Manifest.getAbsolutePath());
+        } else {
+            log.info("Verifying all content of sampled restore " + restorationId);
+            ContentStore store =
+                storeClientHelper.create(destination,
+                                         bridgeConfig.getDuracloudUsername(),
+                                         bridgeConfig.getDuracloudPassword());
+            SpaceManifestSnapshotManifestVerifier verifier =
+                new SpaceManifestSnapshotManifestVerifier(md5Manifest,
+                                                          new StitchedManifestGenerator(store),
+                                                          destination.getSpaceId());
+            if (!verifier.verify()) {
+                errors.addAll(verifier.getErrors());
+            }
+        }
+
+        restoration.setFullVerificationDate(new Date());
+        if (errors.isEmpty()) {
+            restoration.setFullVerificationText("All restored content verified");
+        } else {
+            restoration.setFullVerificationText(
+                StringUtils.abbreviate("Verification failed: " + StringUtils.join(errors, "; "), 512));
+        }
+        save(restoration);
+
+        if (!errors.isEmpty()) {
+            String subject = "DuraCloud snapshot restore " + restorationId + " failed full verification";
+            String body = "The full verification of a sample verified restore has failed.\n" +
+                          "\nRestore ID: " + restorationId +
+                          "\nSnapshot ID: " + restoration.getSnapshot().getName() +
+                          "\nDestination Host: " + destination.getHost() +
+                          "\nDestination SpaceId: " + destination.getSpaceId() +
+                          "\n\n" + StringUtils.join(errors, "\n");
+            notificationManager.sendNotification(NotificationType.EMAIL,
+                                                 subject,
+                                                 body,
+                                                 this.config.getDuracloudEmailAddresses());
+        }
+
+        FileUtils.deleteQuietly(restoreDir);
+        if (checksumCache != null) {
+            checksumCache.removeAll(restoreDir);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.duracloud.snapshot.service.RestoreManager#cancelRestore(java.lang.String)
      */
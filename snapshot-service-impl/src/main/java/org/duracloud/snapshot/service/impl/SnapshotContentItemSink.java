@@ -0,0 +1,153 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.duracloud.common.retry.Retriable;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.snapshot.SnapshotException;
+import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.SnapshotManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the content items added to a snapshot by all writer threads and
+ * adds them to the snapshot repository in batches. A batch is written once
+ * the configured number of items has been collected or the configured
+ * interval has elapsed. {@link #flush()} must be called when the step ends.
+ *
+ * Items which are lost if the bridge stops before a flush are added again
+ * when the step is restarted, since every item is re-written on restart.
+ */
+public class SnapshotContentItemSink {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotContentItemSink.class);
+
+    private SnapshotManager snapshotManager;
+    private Snapshot snapshot;
+    private int batchSize;
+
+    private Map<String, Map<String, String>> buffer = new LinkedHashMap<>();
+    private Map<String, String> sha256Buffer = new HashMap<>();
+    private final Object flushLock = new Object();
+    private Timer timer;
+
+    /**
+     * @param snapshotManager     used to write each batch
+     * @param snapshot            the snapshot to which items are added
+     * @param batchSize           the number of items written in a single batch
+     * @param flushIntervalMillis the maximum time an item is held before being
+     *                            written, or 0 to flush on size only
+     */
+    public SnapshotContentItemSink(SnapshotManager snapshotManager,
+                                   Snapshot snapshot,
+                                   int batchSize,
+                                   long flushIntervalMillis) {
+        this.snapshotManager = snapshotManager;
+        this.snapshot = snapshot;
+        this.batchSize = Math.max(1, batchSize);
+
+        if (flushIntervalMillis > 0) {
+            this.timer = new Timer("content-item-sink-flush", true);
+            this.timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (SnapshotException ex) {
+                        // items remain buffered and are retried on the next flush
+                        log.warn("Scheduled flush of content items failed: {}", ex.getMessage());
+                    }
+                }
+            }, flushIntervalMillis, flushIntervalMillis);
+        }
+    }
+
+    /**
+     * Adds a content item, writing the current batch if it is full.
+     *
+     * @param contentId the content id
+     * @param props     the content properties
+     * @param sha256    the SHA-256 checksum of the content, may be null
+     * @throws SnapshotException if a full batch could not be written
+     */
+    public void add(String contentId, Map<String, String> props, String sha256) throws SnapshotException {
+        boolean full;
+        synchronized (this) {
+            buffer.put(contentId, props);
+            if (sha256 != null) {
+                sha256Buffer.put(contentId, sha256);
+            }
+            full = buffer.size() >= batchSize;
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all collected content items.
+     *
+     * @throws SnapshotException if the items could not be written
+     */
+    public void flush() throws SnapshotException {
+        synchronized (flushLock) {
+            final Map<String, Map<String, String>> batch;
+            final Map<String, String> sha256Batch;
+            synchronized (this) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                batch = buffer;
+                sha256Batch = sha256Buffer;
+                buffer = new LinkedHashMap<>();
+                sha256Buffer = new HashMap<>();
+            }
+
+            try {
+                new Retrier().execute(new Retriable() {
+                    @Override
+                    public Object retry() throws Exception {
+                        snapshotManager.addContentItems(snapshot, batch, sha256Batch);
+                        return null;
+                    }
+                });
+                log.debug("added {} content items to snapshot", batch.size());
+            } catch (Exception ex) {
+                synchronized (this) {
+                    batch.putAll(buffer);
+                    buffer = batch;
+                    sha256Batch.putAll(sha256Buffer);
+                    sha256Buffer = sha256Batch;
+                }
+                throw new SnapshotException("Failed to add " + batch.size() + " content items to snapshot " +
+                                            snapshot.getName() + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Writes all collected content items and stops the scheduled flushes.
+     *
+     * @throws SnapshotException if the items could not be written
+     */
+    public void close() throws SnapshotException {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        flush();
+    }
+}
@@ -11,9 +11,9 @@ import java.io.File;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongSupplier;
 
 import org.duracloud.client.ContentStore;
-import org.duracloud.common.collection.WriteOnlyStringSet;
 import org.duracloud.common.constant.Constants;
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
@@ -28,6 +28,16 @@ import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.item.ItemWriter;
 
 /**
+ * Verifies that each item of a snapshot is listed in the manifest of a
+ * restore, and that the snapshot and the manifest hold the same number of
+ * items.
+ *
+ * When the snapshot is verified by a partitioned step, this verifier
+ * listens to the partitioned step itself, loading the manifest and
+ * checking the count, while a verifier created for each partition with
+ * {@link #SnapshotContentItemVerifier(SnapshotContentItemVerifier)} checks
+ * the items of that partition.
+ *
  * @author Daniel Bernstein Date: Jul 29, 2015
  */
 public class SnapshotContentItemVerifier extends StepExecutionSupport
@@ -41,7 +51,9 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
     private String restoreId;
     private String snapshotName;
     private RestoreManager restoreManager;
-    private WriteOnlyStringSet manifestSet;
+    private ManifestFingerprintSet manifestSet;
+    private SnapshotContentItemVerifier coordinator;
+    private LongSupplier snapshotItemCount;
 
     /**
      * @param restoreId
@@ -57,6 +69,27 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
         this.restoreManager = restoreManager;
     }
 
+    /**
+     * Creates a verifier for the items of one partition of the snapshot,
+     * which uses the manifest loaded by the given verifier and leaves the
+     * status of the restore and the count check to it.
+     *
+     * @param coordinator the verifier listening to the partitioned step
+     */
+    public SnapshotContentItemVerifier(SnapshotContentItemVerifier coordinator) {
+        this(coordinator.restoreId, coordinator.manifestFile, coordinator.snapshotName, coordinator.restoreManager);
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * @param snapshotItemCount counts the items of the snapshot (not including
+     *                          the snapshot properties), for use when the items
+     *                          are read by partitions rather than by this verifier
+     */
+    public void setSnapshotItemCount(LongSupplier snapshotItemCount) {
+        this.snapshotItemCount = snapshotItemCount;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -109,7 +142,11 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
     @Override
     public void beforeStep(StepExecution stepExecution) {
         super.beforeStep(stepExecution);
-        resetContextState();
+        // the items read and errors found are kept from a step which stopped
+        // before completing, so that a restarted step resumes where it stopped
+        if (coordinator != null) {
+            return;
+        }
         try {
 
             this.manifestSet = ManifestFileHelper.loadManifestSetFromFile(this.manifestFile);
@@ -143,20 +180,10 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
      */
     @Override
     public ExitStatus afterStep(StepExecution stepExecution) {
-        // compare counts (which should not include SNAPSHOT_PROPS_FILENAME
-        // on the snapshot repo side since it does not get written to the
-        // manifest.
-        long snapshotItemCount = getItemsRead();
-        if (snapshotItemCount == this.manifestSet.size()) {
-            log.debug("snapshot repo count matches manifest count: "
-                      + "step_execution_id={} job_execution_id={} snapshot_name={}",
-                      stepExecution.getId(),
-                      stepExecution.getJobExecutionId(),
-                      this.snapshotName);
-        } else {
-            addError("snapshot ("
-                     + snapshotName + ") content item count (" + snapshotItemCount
-                     + ") does not match manifest count (" + manifestSet.size() + ")");
+        // the count of a partitioned snapshot is checked once all of its
+        // partitions have been verified
+        if (coordinator == null) {
+            checkItemCount(stepExecution);
         }
 
         ExitStatus status = stepExecution.getExitStatus();
@@ -194,15 +221,20 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
      */
     @Override
     public void write(List<? extends SnapshotContentItem> items) throws Exception {
+        ManifestFingerprintSet manifestSet = getManifestSet();
         for (SnapshotContentItem item : items) {
-            Map<String, String> props = PropertiesSerializer.deserialize(item.getMetadata());
             String contentId = item.getContentId();
-            String checksum = props.get(ContentStore.CONTENT_CHECKSUM);
+            String checksum = item.getMd5();
+            if (checksum == null && item.getMetadata() != null) {
+                // items recorded before checksums were held in their own column
+                Map<String, String> props = PropertiesSerializer.deserialize(item.getMetadata());
+                checksum = props.get(ContentStore.CONTENT_CHECKSUM);
+            }
 
             // verify that manifest contains every item from the database except
             // SNAPSHOT_PROPS_FILENAME
             if (!contentId.equals(Constants.SNAPSHOT_PROPS_FILENAME)) {
-                if (!this.manifestSet.contains(ManifestFileHelper.formatManifestSetString(contentId, checksum))) {
+                if (!manifestSet.contains(contentId, checksum)) {
                     addError(MessageFormat.format("Content item {0} with checksum {1} not found in manifest "
                                                   + "for snapshot {2}", contentId, checksum, this.snapshotName));
                 }
@@ -210,4 +242,37 @@ public class SnapshotContentItemVerifier extends StepExecutionSupport
         }
     }
 
+    private void checkItemCount(StepExecution stepExecution) {
+        // compare counts (which should not include SNAPSHOT_PROPS_FILENAME
+        // on the snapshot repo side since it does not get written to the
+        // manifest.
+        long snapshotItemCount = this.snapshotItemCount != null
+                                 ? this.snapshotItemCount.getAsLong() : getItemsRead();
+        if (snapshotItemCount == this.manifestSet.size()) {
+            log.debug("snapshot repo count matches manifest count: "
+                      + "step_execution_id={} job_execution_id={} snapshot_name={}",
+                      stepExecution.getId(),
+                      stepExecution.getJobExecutionId(),
+                      this.snapshotName);
+        } else {
+            addError("snapshot ("
+                     + snapshotName + ") content item count (" + snapshotItemCount
+                     + ") does not match manifest count (" + manifestSet.size() + ")");
+        }
+    }
+
+    /*
+     * Also discards the position of the reader, so the step is run from the
+     * first item of the snapshot on failure.
+     */
+    @Override
+    protected void resetContextState() {
+        super.resetContextState();
+        getExecutionContext().remove(SnapshotRepoManifestReader.LAST_ID_READ_KEY);
+    }
+
+    private ManifestFingerprintSet getManifestSet() {
+        return coordinator != null ? coordinator.manifestSet : this.manifestSet;
+    }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.snapshot.common.SnapshotServiceConstants;
+import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.SnapshotManager;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reuses content from the previous snapshot of a space which is still held
+ * on the bridge. A content item whose MD5 checksum matches the checksum
+ * recorded for it in the previous snapshot is linked into the new snapshot
+ * from the previous snapshot's local copy rather than being retrieved from
+ * DuraCloud again. Its SHA-256 checksum is taken from the previous
+ * snapshot's manifest.
+ *
+ * Linked files share storage with the previous snapshot. This is safe
+ * because files in a snapshot are never modified in place: a file which
+ * must be retrieved again is deleted before it is rewritten.
+ */
+public class SnapshotContentReuser {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotContentReuser.class);
+
+    private SnapshotManager snapshotManager;
+    private Snapshot previousSnapshot;
+    private File previousContentDir;
+    private File previousDataDir;
+    private File dataDir;
+
+    private DB db;
+    private Map<String, String> previousSha256;
+    private AtomicLong itemsReused = new AtomicLong(0);
+    private AtomicLong bytesReused = new AtomicLong(0);
+
+    /**
+     * @param snapshotManager    used to look up the items of the previous snapshot
+     * @param previousSnapshot   the previous snapshot of the same space
+     * @param previousContentDir the local directory of the previous snapshot
+     * @param contentDir         the local directory of the new snapshot
+     */
+    public SnapshotContentReuser(SnapshotManager snapshotManager,
+                                 Snapshot previousSnapshot,
+                                 File previousContentDir,
+                                 File contentDir) {
+        this.snapshotManager = snapshotManager;
+        this.previousSnapshot = previousSnapshot;
+        this.previousContentDir = previousContentDir;
+        this.previousDataDir = new File(previousContentDir, "data");
+        this.dataDir = new File(contentDir, "data");
+    }
+
+    public Snapshot getPreviousSnapshot() {
+        return previousSnapshot;
+    }
+
+    /**
+     * Loads the SHA-256 manifest of the previous snapshot.
+     */
+    public synchronized void open() throws IOException {
+        this.db = DBMaker.tempFileDB().fileDeleteAfterClose().make();
+        this.previousSha256 = db.treeMap("previousSha256", Serializer.STRING, Serializer.STRING).create();
+
+        File manifest = new File(previousContentDir, SnapshotServiceConstants.MANIFEST_SHA256_TXT_FILE_NAME);
+        if (manifest.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                        if (entry.getChecksum() != null && entry.getChecksum().matches("[a-fA-F0-9]{64}")) {
+                            previousSha256.put(entry.getContentId(), entry.getChecksum());
+                        }
+                    } catch (ParseException ex) {
+                        log.debug("skipping unparseable line in {}: {}", manifest.getAbsolutePath(), line);
+                    }
+                }
+            }
+        }
+
+        log.info("reusing unchanged content from snapshot {} ({} SHA-256 checksums loaded)",
+                 previousSnapshot.getName(), previousSha256.size());
+    }
+
+    /**
+     * Links the previous snapshot's copy of a content item to the local file
+     * if the item is unchanged.
+     *
+     * @param contentId the content id
+     * @param localFile the file into which the item would be retrieved
+     * @param props     the current properties of the item in DuraCloud
+     * @return true if the local file now holds the item, false if the item
+     * must be retrieved
+     */
+    public boolean reuse(String contentId, File localFile, Map<String, String> props) {
+        String md5 = props != null ? props.get(ContentStore.CONTENT_CHECKSUM) : null;
+        if (md5 == null) {
+            return false;
+        }
+
+        Map<String, String> previousProps =
+            snapshotManager.getContentItemProperties(previousSnapshot, contentId);
+        if (previousProps == null || !md5.equals(previousProps.get(ContentStore.CONTENT_CHECKSUM))) {
+            return false;
+        }
+
+        Path relativePath = dataDir.toPath().relativize(localFile.toPath());
+        File previousFile = previousDataDir.toPath().resolve(relativePath).toFile();
+        if (!previousFile.isFile() || !sizeMatches(previousFile, props)) {
+            return false;
+        }
+
+        try {
+            link(previousFile, localFile);
+        } catch (IOException ex) {
+            log.warn("Unable to reuse {} from snapshot {}, it will be retrieved: {}",
+                     contentId, previousSnapshot.getName(), ex.getMessage());
+            return false;
+        }
+
+        itemsReused.incrementAndGet();
+        bytesReused.addAndGet(localFile.length());
+        log.debug("reused unchanged content {} from snapshot {}", contentId, previousSnapshot.getName());
+        return true;
+    }
+
+    private boolean sizeMatches(File previousFile, Map<String, String> props) {
+        String size = props.get(ContentStore.CONTENT_SIZE);
+        if (size == null) {
+            return true;
+        }
+        try {
+            return Long.parseLong(size) == previousFile.length();
+        } catch (NumberFormatException ex) {
+            return true;
+        }
+    }
+
+    private void link(File previousFile, File localFile) throws IOException {
+        localFile.getParentFile().mkdirs();
+        Files.deleteIfExists(localFile.toPath());
+        try {
+            Files.createLink(localFile.toPath(), previousFile.toPath());
+        } catch (IOException | UnsupportedOperationException ex) {
+            // hard links are not possible across file systems
+            Files.copy(previousFile.toPath(), localFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * @return the SHA-256 checksum of the item in the previous snapshot, or
+     * null if it is not known
+     */
+    public String getSha256(String contentId) {
+        return previousSha256 != null ? previousSha256.get(contentId) : null;
+    }
+
+    public long getItemsReused() {
+        return itemsReused.get();
+    }
+
+    public long getBytesReused() {
+        return bytesReused.get();
+    }
+
+    public synchronized void close() {
+        if (db != null) {
+            db.close();
+            db = null;
+            previousSha256 = null;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.duracloud.snapshot.common.SnapshotServiceConstants;
 import org.duracloud.snapshot.db.ContentDirUtils;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.BridgeConfiguration;
 import org.duracloud.snapshot.service.SnapshotJobManagerConfig;
 import org.duracloud.snapshot.service.SnapshotManager;
 import org.slf4j.Logger;
@@ -31,6 +32,7 @@ import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobParameter;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepListener;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.job.builder.SimpleJobBuilder;
@@ -61,6 +63,8 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
     private TaskExecutor taskExecutor;
     private SnapshotManager snapshotManager;
     private StoreClientHelper storeClientHelper;
+    private BandwidthLimiter bandwidthLimiter;
+    private FileChecksumCache checksumCache;
 
     @Autowired
     public SnapshotJobBuilder(SnapshotJobExecutionListener jobListener,
@@ -68,7 +72,9 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
                               PlatformTransactionManager transactionManager,
                               @Qualifier("itemTaskExecutor") TaskExecutor taskExecutor,
                               SnapshotManager snapshotManager,
-                              StoreClientHelper storeClientHelper) {
+                              StoreClientHelper storeClientHelper,
+                              BandwidthLimiter bandwidthLimiter,
+                              FileChecksumCache checksumCache) {
 
         this.jobListener = jobListener;
         this.jobRepository = jobRepository;
@@ -76,6 +82,8 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
         this.taskExecutor = taskExecutor;
         this.snapshotManager = snapshotManager;
         this.storeClientHelper = storeClientHelper;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.checksumCache = checksumCache;
     }
 
     /* (non-Javadoc)
@@ -103,8 +111,13 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
                                                       spaces,
                                                       false);
 
-            ItemReader<ContentItem> itemReader =
-                new SpaceItemReader(retrievalSource);
+            ItemReader<ContentItem> itemReader;
+            int prefetchSize = BridgeConfiguration.getBridgeItemPrefetchSize();
+            if (prefetchSize > 0) {
+                itemReader = new PrefetchingSpaceItemReader(retrievalSource, prefetchSize);
+            } else {
+                itemReader = new SpaceItemReader(retrievalSource);
+            }
 
             File contentDir =
                 new File(ContentDirUtils.getDestinationPath(snapshot.getName(),
@@ -121,7 +134,15 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
                 new SpaceManifestSnapshotManifestVerifier(md5File,
                                                           new StitchedManifestGenerator(contentStore),
                                                           source.getSpaceId());
-            ItemWriter itemWriter =
+            if (BridgeConfiguration.isBridgeSortedManifestVerification()) {
+                verifier.setSortedVerification(new File(config.getWorkDir(), "manifest-sort"),
+                                               BridgeConfiguration.getBridgeManifestSortBufferSize());
+            }
+            int recheckThreshold = BridgeConfiguration.getBridgeManifestRecheckThreshold();
+            if (recheckThreshold > 0) {
+                verifier.setRecheckDifferences(contentStore, recheckThreshold);
+            }
+            SpaceItemWriter spaceItemWriter =
                 new SpaceItemWriter(snapshot,
                                     retrievalSource,
                                     contentDir,
@@ -132,6 +153,27 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
                                     snapshotManager,
                                     verifier);
 
+            spaceItemWriter.setBandwidthLimiter(bandwidthLimiter);
+            if (checksumCache.isEnabled()) {
+                spaceItemWriter.setChecksumCache(checksumCache);
+            }
+            int chunkThreads = BridgeConfiguration.getBridgeChunkThreadsPerItem();
+            if (chunkThreads > 1) {
+                ParallelChunkRetriever chunkRetriever = new ParallelChunkRetriever(contentStore, chunkThreads);
+                chunkRetriever.setBandwidthLimiter(bandwidthLimiter, snapshot.getName(), source.getHost());
+                spaceItemWriter.setChunkRetriever(chunkRetriever);
+            }
+            int contentItemBatchSize = BridgeConfiguration.getBridgeContentItemBatchSize();
+            if (contentItemBatchSize > 0) {
+                spaceItemWriter.setContentItemSink(
+                    new SnapshotContentItemSink(snapshotManager, snapshot, contentItemBatchSize,
+                                                BridgeConfiguration.getBridgeContentItemFlushInterval()));
+            }
+            if (BridgeConfiguration.isBridgeIncrementalSnapshots()) {
+                spaceItemWriter.setContentReuser(createContentReuser(snapshot, contentDir, config));
+            }
+            ItemWriter itemWriter = spaceItemWriter;
+
             SimpleStepFactoryBean<ContentItem, File> stepFactory =
                 new SimpleStepFactoryBean<>();
             stepFactory.setJobRepository(jobRepository);
@@ -140,8 +182,12 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
             stepFactory.setItemReader(itemReader);
             stepFactory.setItemWriter(itemWriter);
             stepFactory.setCommitInterval(1);
-            setThrottleLimitForContentTransfers(stepFactory);
-            stepFactory.setTaskExecutor(taskExecutor);
+            AdaptiveConcurrencyController concurrencyController =
+                setThrottleLimitForContentTransfers(stepFactory, taskExecutor);
+            if (concurrencyController != null) {
+                spaceItemWriter.setConcurrencyController(concurrencyController);
+                stepFactory.setListeners(new StepListener[] {concurrencyController});
+            }
             Step step = (Step) stepFactory.getObject();
 
             JobBuilderFactory jobBuilderFactory =
@@ -161,6 +207,33 @@ public class SnapshotJobBuilder extends AbstractJobBuilder implements BatchJobBu
         return job;
     }
 
+    /*
+     * Returns a reuser for the previous snapshot of the same space, or null if
+     * there is no previous snapshot whose content is still on the bridge.
+     */
+    private SnapshotContentReuser createContentReuser(Snapshot snapshot,
+                                                      File contentDir,
+                                                      SnapshotJobManagerConfig config) {
+        Snapshot previous = snapshotManager.getPreviousSnapshot(snapshot);
+        if (previous == null) {
+            log.info("No previous snapshot of space {}: all content of snapshot {} will be retrieved",
+                     snapshot.getSource().getSpaceId(), snapshot.getName());
+            return null;
+        }
+
+        File previousContentDir =
+            new File(ContentDirUtils.getDestinationPath(previous.getName(), config.getContentRootDir()));
+        if (!new File(previousContentDir, "data").isDirectory()) {
+            log.info("Content of previous snapshot {} is no longer on the bridge: " +
+                     "all content of snapshot {} will be retrieved", previous.getName(), snapshot.getName());
+            return null;
+        }
+
+        log.info("Snapshot {} will reuse unchanged content from snapshot {}",
+                 snapshot.getName(), previous.getName());
+        return new SnapshotContentReuser(snapshotManager, previous, previousContentDir, contentDir);
+    }
+
     /* (non-Javadoc)
      * @see org.duracloud.snapshot.manager.spring.batch.BatchJobBuilder#buildIdentifyingJobParameters(java.lang.Object)
      */
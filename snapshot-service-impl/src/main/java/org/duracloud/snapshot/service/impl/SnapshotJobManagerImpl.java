@@ -79,6 +79,7 @@ public class SnapshotJobManagerImpl implements SnapshotJobManager {
     private BatchJobBuilderManager builderManager;
     private StoreClientHelper storeClientHelper;
     private EventLog eventLog;
+    private FileChecksumCache checksumCache;
 
     @Autowired
     public SnapshotJobManagerImpl(SnapshotRepo snapshotRepo,
@@ -98,6 +99,15 @@ public class SnapshotJobManagerImpl implements SnapshotJobManager {
         this.eventLog = eventLog;
     }
 
+    /**
+     * @param checksumCache the cache of file checksums, whose entries for the
+     *                      files of a cancelled snapshot or restore are removed
+     */
+    @Autowired
+    public void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -459,6 +469,9 @@ public class SnapshotJobManagerImpl implements SnapshotJobManager {
         } else {
             boolean success = FileUtils.deleteQuietly(dir);
             log.info("deleted dir {}: success={}", path, success);
+            if (checksumCache != null) {
+                checksumCache.removeAll(dir);
+            }
         }
     }
 
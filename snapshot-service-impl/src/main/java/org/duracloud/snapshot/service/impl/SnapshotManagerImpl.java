@@ -73,6 +73,12 @@ public class SnapshotManagerImpl implements SnapshotManager {
                                                     SnapshotServiceConstants.MANIFEST_MD5_TXT_FILE_NAME,
                                                     SnapshotServiceConstants.MANIFEST_SHA256_TXT_FILE_NAME};
 
+    // statuses of snapshots whose content has been transferred to the bridge in full
+    private static final List<SnapshotStatus> TRANSFERRED_STATUSES =
+        Arrays.asList(SnapshotStatus.REPLICATING_TO_STORAGE,
+                      SnapshotStatus.CLEANING_UP,
+                      SnapshotStatus.SNAPSHOT_COMPLETE);
+
     private Map<String, Date> lastCleanupFailureNotificationBySnapshot = new HashMap<String, Date>();
 
     //by default 1 day
@@ -101,9 +107,20 @@ public class SnapshotManagerImpl implements SnapshotManager {
     @Autowired
     private EventLog eventLog;
 
+    @Autowired
+    private FileChecksumCache checksumCache;
+
     public SnapshotManagerImpl() {
     }
 
+    /**
+     * For testing purposes only
+     * @param checksumCache the checksumCache to set
+     */
+    protected void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /**
      * For testing purposes only
      * @param snapshotContentItemRepo the snapshotContentItemRepo to set
@@ -155,13 +172,14 @@ public class SnapshotManagerImpl implements SnapshotManager {
      * (non-Javadoc)
      *
      * @see org.duracloud.snapshot.service.SnapshotManager#addContentItem(
-     *  org.duracloud.snapshot.db.model.Snapshot, java.lang.String, java.util.Map)
+     *  org.duracloud.snapshot.db.model.Snapshot, java.lang.String, java.util.Map, java.lang.String)
      */
     @Override
     @Transactional
     public void addContentItem(Snapshot snapshot,
                                String contentId,
-                               Map<String, String> props)
+                               Map<String, String> props,
+                               String sha256)
         throws SnapshotException {
 
         String contentIdHash = createChecksumGenerator().generateChecksum(contentId);
@@ -176,12 +194,77 @@ public class SnapshotManagerImpl implements SnapshotManager {
             item.setContentIdHash(contentIdHash);
             String propString = PropertiesSerializer.serialize(props);
             item.setMetadata(propString);
+            item.setMd5(props.get(ContentStore.CONTENT_CHECKSUM));
+            item.setSha256(sha256);
             this.snapshotContentItemRepo.save(item);
         } catch (Exception ex) {
             throw new SnapshotException("failed to add content item: " + ex.getMessage(), ex);
         }
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.duracloud.snapshot.service.SnapshotManager#addContentItems(
+     * org.duracloud.snapshot.db.model.Snapshot, java.util.Map, java.util.Map)
+     */
+    @Override
+    @Transactional
+    public void addContentItems(Snapshot snapshot,
+                                Map<String, Map<String, String>> contentItems,
+                                Map<String, String> sha256Checksums)
+        throws SnapshotException {
+
+        ChecksumUtil checksumGenerator = createChecksumGenerator();
+        List<SnapshotContentItem> items = new ArrayList<>(contentItems.size());
+        for (Map.Entry<String, Map<String, String>> entry : contentItems.entrySet()) {
+            SnapshotContentItem item = new SnapshotContentItem();
+            item.setContentId(entry.getKey());
+            item.setSnapshot(snapshot);
+            item.setContentIdHash(checksumGenerator.generateChecksum(entry.getKey()));
+            item.setMetadata(PropertiesSerializer.serialize(entry.getValue()));
+            item.setMd5(entry.getValue().get(ContentStore.CONTENT_CHECKSUM));
+            item.setSha256(sha256Checksums.get(entry.getKey()));
+            items.add(item);
+        }
+
+        try {
+            this.snapshotContentItemRepo.insertIgnoringDuplicates(items);
+        } catch (Exception ex) {
+            throw new SnapshotException("failed to add " + items.size() + " content items: " +
+                                        ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Snapshot getPreviousSnapshot(Snapshot snapshot) {
+        DuracloudEndPointConfig source = snapshot.getSource();
+        Snapshot previous = null;
+        for (Snapshot candidate :
+            this.snapshotRepo.findBySourceHostAndSourceStoreId(source.getHost(), source.getStoreId())) {
+            if (candidate.getName().equals(snapshot.getName()) ||
+                !source.getSpaceId().equals(candidate.getSource().getSpaceId()) ||
+                !TRANSFERRED_STATUSES.contains(candidate.getStatus())) {
+                continue;
+            }
+
+            if (previous == null || candidate.getSnapshotDate().after(previous.getSnapshotDate())) {
+                previous = candidate;
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    @Transactional
+    public Map<String, String> getContentItemProperties(Snapshot snapshot, String contentId) {
+        String contentIdHash = createChecksumGenerator().generateChecksum(contentId);
+        SnapshotContentItem item =
+            this.snapshotContentItemRepo.findBySnapshotAndContentIdHash(snapshot, contentIdHash);
+        return item != null ? PropertiesSerializer.deserialize(item.getMetadata()) : null;
+    }
+
     @Override
     @Transactional
     public Snapshot addAlternateSnapshotIds(Snapshot snapshot, List<String> alternateIds)
@@ -247,6 +330,9 @@ public class SnapshotManagerImpl implements SnapshotManager {
             }
 
             FileUtils.deleteDirectory(snapshotDir);
+            if (checksumCache != null) {
+                checksumCache.removeAll(snapshotDir);
+            }
 
             String spaceId = source.getSpaceId();
             // Call DuraCloud to clean up snapshot
@@ -7,50 +7,102 @@
  */
 package org.duracloud.snapshot.service.impl;
 
-import org.duracloud.common.collection.StreamingIterator;
-import org.duracloud.common.collection.jpa.JpaIteratorSource;
+import java.util.Iterator;
+import java.util.List;
+
 import org.duracloud.snapshot.db.model.SnapshotContentItem;
 import org.duracloud.snapshot.db.repo.SnapshotContentItemRepo;
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 
 /**
+ * Reads the content id and MD5 checksum of each item in a snapshot, in id
+ * order. The items read do not carry their properties.
+ *
+ * Items are paged by id rather than by offset, so each page costs the same
+ * however far into the snapshot it is. The reader reads the range of ids
+ * given in the step execution context by {@link SnapshotRepoPartitioner},
+ * or the whole snapshot if there is none. The id of the last item read is
+ * saved with each commit, so a restarted step resumes after the last
+ * committed item.
+ *
  * @author Daniel Bernstein
  * Date: Jul 28, 2015
  */
-public class SnapshotRepoManifestReader extends StepExecutionSupport implements ItemReader<SnapshotContentItem> {
+public class SnapshotRepoManifestReader implements ItemStreamReader<SnapshotContentItem> {
+
+    public static final String LAST_ID_READ_KEY = "last.id.read";
+
+    private static final int PAGE_SIZE = 1000;
 
     private SnapshotContentItemRepo repo;
-    private StreamingIterator<SnapshotContentItem> items;
     private String snapshotName;
 
+    private long lastId;
+    private long maxId;
+    private Iterator<SnapshotContentItem> page;
+    private boolean lastPage;
+
     public SnapshotRepoManifestReader(SnapshotContentItemRepo repo, String snapshotName) {
         this.repo = repo;
         this.snapshotName = snapshotName;
     }
 
+    /* (non-Javadoc)
+     * @see org.springframework.batch.item.ItemStream#open(org.springframework.batch.item.ExecutionContext)
+     */
+    @Override
+    public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+        long afterId = executionContext.getLong(SnapshotRepoPartitioner.AFTER_ID_KEY, 0L);
+        this.maxId = executionContext.getLong(SnapshotRepoPartitioner.MAX_ID_KEY, Long.MAX_VALUE);
+        this.lastId = executionContext.getLong(LAST_ID_READ_KEY, afterId);
+        this.page = null;
+        this.lastPage = false;
+    }
+
     /* (non-Javadoc)
      * @see org.springframework.batch.item.ItemReader#read()
      */
     @Override
     public synchronized SnapshotContentItem read()
         throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
-
-        if (this.items == null) {
-            this.items =
-                new StreamingIterator<>(new JpaIteratorSource<SnapshotContentItemRepo, SnapshotContentItem>(repo) {
-                    @Override
-                    protected Page<SnapshotContentItem> getNextPage(Pageable pageable, SnapshotContentItemRepo repo) {
-                        return repo.findBySnapshotName(snapshotName, pageable);
-                    }
-                });
-            skipLinesAlreadyRead(this.items);
+        if (page == null || !page.hasNext()) {
+            if (lastPage) {
+                return null;
+            }
+            List<SnapshotContentItem> items =
+                repo.findChecksumsBySnapshotNameAfterId(snapshotName, lastId, maxId, new PageRequest(0, PAGE_SIZE));
+            lastPage = items.size() < PAGE_SIZE;
+            page = items.iterator();
+            if (!page.hasNext()) {
+                return null;
+            }
         }
-        return this.items.hasNext() ? this.items.next() : null;
+
+        SnapshotContentItem item = page.next();
+        lastId = item.getId();
+        return item;
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.batch.item.ItemStream#update(org.springframework.batch.item.ExecutionContext)
+     */
+    @Override
+    public synchronized void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(LAST_ID_READ_KEY, lastId);
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.batch.item.ItemStream#close()
+     */
+    @Override
+    public void close() throws ItemStreamException {
+        page = null;
     }
 
 }
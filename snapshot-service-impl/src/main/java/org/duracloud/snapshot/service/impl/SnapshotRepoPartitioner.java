@@ -0,0 +1,65 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.duracloud.snapshot.db.repo.SnapshotContentItemRepo;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * Divides the items of a snapshot into ranges of ids of roughly equal
+ * size, one for each partition, to be read by a
+ * {@link SnapshotRepoManifestReader}.
+ */
+public class SnapshotRepoPartitioner implements Partitioner {
+
+    public static final String AFTER_ID_KEY = "partition.after-id";
+    public static final String MAX_ID_KEY = "partition.max-id";
+
+    private SnapshotContentItemRepo repo;
+    private String snapshotName;
+
+    public SnapshotRepoPartitioner(SnapshotContentItemRepo repo, String snapshotName) {
+        this.repo = repo;
+        this.snapshotName = snapshotName;
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.batch.core.partition.support.Partitioner#partition(int)
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        Long minId = repo.findMinIdBySnapshotName(snapshotName);
+        Long maxId = repo.findMaxIdBySnapshotName(snapshotName);
+        if (minId == null || maxId == null) {
+            // an empty snapshot still has a partition so the step is recorded
+            partitions.put("partition0", createPartition(0, 0));
+            return partitions;
+        }
+
+        long rangeSize = (maxId - minId) / Math.max(1, gridSize) + 1;
+        int partition = 0;
+        for (long start = minId; start <= maxId; start += rangeSize) {
+            long end = Math.min(maxId, start + rangeSize - 1);
+            partitions.put("partition" + partition++, createPartition(start - 1, end));
+        }
+        return partitions;
+    }
+
+    private ExecutionContext createPartition(long afterId, long maxId) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(AFTER_ID_KEY, afterId);
+        context.putLong(MAX_ID_KEY, maxId);
+        return context;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.duracloud.chunk.util.ChunkUtil;
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.retrieval.mgmt.OutputWriter;
+import org.duracloud.retrieval.mgmt.RetrievalListener;
+import org.duracloud.retrieval.mgmt.RetrievalWorker;
+import org.duracloud.retrieval.source.ContentStream;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.duracloud.stitch.error.MissingContentException;
+
+/**
+ * The retrieval worker used when writing snapshot content to bridge storage.
+ * When a parallel chunk retriever is provided, chunked content items are
+ * retrieved by pulling their chunks concurrently rather than as a single
+ * stitched stream.
+ *
+ * The MD5 and SHA-256 checksums of each retrieved file are computed while the
+ * content is written to disk (or, for chunks written out of order, in a
+ * single pass over the completed file), so the file does not need to be read
+ * again to verify the MD5 or to produce the SHA-256 manifest entry.
+ */
+public class SnapshotRetrievalWorker extends RetrievalWorker {
+
+    private ContentItem contentItem;
+    private RetrievalSource source;
+    private ParallelChunkRetriever chunkRetriever;
+    private ChunkUtil chunkUtil = new ChunkUtil();
+    private String sha256Checksum;
+    private BandwidthLimiter bandwidthLimiter;
+    private String jobId;
+    private String host;
+
+    /**
+     * @param contentItem     the item to retrieve
+     * @param source          the retrieval source
+     * @param contentDir      the directory into which content is retrieved
+     * @param outputWriter    the output writer
+     * @param chunkRetriever  the chunk retriever to use for chunked items or
+     *                        null to retrieve chunked items sequentially
+     */
+    public SnapshotRetrievalWorker(ContentItem contentItem,
+                                   RetrievalSource source,
+                                   File contentDir,
+                                   OutputWriter outputWriter,
+                                   ParallelChunkRetriever chunkRetriever) {
+        super(contentItem, source, contentDir, true, outputWriter, false, true);
+        this.contentItem = contentItem;
+        this.source = source;
+        this.chunkRetriever = chunkRetriever;
+    }
+
+    /**
+     * Limits the bandwidth used to retrieve content which is not chunked.
+     *
+     * @param bandwidthLimiter the limiter shared by all transfers
+     * @param jobId            the name of the snapshot
+     * @param host             the DuraCloud host content is retrieved from
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter, String jobId, String host) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.jobId = jobId;
+        this.host = host;
+    }
+
+    /**
+     * @return the SHA-256 checksum of the local file as computed during the
+     * most recent retrieval, or null if the file was not retrieved (for
+     * instance because a matching local copy already existed)
+     */
+    public String getSha256Checksum() {
+        return sha256Checksum;
+    }
+
+    @Override
+    protected Map<String, String> retrieveToFile(File localFile, RetrievalListener listener)
+        throws IOException {
+        sha256Checksum = null;
+        if (chunkRetriever != null && chunkUtil.isChunkManifest(contentItem.getContentId())) {
+            return retrieveChunksToFile(localFile, listener);
+        }
+
+        ContentStream contentStream = getContentStream(listener);
+        MessageDigest md5 = getDigest(Algorithm.MD5);
+        MessageDigest sha256 = getDigest(Algorithm.SHA_256);
+        try (InputStream is = throttle(contentStream.getStream());
+             OutputStream os = new DigestOutputStream(
+                 new DigestOutputStream(new FileOutputStream(localFile), md5), sha256)) {
+            IOUtils.copy(is, os);
+        } catch (IOException ex) {
+            deleteFile(localFile);
+            throw ex;
+        }
+
+        verifyChecksum(localFile, ChecksumUtil.checksumBytesToString(md5.digest()),
+                       contentStream.getChecksum());
+        sha256Checksum = ChecksumUtil.checksumBytesToString(sha256.digest());
+
+        applyTimestamps(contentStream, localFile);
+        return contentStream.getProperties();
+    }
+
+    private InputStream throttle(InputStream stream) {
+        if (bandwidthLimiter == null) {
+            return stream;
+        }
+        return new ThrottledInputStream(stream, bandwidthLimiter, jobId, host);
+    }
+
+    /*
+     * Chunks arrive out of order, so both checksums are computed together in
+     * one pass over the file once all chunks have been written.
+     */
+    private Map<String, String> retrieveChunksToFile(File localFile, RetrievalListener listener)
+        throws IOException {
+        Map<String, String> props;
+        try {
+            props = chunkRetriever.retrieve(contentItem, localFile, listener);
+        } catch (IOException ex) {
+            deleteFile(localFile);
+            throw ex;
+        }
+
+        MessageDigest md5 = getDigest(Algorithm.MD5);
+        MessageDigest sha256 = getDigest(Algorithm.SHA_256);
+        try (InputStream is = new FileInputStream(localFile);
+             OutputStream os = new DigestOutputStream(
+                 new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, md5), sha256)) {
+            IOUtils.copy(is, os);
+        }
+
+        verifyChecksum(localFile, ChecksumUtil.checksumBytesToString(md5.digest()),
+                       props.get(ContentStore.CONTENT_CHECKSUM));
+        sha256Checksum = ChecksumUtil.checksumBytesToString(sha256.digest());
+
+        applyTimestamps(new ContentStream(null, props), localFile);
+        return props;
+    }
+
+    private ContentStream getContentStream(RetrievalListener listener) throws IOException {
+        try {
+            return new Retrier(5, 4000, 3).execute(() -> {
+                return source.getSourceContent(contentItem, listener);
+            });
+        } catch (MissingContentException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void verifyChecksum(File localFile, String md5, String expectedChecksum)
+        throws IOException {
+        if (null == expectedChecksum || "".equals(expectedChecksum)) {
+            expectedChecksum = source.getSourceChecksum(contentItem);
+        }
+
+        if (!md5.equals(expectedChecksum)) {
+            deleteFile(localFile);
+            throw new IOException("Calculated checksum value for retrieved file " +
+                                  "does not match properties checksum.");
+        }
+    }
+
+    private MessageDigest getDigest(Algorithm algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
@@ -8,23 +8,17 @@
 package org.duracloud.snapshot.service.impl;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.ParseException;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Function;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.duracloud.chunk.util.ChunkUtil;
 import org.duracloud.client.ContentStore;
@@ -36,13 +30,11 @@ import org.duracloud.common.retry.Retrier;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.retrieval.mgmt.OutputWriter;
 import org.duracloud.retrieval.mgmt.RetrievalListener;
-import org.duracloud.retrieval.mgmt.RetrievalWorker;
 import org.duracloud.retrieval.source.RetrievalSource;
+import org.duracloud.snapshot.SnapshotException;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.BridgeConfiguration;
 import org.duracloud.snapshot.service.SnapshotManager;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.BatchStatus;
@@ -65,27 +57,29 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
     private static final Logger log =
         LoggerFactory.getLogger(SpaceItemWriter.class);
 
+    public static final String ITEMS_REUSED_KEY = "incremental.items-reused";
+
     private RetrievalSource retrievalSource;
     private File contentDir;
     private OutputWriter outputWriter;
-    private BufferedWriter propsWriter;
-    private BufferedWriter md5Writer;
-    private BufferedWriter sha256Writer;
+    private volatile ManifestOutputStage manifestOutput;
     private ContentItem snapshotPropsContentItem;
     private SnapshotManager snapshotManager;
     private Snapshot snapshot;
     private List<String> errors = new LinkedList<String>();
     private SpaceManifestSnapshotManifestVerifier spaceManifestSnapshotManifestVerifier;
     private ChunkUtil chunkUtil = new ChunkUtil();
-    private Map<String, String> md5Cache = new HashMap<>();
-    private Map<String, String> sha256Cache = new HashMap<>();
-    private Map<String, String> propsCache = new HashMap<>();
+    private TransferCache transferCache;
     private File md5ManifestFile;
     private File sha256ManifestFile;
     private File propsFile;
-    private DB db;
-    private File dbFile;
     private int totalChecksumsPerformed = 0;
+    private ParallelChunkRetriever chunkRetriever;
+    private SnapshotContentItemSink contentItemSink;
+    private AdaptiveConcurrencyController concurrencyController;
+    private BandwidthLimiter bandwidthLimiter;
+    private SnapshotContentReuser contentReuser;
+    private FileChecksumCache checksumCache;
 
     /**
      * @param snapshot
@@ -116,29 +110,84 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
         this.sha256ManifestFile = sha256ManifestFile;
         this.snapshotManager = snapshotManager;
         this.spaceManifestSnapshotManifestVerifier = spaceManifestSnapshotManifestVerifier;
-        this.dbFile = new File(contentDir, snapshot.getName() + ".db");
+        this.transferCache = new TransferCache(new File(contentDir, snapshot.getName() + ".db"),
+                                               BridgeConfiguration.getBridgeTransferCacheCommitSize(),
+                                               BridgeConfiguration.getBridgeTransferCacheCommitInterval());
+        this.transferCache.setBeforeCommit(this::checkpointManifestOutput);
         this.propsFile = propsFile;
     }
 
-    private DB makeDatabase() {
-        return DBMaker.fileDB(this.dbFile).transactionEnable().closeOnJvmShutdown().make();
+    /**
+     * Enables parallel retrieval of the chunks of chunked content items.
+     *
+     * @param chunkRetriever used to pull the chunks of a single item concurrently
+     */
+    public void setChunkRetriever(ParallelChunkRetriever chunkRetriever) {
+        this.chunkRetriever = chunkRetriever;
+    }
+
+    /**
+     * Enables batched writes of content items to the snapshot repository.
+     *
+     * @param contentItemSink collects content items and writes them in batches
+     */
+    public void setContentItemSink(SnapshotContentItemSink contentItemSink) {
+        this.contentItemSink = contentItemSink;
+    }
+
+    /**
+     * @param concurrencyController notified of the bytes retrieved by each item
+     */
+    public void setConcurrencyController(AdaptiveConcurrencyController concurrencyController) {
+        this.concurrencyController = concurrencyController;
+    }
+
+    /**
+     * @param bandwidthLimiter limits the bandwidth used to retrieve content
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * Enables incremental snapshots: unchanged items are reused from the
+     * previous snapshot rather than retrieved.
+     *
+     * @param contentReuser links unchanged items from the previous snapshot
+     */
+    public void setContentReuser(SnapshotContentReuser contentReuser) {
+        this.contentReuser = contentReuser;
+    }
+
+    /**
+     * @param checksumCache records the checksums of retrieved files so that
+     *                      they need not be read again to be checksummed
+     */
+    public void setChecksumCache(FileChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
     }
 
     protected void closeDatabase() {
-        if (this.db != null) {
-            this.db.close();
-        }
+        this.transferCache.close();
     }
 
-    protected void deleteDatabase() {
-        closeDatabase();
-        this.dbFile.delete();
+    /*
+     * The manifests are the fallback from which the transfer cache is rebuilt,
+     * so they are synced before each commit of the cache records the items
+     * they hold as transferred.
+     */
+    private void checkpointManifestOutput() {
+        if (manifestOutput != null) {
+            try {
+                manifestOutput.checkpoint();
+            } catch (IOException ex) {
+                log.warn("Failed to checkpoint manifest output: {}", ex.getMessage());
+            }
+        }
     }
 
-    private BufferedWriter createWriter(File file) throws IOException {
-        BufferedWriter writer =
-            Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
-        return writer;
+    protected void deleteDatabase() {
+        this.transferCache.delete();
     }
 
     @Override
@@ -164,41 +213,61 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
 
     protected void retrieveFile(ContentItem contentItem, File directory)
         throws IOException {
-        retrieveFile(contentItem, directory, true, false);
-    }
-
-    private void cacheValue(Map<String, String> cache, String key, String value) {
-        cache.put(key, value);
-        db.commit();
+        retrieveFile(contentItem, directory, true);
     }
 
     protected void retrieveFile(ContentItem contentItem, File directory,
-                                boolean writeChecksums, boolean lastItem)
+                                boolean writeChecksums)
         throws IOException {
 
         String contentId = chunkUtil.preChunkedContentId(contentItem.getContentId());
 
         //retrieve cached data
-        String md5Checksum = md5Cache.get(contentId);
-        String sha256 = sha256Cache.get(contentId);
+        String md5Checksum = transferCache.getMd5(contentId);
+        String sha256 = transferCache.getSha256(contentId);
 
         Map<String, String> props = null;
 
-        RetrievalWorker retrievalWorker =
-            new RetrievalWorker(contentItem, retrievalSource, directory,
-                                true, outputWriter, false, true);
+        SnapshotRetrievalWorker retrievalWorker =
+            new SnapshotRetrievalWorker(contentItem, retrievalSource, directory,
+                                        outputWriter, chunkRetriever);
+        if (bandwidthLimiter != null) {
+            retrievalWorker.setBandwidthLimiter(bandwidthLimiter, snapshot.getName(),
+                                                snapshot.getSource().getHost());
+        }
 
         File localFile = retrievalWorker.getLocalFile();
 
+        if (md5Checksum == null && contentReuser != null) {
+            Map<String, String> sourceProps = retrievalSource.getSourceProperties(contentItem);
+            if (contentReuser.reuse(contentId, localFile, sourceProps)) {
+                props = sourceProps;
+                transferCache.putProps(contentId, PropertiesSerializer.serialize(props));
+                md5Checksum = props.get(ContentStore.CONTENT_CHECKSUM);
+                transferCache.putMd5(contentId, md5Checksum);
+
+                String previousSha256 = contentReuser.getSha256(contentId);
+                if (sha256 == null && previousSha256 != null) {
+                    sha256 = previousSha256;
+                    transferCache.putSha256(contentId, sha256);
+                }
+
+                log.info("Reused unchanged item {} from snapshot {} with MD5 checksum {}",
+                         contentId, contentReuser.getPreviousSnapshot().getName(), md5Checksum);
+            }
+        }
+
         if (md5Checksum == null) { // File is not in MD5 cache
             StopWatch sw = new StopWatch();
             sw.start();
 
+            // chunks may be retrieved on other threads, so key progress by the writer thread
+            final String writerThreadName = Thread.currentThread().getName();
             props = retrievalWorker.retrieveFile(new RetrievalListener() {
                 @Override
                 public void chunkRetrieved(String chunk) {
                     getStepExecution().getExecutionContext().put("last-chunk-retrieved-" +
-                                                                 Thread.currentThread().getName(),
+                                                                 writerThreadName,
                                                                  chunk);
                 }
             });
@@ -210,6 +279,9 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                                       sw.getTime() / 1000 + " seconds");
             }
 
+            // the checksums below were taken of the file as it was written
+            String localIdentity = checksumCache != null ? checksumCache.identify(localFile) : null;
+
             log.info("Finished retrieving content: contentId={}, " +
                      " fileSize={}, file path={}, elapsedTimeMs={}, transferRateMbps={}",
                      contentId,
@@ -218,31 +290,46 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                      sw.getTime(),
                      (localFile.length() * 0.008) / sw.getTime());
 
+            if (concurrencyController != null) {
+                concurrencyController.addBytesTransferred(localFile.length());
+            }
+
             // cache props
-            cacheValue(propsCache, contentId, PropertiesSerializer.serialize(props));
+            transferCache.putProps(contentId, PropertiesSerializer.serialize(props));
 
             // cache md5
             md5Checksum = props.get(ContentStore.CONTENT_CHECKSUM);
-            cacheValue(md5Cache, contentId, md5Checksum);
+            transferCache.putMd5(contentId, md5Checksum);
+
+            // cache the sha256 computed while the content was written to disk
+            if (sha256 == null && retrievalWorker.getSha256Checksum() != null) {
+                sha256 = retrievalWorker.getSha256Checksum();
+                transferCache.putSha256(contentId, sha256);
+            }
+
+            if (checksumCache != null) {
+                checksumCache.put(localFile, localIdentity, ChecksumUtil.Algorithm.MD5, md5Checksum);
+                checksumCache.put(localFile, localIdentity, ChecksumUtil.Algorithm.SHA_256, sha256);
+            }
 
             log.info("Retrieved item {} from space {} with MD5 checksum {}",
                      contentItem.getContentId(),
                      contentItem.getSpaceId(),
                      md5Checksum);
-        } else {
+        } else if (props == null) {
             log.info("MD5 for contentId {} is already cached." +
                      " No need to download and reverify.",
                      contentId);
 
             // Get the props from cache, otherwise retrieve them.
-            String propsStr = propsCache.get(contentId);
+            String propsStr = transferCache.getProps(contentId);
             if (propsStr != null) {
                 props = PropertiesSerializer.deserialize(propsStr);
                 log.info("Props found in cache for {}.", contentId);
             } else {
                 log.info("Props not found in cache for {}.", contentId);
                 props = retrievalSource.getSourceProperties(contentItem);
-                cacheValue(propsCache, contentId, PropertiesSerializer.serialize(props));
+                transferCache.putProps(contentId, PropertiesSerializer.serialize(props));
                 log.info("Retrieved and cached props for {}.", contentId);
             }
         }
@@ -251,6 +338,12 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
             try {
                 if (writeChecksums) {
                     writeMD5Checksum(contentId, md5Checksum);
+                    if (sha256 == null && checksumCache != null) {
+                        sha256 = checksumCache.get(localFile, ChecksumUtil.Algorithm.SHA_256);
+                        if (sha256 != null) {
+                            transferCache.putSha256(contentId, sha256);
+                        }
+                    }
                     if (sha256 == null) {
                         ChecksumUtil sha256ChecksumUtil =
                             new ChecksumUtil(ChecksumUtil.Algorithm.SHA_256);
@@ -260,6 +353,7 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                                  contentId,
                                  localFile.getAbsolutePath());
 
+                        String localIdentity = checksumCache != null ? checksumCache.identify(localFile) : null;
                         sw.start();
                         sha256 = sha256ChecksumUtil.generateChecksum(localFile);
                         totalChecksumsPerformed++;
@@ -273,7 +367,10 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                                  sw.getTime());
 
                         //cache the result
-                        cacheValue(sha256Cache, contentId, sha256);
+                        transferCache.putSha256(contentId, sha256);
+                        if (checksumCache != null) {
+                            checksumCache.put(localFile, localIdentity, ChecksumUtil.Algorithm.SHA_256, sha256);
+                        }
                     } else {
                         log.info("SHA-256 checksum for contentId {} is already cached, " +
                                  "no need to recompute", contentId);
@@ -282,8 +379,8 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                     writeSHA256Checksum(contentId, sha256);
                 }
 
-                writeToSnapshotManager(contentId, props);
-                writeContentProperties(contentId, props, lastItem);
+                writeToSnapshotManager(contentId, props, sha256);
+                writeContentProperties(contentId, props);
             } catch (IOException ioe) {
                 log.error("Error writing snapshot details: " + ioe.getMessage());
                 throw ioe;
@@ -313,14 +410,27 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
     /**
      * @param contentId
      * @param props
+     * @param sha256 the SHA-256 checksum of the content, may be null
      */
     private void writeToSnapshotManager(final String contentId,
-                                        final Map<String, String> props) throws IOException {
+                                        final Map<String, String> props,
+                                        final String sha256) throws IOException {
+        if (contentItemSink != null) {
+            try {
+                contentItemSink.add(contentId, props, sha256);
+            } catch (SnapshotException e) {
+                log.error("Failed to add snapshot content items to snapshot " + snapshot +
+                          ": " + e.getMessage(), e);
+                throw new IOException(e);
+            }
+            return;
+        }
+
         try {
             new Retrier().execute(new Retriable() {
                 @Override
                 public Object retry() throws Exception {
-                    snapshotManager.addContentItem(snapshot, contentId, props);
+                    snapshotManager.addContentItem(snapshot, contentId, props, sha256);
                     return null;
                 }
 
@@ -334,52 +444,24 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
 
     protected void writeMD5Checksum(String contentId,
                                     String md5Checksum) throws IOException {
-        synchronized (md5Writer) {
-            ManifestFileHelper.writeManifestEntry(md5Writer, contentId, md5Checksum);
-        }
+        manifestOutput.addMd5(contentId, md5Checksum);
     }
 
     protected void writeSHA256Checksum(String contentId,
                                        String sha256Checksum) throws IOException {
-
-        synchronized (sha256Writer) {
-            ManifestFileHelper.writeManifestEntry(sha256Writer, contentId, sha256Checksum);
-        }
+        manifestOutput.addSha256(contentId, sha256Checksum);
     }
 
     protected void writeContentProperties(String contentId,
-                                          Map<String, String> props,
-                                          boolean lastItem)
+                                          Map<String, String> props)
         throws IOException {
-        Set<String> propKeys = props.keySet();
-        StringBuffer sb = new StringBuffer(100);
-        sb.append("{\n  \"" + contentId + "\": {\n");
-        for (String propKey : propKeys) {
-            String propValue = props.get(propKey);
-            // Escape special characters
-            propValue = propValue.replace("\\", "\\\\");
-            propValue = propValue.replace("\"", "\\\"");
-
-            sb.append("    \"" + propKey + "\": \"" + propValue + "\",\n");
-        }
-        sb.deleteCharAt(sb.length() - 2); // delete comma after last key/value pair
-
-        sb.append("  }\n}");
-        if (!lastItem) {
-            sb.append(",");
-        }
-        sb.append("\n");
-
-        synchronized (propsWriter) {
-            propsWriter.write(sb.toString());
-            propsWriter.flush();
-        }
+        manifestOutput.addProperties(contentId, props);
     }
 
     protected void retrieveSnapshotProperties() {
         if (snapshotPropsContentItem != null) {
             try {
-                retrieveFile(snapshotPropsContentItem, contentDir, false, true);
+                retrieveFile(snapshotPropsContentItem, contentDir, false);
                 log.info("Snapshot properties retrieved");
             } catch (IOException ioe) {
                 log.error("Error retrieving the snapshot properties file: " +
@@ -397,12 +479,12 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
     public ExitStatus afterStep(StepExecution stepExecution) {
         ExitStatus status = super.afterStep(stepExecution);
         log.info("Step complete with status: {}", stepExecution.getExitStatus());
-        close("md5 writer", md5Writer);
-        close("sh256 writer", sha256Writer);
         close("output writer", outputWriter);
 
         retrieveSnapshotProperties();
-        closePropsWriter();
+        closeManifestOutput();
+        closeContentItemSink();
+        closeContentReuser(stepExecution);
 
         if (errors.size() == 0) {
             log.info("No errors in retrieval of snapshot {}; " +
@@ -425,20 +507,36 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
         return status;
     }
 
-    private void closePropsWriter() {
+    private void closeManifestOutput() {
         try {
-            synchronized (propsWriter) {
-                propsWriter.write("]\n");
-                propsWriter.flush();
-            }
-
-            log.debug("Closed props writer");
+            manifestOutput.close();
+            log.debug("Closed manifest output");
         } catch (IOException ioe) {
-            String message = "Error writing end of content property manifest: " + ioe.getMessage();
+            String message = "Error writing manifests and content properties: " + ioe.getMessage();
             errors.add(message);
             log.error(message, ioe);
-        } finally {
-            IOUtils.closeQuietly(propsWriter);
+        }
+    }
+
+    private void closeContentItemSink() {
+        if (contentItemSink != null) {
+            try {
+                contentItemSink.close();
+            } catch (SnapshotException ex) {
+                String message = "Error adding content items to snapshot: " + ex.getMessage();
+                errors.add(message);
+                log.error(message, ex);
+            }
+        }
+    }
+
+    private void closeContentReuser(StepExecution stepExecution) {
+        if (contentReuser != null) {
+            log.info("Reused {} unchanged items ({} bytes) from snapshot {}",
+                     contentReuser.getItemsReused(), contentReuser.getBytesReused(),
+                     contentReuser.getPreviousSnapshot().getName());
+            stepExecution.getExecutionContext().putLong(ITEMS_REUSED_KEY, contentReuser.getItemsReused());
+            contentReuser.close();
         }
     }
 
@@ -461,12 +559,10 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
         }
     }
 
-    private void loadCacheFromFile(Map<String, String> cache,
+    private void loadCacheFromFile(String field,
                                    File file,
                                    Function<String, Boolean> isValidChecksum) throws IOException {
-        //if the cache is empty check if there is are md5 and sha256 manifests
-        //that can be used to prepopulate the cache.
-        if (cache.isEmpty() && file.exists()) {
+        if (file.exists()) {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)))) {
                 String line = null;
                 while ((line = reader.readLine()) != null) {
@@ -475,7 +571,7 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
                         String contentId = entry.getContentId();
                         String checksum = entry.getChecksum();
                         if (isValidChecksum.apply(checksum)) {
-                            cacheValue(cache, contentId, checksum);
+                            transferCache.load(contentId, field, checksum);
                         } else {
                             log.info("Checksum {} in manifest file {} was not a valid checksum: skipping.",
                                      checksum, file.getAbsolutePath());
@@ -494,39 +590,41 @@ public class SpaceItemWriter extends StepExecutionSupport implements ItemWriter<
         super.beforeStep(stepExecution);
         log.info("Starting step {}", stepExecution);
         try {
-            this.db = makeDatabase();
-
-            md5Cache = db.treeMap("md5Cache", Serializer.STRING, Serializer.STRING)
-                         .createOrOpen();
-            sha256Cache = db.treeMap("sha256Cache", Serializer.STRING, Serializer.STRING)
-                            .createOrOpen();
-            propsCache = db.treeMap("propsCache", Serializer.STRING, Serializer.STRING)
-                           .createOrOpen();
-
-            //load caches from files left from previously unsuccessful run.
-            loadCacheFromFile(
-                this.md5Cache,
-                this.md5ManifestFile,
-                x -> x != null && x.matches("[a-fA-F0-9]{32}"));
-            loadCacheFromFile(
-                this.sha256Cache,
-                this.sha256ManifestFile,
-                x -> x != null && x.matches("[a-fA-F0-9]{64}"));
-
-            //initialize writers after loading cache from files.
-            try {
-                this.propsWriter = createWriter(propsFile);
-                this.md5Writer = createWriter(this.md5ManifestFile);
-                this.sha256Writer = createWriter(this.sha256ManifestFile);
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
+            this.transferCache.open();
+
+            //if the cache is empty, load it from the md5 and sha256 manifests
+            //left from a previously unsuccessful run.
+            if (this.transferCache.isEmpty()) {
+                loadCacheFromFile(
+                    TransferCache.MD5,
+                    this.md5ManifestFile,
+                    x -> x != null && x.matches("[a-fA-F0-9]{32}"));
+                loadCacheFromFile(
+                    TransferCache.SHA256,
+                    this.sha256ManifestFile,
+                    x -> x != null && x.matches("[a-fA-F0-9]{64}"));
+                this.transferCache.commit();
             }
 
+            //initialize writers after loading cache from files.
             errors.clear();
-            synchronized (propsWriter) {
-                propsWriter.write("[\n");
-                propsWriter.flush();
+            if (contentReuser != null) {
+                try {
+                    contentReuser.open();
+                } catch (IOException ex) {
+                    log.warn("Unable to load the previous snapshot's manifest, " +
+                             "all items will be retrieved: " + ex.getMessage(), ex);
+                    contentReuser.close();
+                    contentReuser = null;
+                }
             }
+            this.manifestOutput =
+                new ManifestOutputStage(propsFile,
+                                        md5ManifestFile,
+                                        sha256ManifestFile,
+                                        BridgeConfiguration.getBridgeManifestFlushSize(),
+                                        BridgeConfiguration.getBridgeManifestFlushInterval());
+            this.manifestOutput.open();
         } catch (IOException ioe) {
             log.error("Error writing start of content property " +
                       "manifest: ", ioe);
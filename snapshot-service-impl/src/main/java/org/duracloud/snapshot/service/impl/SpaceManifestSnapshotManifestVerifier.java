@@ -9,13 +9,26 @@ package org.duracloud.snapshot.service.impl;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-import org.duracloud.common.collection.WriteOnlyStringSet;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.client.ContentStore;
 import org.duracloud.common.constant.Constants;
 import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.domain.Content;
+import org.duracloud.error.NotFoundException;
 import org.duracloud.manifest.ManifestFormatter;
 import org.duracloud.manifest.impl.TsvManifestFormatter;
 import org.duracloud.manifeststitch.StitchedManifestGenerator;
@@ -30,6 +43,17 @@ import org.slf4j.LoggerFactory;
  * be in the space, the stitched, rather than the unstitched, view of the space
  * is used for comparison.
  *
+ * By default the snapshot manifest is held in memory while the space manifest
+ * is streamed. When a sort directory is set, both manifests are instead sorted
+ * on disk and merge-joined, so memory use does not grow with the size of the
+ * space and each difference is reported as a missing, extra or mismatched
+ * item.
+ *
+ * When rechecking is enabled, the entries which did not match are remembered.
+ * Calling verify() again (as a retry does) then only rechecks those entries
+ * by looking up their current checksums in DuraCloud. The space manifest is
+ * regenerated only when more entries than the recheck threshold differ.
+ *
  * @author Daniel Bernstien
  */
 public class SpaceManifestSnapshotManifestVerifier {
@@ -40,6 +64,15 @@ public class SpaceManifestSnapshotManifestVerifier {
     private StitchedManifestGenerator generator;
     private String spaceId;
     private List<String> errors;
+    private File sortDir;
+    private int sortBufferSize;
+
+    private ContentStore contentStore;
+    private int recheckThreshold;
+    // when the space manifest the differences were found in was generated
+    private Date manifestDate;
+    // content id -> checksum in the snapshot manifest (null if not in the snapshot)
+    private Map<String, String> differences;
 
     public SpaceManifestSnapshotManifestVerifier(File md5Manifest,
                                                  StitchedManifestGenerator generator,
@@ -53,6 +86,37 @@ public class SpaceManifestSnapshotManifestVerifier {
         return this.spaceId;
     }
 
+    /**
+     * Verifies by sorting both manifests on disk and merge-joining them.
+     *
+     * @param sortDir        the directory in which sorted runs are spilled
+     * @param sortBufferSize the number of entries sorted in memory at a time
+     */
+    public void setSortedVerification(File sortDir, int sortBufferSize) {
+        this.sortDir = sortDir;
+        this.sortBufferSize = sortBufferSize;
+    }
+
+    /**
+     * Rechecks only the differing entries on later calls to verify().
+     *
+     * @param contentStore     the store holding the space, used to recheck entries
+     * @param recheckThreshold the largest number of differing entries which are
+     *                         rechecked rather than regenerating the space manifest
+     */
+    public void setRecheckDifferences(ContentStore contentStore, int recheckThreshold) {
+        this.contentStore = contentStore;
+        this.recheckThreshold = recheckThreshold;
+    }
+
+    /**
+     * @return when the space manifest holding the differences to recheck was
+     * generated, or null if there are none
+     */
+    public Date getManifestDate() {
+        return manifestDate;
+    }
+
     /**
      * Performs the verification.
      *
@@ -62,9 +126,124 @@ public class SpaceManifestSnapshotManifestVerifier {
     public boolean verify() {
 
         this.errors = new LinkedList<>();
-        try (BufferedReader reader =
-                 new BufferedReader(new InputStreamReader(generator.generate(spaceId, ManifestFormat.TSV)))) {
-            WriteOnlyStringSet snapshotManifest = ManifestFileHelper.loadManifestSetFromFile(this.md5Manifest);
+        if (differences != null && !differences.isEmpty()) {
+            recheckDifferences();
+        } else {
+            this.differences = contentStore != null ? new HashMap<>() : null;
+            if (sortDir != null) {
+                verifySorted();
+            } else {
+                verifyInMemory();
+            }
+        }
+
+        log.info("verification complete. error count = {}", errors.size());
+        boolean result = getResult(errors);
+        // nothing left to recheck, so the next attempt regenerates the space manifest
+        if (differences == null || differences.isEmpty()) {
+            differences = null;
+            manifestDate = null;
+        }
+        return result;
+    }
+
+    private InputStream openSpaceManifest() throws IOException {
+        manifestDate = new Date();
+        return generator.generate(spaceId, ManifestFormat.TSV);
+    }
+
+    /*
+     * Remembers an entry to recheck on the next attempt. Once more entries
+     * differ than the threshold allows, the next attempt regenerates the
+     * space manifest instead.
+     */
+    private void addDifference(String contentId, String snapshotChecksum) {
+        if (differences != null) {
+            differences.put(contentId, snapshotChecksum);
+            if (differences.size() > recheckThreshold) {
+                differences = null;
+            }
+        }
+    }
+
+    /*
+     * Looks up the current checksum of each differing entry, keeping only the
+     * entries which still differ from the snapshot manifest.
+     */
+    private void recheckDifferences() {
+        log.info("rechecking {} entries which differed in the space manifest of {} generated at {}",
+                 differences.size(), spaceId, manifestDate);
+        try {
+            Iterator<Map.Entry<String, String>> entries = differences.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+                String contentId = entry.getKey();
+                String snapshotChecksum = entry.getValue();
+                String spaceChecksum = getSpaceChecksum(contentId);
+                if (Objects.equals(snapshotChecksum, spaceChecksum)) {
+                    entries.remove();
+                } else if (spaceChecksum == null) {
+                    errors.add("Space manifest is missing content id/checksum combination ("
+                               + contentId + ", " + snapshotChecksum + ")");
+                } else if (snapshotChecksum == null) {
+                    errors.add("Snapshot manifest does not contain content id/checksum combination ("
+                               + contentId + ", " + spaceChecksum + ")");
+                } else {
+                    errors.add("Checksum mismatch for content id " + contentId
+                               + ": snapshot manifest (" + snapshotChecksum
+                               + "), space manifest (" + spaceChecksum + ")");
+                }
+            }
+        } catch (Exception e) {
+            differences = null;
+            String message = "Failed to recheck space manifest entries against snapshot manifest:" + e.getMessage();
+            errors.add(message);
+            log.error(message, e);
+        }
+    }
+
+    /*
+     * @return the checksum of the content item as stored in the space, using
+     * the chunk manifest for chunked items, or null if it does not exist
+     */
+    private String getSpaceChecksum(String contentId) throws Exception {
+        try {
+            return contentStore.getContentProperties(spaceId, contentId).get(ContentStore.CONTENT_CHECKSUM);
+        } catch (NotFoundException ex) {
+            try {
+                Content content = contentStore.getContent(spaceId, contentId + ChunksManifest.manifestSuffix);
+                try (InputStream stream = content.getStream()) {
+                    return ManifestDocumentBinding.createManifestFrom(stream).getHeader().getSourceMD5();
+                }
+            } catch (NotFoundException notChunked) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * Finds the snapshot checksums of the differing entries. Entries which
+     * are not in the snapshot manifest cannot be rechecked, as this engine
+     * does not identify the snapshot entries missing from the space.
+     */
+    private void resolveSnapshotChecksums() throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(md5Manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                if (differences.containsKey(entry.getContentId())) {
+                    differences.put(entry.getContentId(), entry.getChecksum());
+                }
+            }
+        }
+        if (differences.containsValue(null)) {
+            differences = null;
+        }
+    }
+
+    private void verifyInMemory() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(openSpaceManifest()))) {
+            ManifestFingerprintSet snapshotManifest = ManifestFileHelper.loadManifestSetFromFile(this.md5Manifest);
             log.info("loaded manifest set into memory.");
 
             ManifestFormatter formatter = new TsvManifestFormatter();
@@ -79,11 +258,11 @@ public class SpaceManifestSnapshotManifestVerifier {
                 ManifestItem item = formatter.parseLine(line);
                 String contentId = item.getContentId();
                 if (!contentId.equals(Constants.SNAPSHOT_PROPS_FILENAME)) {
-                    if (!snapshotManifest.contains(
-                        ManifestFileHelper.formatManifestSetString(contentId, item.getContentChecksum()))) {
+                    if (!snapshotManifest.contains(contentId, item.getContentChecksum())) {
                         String message = "Snapshot manifest does not contain content id/checksum combination ("
                                          + contentId + ", " + item.getContentChecksum();
                         errors.add(message);
+                        addDifference(contentId, null);
                     }
                     stitchedManifestCount++;
                 }
@@ -95,16 +274,111 @@ public class SpaceManifestSnapshotManifestVerifier {
                                  ") does not equal DuraCloud Manifest (" + stitchedManifestCount + ")";
                 errors.add(message);
                 log.error(message);
+                differences = null;
             }
 
+            if (differences != null && !differences.isEmpty()) {
+                resolveSnapshotChecksums();
+            }
         } catch (Exception e) {
+            differences = null;
             String message = "Failed to verify space manifest against snapshot manifest:" + e.getMessage();
             errors.add(message);
             log.error(message, e);
         }
+    }
 
-        log.info("verification complete. error count = {}", errors.size());
-        return getResult(errors);
+    private void verifySorted() {
+        try (ExternalManifestSorter snapshotSorter = new ExternalManifestSorter(sortDir, sortBufferSize);
+             ExternalManifestSorter spaceSorter = new ExternalManifestSorter(sortDir, sortBufferSize)) {
+            try (BufferedReader reader = Files.newBufferedReader(md5Manifest.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                    snapshotSorter.add(entry.getContentId(), entry.getChecksum());
+                }
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(openSpaceManifest()))) {
+                ManifestFormatter formatter = new TsvManifestFormatter();
+                // skip header
+                if (formatter.getHeader() != null) {
+                    reader.readLine();
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ManifestItem item = formatter.parseLine(line);
+                    if (!item.getContentId().equals(Constants.SNAPSHOT_PROPS_FILENAME)) {
+                        spaceSorter.add(item.getContentId(), item.getContentChecksum());
+                    }
+                }
+            }
+            log.info("sorted {} snapshot manifest entries and {} space manifest entries",
+                     snapshotSorter.getCount(), spaceSorter.getCount());
+
+            mergeJoin(snapshotSorter.sort(), spaceSorter.sort());
+        } catch (Exception e) {
+            differences = null;
+            String message = "Failed to verify space manifest against snapshot manifest:" + e.getMessage();
+            errors.add(message);
+            log.error(message, e);
+        }
+    }
+
+    /*
+     * Walks both sorted manifests together. An entry only in the snapshot
+     * manifest is missing from the space, an entry only in the space manifest
+     * is extra, and an entry in both with different checksums is mismatched.
+     */
+    private void mergeJoin(Iterator<ManifestEntry> snapshotEntries, Iterator<ManifestEntry> spaceEntries) {
+        long missing = 0;
+        long extra = 0;
+        long mismatched = 0;
+        ManifestEntry snapshotEntry = next(snapshotEntries);
+        ManifestEntry spaceEntry = next(spaceEntries);
+        while (snapshotEntry != null || spaceEntry != null) {
+            int compare;
+            if (snapshotEntry == null) {
+                compare = 1;
+            } else if (spaceEntry == null) {
+                compare = -1;
+            } else {
+                compare = snapshotEntry.getContentId().compareTo(spaceEntry.getContentId());
+            }
+
+            if (compare < 0) {
+                errors.add("Space manifest is missing content id/checksum combination ("
+                           + snapshotEntry.getContentId() + ", " + snapshotEntry.getChecksum() + ")");
+                missing++;
+                addDifference(snapshotEntry.getContentId(), snapshotEntry.getChecksum());
+                snapshotEntry = next(snapshotEntries);
+            } else if (compare > 0) {
+                errors.add("Snapshot manifest does not contain content id/checksum combination ("
+                           + spaceEntry.getContentId() + ", " + spaceEntry.getChecksum() + ")");
+                extra++;
+                addDifference(spaceEntry.getContentId(), null);
+                spaceEntry = next(spaceEntries);
+            } else {
+                if (!snapshotEntry.getChecksum().equals(spaceEntry.getChecksum())) {
+                    errors.add("Checksum mismatch for content id " + snapshotEntry.getContentId()
+                               + ": snapshot manifest (" + snapshotEntry.getChecksum()
+                               + "), space manifest (" + spaceEntry.getChecksum() + ")");
+                    mismatched++;
+                    addDifference(snapshotEntry.getContentId(), snapshotEntry.getChecksum());
+                }
+                snapshotEntry = next(snapshotEntries);
+                spaceEntry = next(spaceEntries);
+            }
+        }
+
+        if (missing + extra + mismatched > 0) {
+            log.error("space manifest differs from snapshot manifest: {} missing, {} extra, {} mismatched",
+                      missing, extra, mismatched);
+        }
+    }
+
+    private ManifestEntry next(Iterator<ManifestEntry> entries) {
+        return entries.hasNext() ? entries.next() : null;
     }
 
     private boolean getResult(List<String> errors) {
@@ -7,16 +7,27 @@
  */
 package org.duracloud.snapshot.service.impl;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.constant.Constants;
+import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ContentIdUtil;
 import org.duracloud.domain.Space;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.error.NotFoundException;
+import org.duracloud.manifest.ManifestFormatter;
+import org.duracloud.manifest.impl.TsvManifestFormatter;
+import org.duracloud.manifeststitch.StitchedManifestGenerator;
+import org.duracloud.mill.db.model.ManifestItem;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.service.RestoreManager;
 import org.duracloud.sync.endpoint.MonitoredFile;
@@ -33,6 +44,14 @@ import org.springframework.util.CollectionUtils;
 /**
  * This class is responsible for syncing content from the bridge to DuraCloud.
  *
+ * When a step which has already written files is restarted, the destination
+ * space is expected to hold content. Given a manifest generator, the writer
+ * then fetches the manifest of the space once and skips each file whose
+ * content id and MD5 checksum, as listed in the MD5 manifest of the restore,
+ * it already holds, rather than syncing every file to the endpoint again.
+ * The files themselves are not read to do so; their checksums were checked
+ * against the restore manifest before the transfer.
+ *
  * @author Daniel Bernstein Date: Jul 17, 2014
  */
 public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>, ItemWriteListener<File> {
@@ -44,6 +63,18 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
     private String destinationSpaceId;
     private RestoreManager restoreManager;
     private String restorationId;
+    private AdaptiveConcurrencyController concurrencyController;
+    private BandwidthLimiter bandwidthLimiter;
+    private String destinationHost;
+    private StitchedManifestGenerator manifestGenerator;
+    private File md5Manifest;
+
+    /*
+     * The content ids of the files present in the destination space with the
+     * checksum of the restore manifest, each entered under an empty checksum.
+     */
+    private ManifestFingerprintSet presentContent;
+    private final AtomicLong skipped = new AtomicLong();
 
     /**
      * @param restorationId
@@ -68,6 +99,32 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
         this.restorationId = restorationId;
     }
 
+    /**
+     * @param concurrencyController notified of the bytes uploaded for each file
+     */
+    public void setConcurrencyController(AdaptiveConcurrencyController concurrencyController) {
+        this.concurrencyController = concurrencyController;
+    }
+
+    /**
+     * @param bandwidthLimiter limits the bandwidth used to upload files
+     * @param destinationHost  the DuraCloud host files are uploaded to
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter, String destinationHost) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.destinationHost = destinationHost;
+    }
+
+    /**
+     * @param manifestGenerator generates the manifest of the destination space
+     *                          when the step is restarted
+     * @param md5Manifest       the MD5 manifest of the restored content
+     */
+    public void setManifestGenerator(StitchedManifestGenerator manifestGenerator, File md5Manifest) {
+        this.manifestGenerator = manifestGenerator;
+        this.md5Manifest = md5Manifest;
+    }
+
     // StepExecution Interface
     /*
      * (non-Javadoc)
@@ -78,6 +135,10 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
     @Override
     public ExitStatus afterStep(StepExecution stepExecution) {
         ExitStatus status = super.afterStep(stepExecution);
+        if (presentContent != null) {
+            log.info("skipped {} file(s) already present in {}", skipped.get(), destinationSpaceId);
+            presentContent = null;
+        }
 
         List<String> errors = getErrors();
         if (errors.isEmpty()) {
@@ -111,6 +172,17 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
         }
     }
 
+    /*
+     * Also discards the position of the reader, so the step is run from the
+     * first file on failure.
+     */
+    @Override
+    protected void resetContextState() {
+        super.resetContextState();
+        getExecutionContext().remove(FileSystemReader.POSITION_KEY);
+        getExecutionContext().remove(FileSystemReader.LARGE_FILES_WRITTEN_KEY);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -125,9 +197,15 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
             restoreManager.transitionRestoreStatus(restorationId, newStatus, "");
             Space space = this.contentStore.getSpace(destinationSpaceId, null, 1, null);
             if (!CollectionUtils.isEmpty(space.getContentIds())) {
-                stepExecution.addFailureException(new RuntimeException("destination space "
-                                                                       + destinationSpaceId +
-                                                                       " must be empty to receive restored content"));
+                if (getExecutionContext().containsKey(ITEMS_READ_KEY)) {
+                    // a restarted step finds the content written by the last run
+                    loadPresentContent();
+                } else {
+                    stepExecution.addFailureException(new RuntimeException("destination space "
+                                                                           + destinationSpaceId +
+                                                                           " must be empty to receive restored " +
+                                                                           "content"));
+                }
             }
         } catch (NotFoundException ex) {
             try {
@@ -163,10 +241,63 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
     public void write(List<? extends File> items) throws Exception {
         log.info("starting to write {} file(s) to duracloud", items.size());
         for (final File file : items) {
-            restoreFile(file, watchDir);
+            if (isPresent(file)) {
+                log.debug("skipping {}, already present in {}", file.getAbsolutePath(), destinationSpaceId);
+                skipped.incrementAndGet();
+            } else {
+                restoreFile(file, watchDir);
+            }
+        }
+    }
+
+    /*
+     * Reads the manifest of the destination space into memory and keeps the
+     * content ids of the restore manifest entries it holds. Should either
+     * manifest be unavailable, every file is synced as usual.
+     */
+    private void loadPresentContent() {
+        if (manifestGenerator == null) {
+            return;
+        }
+        try {
+            ManifestFingerprintSet destination = new ManifestFingerprintSet(0);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                manifestGenerator.generate(destinationSpaceId, ManifestFormat.TSV), StandardCharsets.UTF_8))) {
+                ManifestFormatter formatter = new TsvManifestFormatter();
+                // skip header
+                if (formatter.getHeader() != null) {
+                    reader.readLine();
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ManifestItem item = formatter.parseLine(line);
+                    destination.add(item.getContentId(), item.getContentChecksum());
+                }
+            }
+
+            ManifestFingerprintSet present = new ManifestFingerprintSet(0);
+            try (BufferedReader reader = Files.newBufferedReader(md5Manifest.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ManifestEntry entry = ManifestFileHelper.parseManifestEntry(line);
+                    if (destination.contains(entry.getContentId(), entry.getChecksum())) {
+                        present.add(entry.getContentId(), "");
+                    }
+                }
+            }
+            this.presentContent = present;
+            log.info("loaded manifest of {}: {} file(s) already present", destinationSpaceId, present.size());
+        } catch (Exception ex) {
+            log.warn("unable to load manifest of {}, all files will be synced: {}",
+                     destinationSpaceId, ex.getMessage(), ex);
         }
     }
 
+    private boolean isPresent(File file) {
+        return presentContent != null &&
+               presentContent.contains(ContentIdUtil.getContentId(file, watchDir, null), "");
+    }
+
     /**
      * @param file
      * @throws Exception
@@ -177,7 +308,13 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
 
                 @Override
                 public Object retry() throws Exception {
-                    MonitoredFile monitoredFile = new MonitoredFile(file);
+                    MonitoredFile monitoredFile;
+                    if (bandwidthLimiter != null) {
+                        monitoredFile =
+                            new ThrottledMonitoredFile(file, bandwidthLimiter, restorationId, destinationHost);
+                    } else {
+                        monitoredFile = new MonitoredFile(file);
+                    }
                     SyncResultType result =
                         endpoint.syncFileAndReturnDetailedResult(monitoredFile, watchDir);
                     if (result.equals(SyncResultType.FAILED)) {
@@ -191,6 +328,10 @@ public class SyncWriter extends StepExecutionSupport implements ItemWriter<File>
                     log.info("successfully uploaded {}: result = {}",
                              file.getAbsolutePath(), result);
 
+                    if (concurrencyController != null) {
+                        concurrencyController.addBytesTransferred(file.length());
+                    }
+
                     return result;
                 }
             });
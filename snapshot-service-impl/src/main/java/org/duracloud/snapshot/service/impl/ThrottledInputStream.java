@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream whose reads are limited by a {@link BandwidthLimiter}.
+ * Bandwidth is acquired after each read for the number of bytes actually
+ * read, so large read buffers do not over-reserve.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private BandwidthLimiter limiter;
+    private String jobId;
+    private String host;
+
+    /**
+     * @param in      the stream to read from
+     * @param limiter the limiter shared by all transfers
+     * @param jobId   the snapshot name or restoration id
+     * @param host    the DuraCloud host the content is transferred to or from
+     */
+    public ThrottledInputStream(InputStream in, BandwidthLimiter limiter, String jobId, String host) {
+        super(in);
+        this.limiter = limiter;
+        this.jobId = jobId;
+        this.host = host;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            limiter.acquire(jobId, host, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            limiter.acquire(jobId, host, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            limiter.acquire(jobId, host, skipped);
+        }
+        return skipped;
+    }
+}
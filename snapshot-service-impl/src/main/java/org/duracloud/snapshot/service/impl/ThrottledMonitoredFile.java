@@ -0,0 +1,53 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.duracloud.sync.endpoint.MonitoredFile;
+import org.duracloud.sync.endpoint.MonitoredInputStream;
+
+/**
+ * A monitored file whose upload stream is limited by a {@link BandwidthLimiter}.
+ * Bytes read are still counted by the underlying monitored stream.
+ */
+public class ThrottledMonitoredFile extends MonitoredFile {
+
+    private BandwidthLimiter limiter;
+    private String jobId;
+    private String host;
+    private MonitoredInputStream stream;
+    private MonitoredInputStream throttledStream;
+
+    public ThrottledMonitoredFile(File file, BandwidthLimiter limiter, String jobId, String host) {
+        super(file);
+        this.limiter = limiter;
+        this.jobId = jobId;
+        this.host = host;
+    }
+
+    @Override
+    public synchronized MonitoredInputStream getStream() {
+        MonitoredInputStream current = super.getStream();
+        if (current != stream) {
+            stream = current;
+            throttledStream =
+                new MonitoredInputStream(new ThrottledInputStream(current, limiter, jobId, host));
+        }
+        return throttledStream;
+    }
+
+    /**
+     * @return the given stream of the file's content, limited by the same
+     * limiter as the file's own stream
+     */
+    public InputStream throttle(InputStream in) {
+        return new ThrottledInputStream(in, limiter, jobId, host);
+    }
+}
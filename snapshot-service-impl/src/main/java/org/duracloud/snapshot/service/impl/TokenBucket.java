@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket which limits the rate at which bytes may be transferred.
+ * The bucket refills at the configured rate and holds at most one second's
+ * worth of tokens, so short bursts are allowed but the long term rate does
+ * not exceed the limit.
+ *
+ * A caller which takes more tokens than are available is put into debt and
+ * sleeps until the debt would have been repaid. Later callers see the debt
+ * and wait behind it, which shares the bandwidth fairly among threads.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param bytesPerSecond the rate at which tokens are added to the bucket
+     */
+    public TokenBucket(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        this.tokens = this.bytesPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Changes the rate of the bucket. Takes effect for all subsequent calls
+     * to {@link #acquire(long)}.
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        this.tokens = Math.min(tokens, this.bytesPerSecond);
+    }
+
+    /**
+     * Takes the given number of tokens from the bucket, blocking until the
+     * transfer of that many bytes is within the limit.
+     *
+     * @param bytes the number of bytes about to be transferred
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes the given number of tokens from the bucket without waiting.
+     *
+     * @return the number of nanoseconds the caller must wait before the
+     * transfer is within the limit
+     */
+    protected synchronized long reserve(long bytes) {
+        refill();
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens * NANOS_PER_SECOND / bytesPerSecond);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double added = (double) (now - lastRefill) * bytesPerSecond / NANOS_PER_SECOND;
+        tokens = Math.min(bytesPerSecond, tokens + added);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A crash-safe cache of the details of content items which have already been
+ * transferred to the bridge, used to avoid retrieving them again when a
+ * snapshot step is restarted.
+ *
+ * All details of a content item (MD5, SHA-256 and properties) are kept in a
+ * single record. Updates are committed in groups: a commit occurs once the
+ * configured number of records is pending or the configured interval has
+ * elapsed, whichever comes first, so a crash loses at most that window of
+ * updates (those items are simply retrieved again on restart).
+ *
+ * A task may be set to run before each commit, such as syncing output which
+ * must be on disk before the items it belongs to are recorded as transferred.
+ */
+public class TransferCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferCache.class);
+
+    public static final String MD5 = "md5";
+    public static final String SHA256 = "sha256";
+    public static final String PROPS = "props";
+
+    private File dbFile;
+    private int commitSize;
+    private long commitIntervalMillis;
+
+    private DB db;
+    private Map<String, String> records;
+    private Map<String, Map<String, String>> pending = new HashMap<>();
+    private long lastCommit;
+    private Timer timer;
+    private Runnable beforeCommit;
+
+    /**
+     * @param dbFile               the file in which the cache is stored
+     * @param commitSize           the maximum number of records with uncommitted changes
+     * @param commitIntervalMillis the maximum time changes may remain uncommitted
+     *                             (0 commits on every update)
+     */
+    public TransferCache(File dbFile, int commitSize, long commitIntervalMillis) {
+        this.dbFile = dbFile;
+        this.commitSize = Math.max(1, commitSize);
+        this.commitIntervalMillis = commitIntervalMillis;
+    }
+
+    /**
+     * @param beforeCommit run before each commit, on the committing thread
+     */
+    public synchronized void setBeforeCommit(Runnable beforeCommit) {
+        this.beforeCommit = beforeCommit;
+    }
+
+    public synchronized void open() {
+        this.db = DBMaker.fileDB(dbFile).transactionEnable().closeOnJvmShutdown().make();
+        this.records = db.treeMap("transferCache", Serializer.STRING, Serializer.STRING).createOrOpen();
+        this.lastCommit = System.currentTimeMillis();
+
+        if (commitIntervalMillis > 0) {
+            this.timer = new Timer("transfer-cache-commit", true);
+            this.timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    commitIfDue();
+                }
+            }, commitIntervalMillis, commitIntervalMillis);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty() && records.isEmpty();
+    }
+
+    public String getMd5(String contentId) {
+        return get(contentId, MD5);
+    }
+
+    public String getSha256(String contentId) {
+        return get(contentId, SHA256);
+    }
+
+    public String getProps(String contentId) {
+        return get(contentId, PROPS);
+    }
+
+    public void putMd5(String contentId, String md5) {
+        put(contentId, MD5, md5);
+    }
+
+    public void putSha256(String contentId, String sha256) {
+        put(contentId, SHA256, sha256);
+    }
+
+    public void putProps(String contentId, String props) {
+        put(contentId, PROPS, props);
+    }
+
+    private synchronized String get(String contentId, String field) {
+        Map<String, String> record = pending.get(contentId);
+        if (record == null) {
+            record = readRecord(contentId);
+        }
+        return record != null ? record.get(field) : null;
+    }
+
+    private synchronized void put(String contentId, String field, String value) {
+        Map<String, String> record = pending.get(contentId);
+        if (record == null) {
+            record = readRecord(contentId);
+            if (record == null) {
+                record = new HashMap<>();
+            }
+            pending.put(contentId, record);
+        }
+        record.put(field, value);
+
+        if (pending.size() >= commitSize) {
+            commit();
+        } else {
+            commitIfDue();
+        }
+    }
+
+    /**
+     * Adds a value without triggering a commit. Used to bulk load the cache,
+     * after which {@link #commit()} should be called once.
+     */
+    public synchronized void load(String contentId, String field, String value) {
+        Map<String, String> record = readRecord(contentId);
+        if (record == null) {
+            record = new HashMap<>();
+        }
+        record.put(field, value);
+        records.put(contentId, PropertiesSerializer.serialize(record));
+    }
+
+    private Map<String, String> readRecord(String contentId) {
+        String record = records.get(contentId);
+        return record != null ? PropertiesSerializer.deserialize(record) : null;
+    }
+
+    private synchronized void commitIfDue() {
+        if (db != null && System.currentTimeMillis() - lastCommit >= commitIntervalMillis) {
+            commit();
+        }
+    }
+
+    /**
+     * Writes all pending records and commits them to disk.
+     */
+    public synchronized void commit() {
+        if (beforeCommit != null) {
+            beforeCommit.run();
+        }
+        for (Map.Entry<String, Map<String, String>> entry : pending.entrySet()) {
+            records.put(entry.getKey(), PropertiesSerializer.serialize(entry.getValue()));
+        }
+        db.commit();
+        log.debug("committed {} transfer cache records", pending.size());
+        pending.clear();
+        lastCommit = System.currentTimeMillis();
+    }
+
+    public synchronized void close() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+
+        if (db != null) {
+            if (!db.isClosed()) {
+                commit();
+                db.close();
+            }
+            db = null;
+        }
+    }
+
+    public void delete() {
+        close();
+        dbFile.delete();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import java.io.File;
+
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.repeat.support.RepeatSynchronizationManager;
+
+/**
+ * Completes a chunk of files to upload once it holds either the maximum
+ * number of files or at least the given number of bytes. Small files are so
+ * packed together into chunks of roughly even size, while a large file is
+ * uploaded in a chunk of its own.
+ *
+ * The policy must be registered as a listener of the step, so that it sees
+ * the size of each file as it is read into the chunk.
+ */
+public class UploadBatchCompletionPolicy extends SimpleCompletionPolicy implements ItemReadListener<File> {
+
+    private static final String BYTES_KEY = UploadBatchCompletionPolicy.class.getName() + ".bytes";
+
+    private long maxBytes;
+
+    /**
+     * @param maxFiles the most files in a chunk
+     * @param maxBytes the number of bytes at which a chunk is complete
+     */
+    public UploadBatchCompletionPolicy(int maxFiles, long maxBytes) {
+        super(maxFiles);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return super.isComplete(context, result) || isFull(context);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return super.isComplete(context) || isFull(context);
+    }
+
+    private boolean isFull(RepeatContext context) {
+        Long bytes = (Long) context.getAttribute(BYTES_KEY);
+        return bytes != null && bytes >= maxBytes;
+    }
+
+    @Override
+    public void beforeRead() {
+    }
+
+    /*
+     * Adds the size of the file to the chunk being read on this thread.
+     */
+    @Override
+    public void afterRead(File item) {
+        RepeatContext context = RepeatSynchronizationManager.getContext();
+        if (context != null) {
+            Long bytes = (Long) context.getAttribute(BYTES_KEY);
+            context.setAttribute(BYTES_KEY, (bytes != null ? bytes : 0L) + item.length());
+        }
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+public class AdaptiveConcurrencyControllerTest extends SnapshotTestBase {
+
+    @Test
+    public void testAdjust() {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(2, 8, 4, 60000);
+        StepExecution stepExecution = new StepExecution("step", new JobExecution(1L));
+        controller.beforeStep(stepExecution);
+        assertEquals(4, controller.getLimit());
+
+        // the first sample probes upward
+        controller.adjust(1000, 10, 1000);
+        assertEquals(5, controller.getLimit());
+
+        // improving throughput raises the limit additively
+        controller.adjust(2000, 10, 1000);
+        assertEquals(6, controller.getLimit());
+        assertTrue(controller.getReason().startsWith("throughput increased"));
+
+        // flat throughput holds the limit
+        controller.adjust(2000, 10, 1000);
+        assertEquals(6, controller.getLimit());
+
+        // falling throughput cuts the limit multiplicatively
+        controller.adjust(1000, 5, 1000);
+        assertEquals(4, controller.getLimit());
+        assertTrue(controller.getReason().startsWith("throughput decreased"));
+        assertEquals(4, stepExecution.getExecutionContext().getInt(AdaptiveConcurrencyController.LIMIT_KEY));
+
+        // the limit never drops below the lower bound
+        controller.adjust(100, 1, 1000);
+        controller.adjust(10, 0, 1000);
+        assertEquals(2, controller.getLimit());
+    }
+
+    @Test
+    public void testLimitsActiveThreads() throws Exception {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 1, 1, 60000);
+        TaskExecutor executor = controller.limit(new SimpleAsyncTaskExecutor());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondRan = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // the second task is held back before it is handed to the executor
+        Thread submitting = new Thread(() -> executor.execute(secondRan::countDown));
+        submitting.start();
+        submitting.join(200);
+        assertTrue("second task should wait for a permit", submitting.isAlive());
+        assertEquals(1, secondRan.getCount());
+
+        release.countDown();
+        assertTrue("second task should run once the permit is released", secondRan.await(5, TimeUnit.SECONDS));
+    }
+
+}
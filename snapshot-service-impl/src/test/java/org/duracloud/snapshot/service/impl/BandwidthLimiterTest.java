@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class BandwidthLimiterTest extends SnapshotTestBase {
+
+    @Test
+    public void testTokenBucketDebt() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000);
+        assertEquals(0, bucket.reserve(1000));
+
+        long wait = bucket.reserve(500);
+        assertTrue("expected about half a second, was " + wait,
+                   wait > TimeUnit.MILLISECONDS.toNanos(400) && wait <= TimeUnit.MILLISECONDS.toNanos(500));
+
+        // a later caller waits behind the existing debt
+        assertTrue(bucket.reserve(500) > wait);
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        assertEquals(0, limiter.getGlobalLimit());
+
+        BandwidthLimits limits = new BandwidthLimits();
+        limits.setGlobalBytesPerSecond(5000L);
+        limits.getJobBytesPerSecond().put("snapshot", 2000L);
+        limits.getHostBytesPerSecond().put("host", 3000L);
+        limiter.setLimits(limits);
+
+        BandwidthLimits current = limiter.getLimits();
+        assertEquals(Long.valueOf(5000), current.getGlobalBytesPerSecond());
+        assertEquals(Long.valueOf(2000), current.getJobBytesPerSecond().get("snapshot"));
+        assertEquals(Long.valueOf(3000), current.getHostBytesPerSecond().get("host"));
+
+        // unlisted limits are unchanged, a limit of 0 is removed
+        limits = new BandwidthLimits();
+        limits.getJobBytesPerSecond().put("snapshot", 0L);
+        limiter.setLimits(limits);
+
+        current = limiter.getLimits();
+        assertEquals(Long.valueOf(5000), current.getGlobalBytesPerSecond());
+        assertTrue(current.getJobBytesPerSecond().isEmpty());
+        assertEquals(Long.valueOf(3000), current.getHostBytesPerSecond().get("host"));
+    }
+
+    @Test
+    public void testThrottledStream() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        limiter.setJobLimit("snapshot", 10000);
+
+        byte[] content = new byte[15000];
+        long start = System.currentTimeMillis();
+        try (InputStream is = new ThrottledInputStream(new ByteArrayInputStream(content),
+                                                       limiter, "snapshot", "host")) {
+            assertEquals(content.length, IOUtils.toByteArray(is).length);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // the first 10000 bytes are a permitted burst, the rest take half a second
+        assertTrue("expected the read to be throttled, took " + elapsed + "ms", elapsed >= 400);
+    }
+
+}
@@ -8,11 +8,17 @@
 package org.duracloud.snapshot.service.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
@@ -24,6 +30,9 @@ import org.springframework.util.CollectionUtils;
  */
 public class ContentPropertiesFileReaderTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * @throws java.lang.Exception
      */
@@ -71,6 +80,63 @@ public class ContentPropertiesFileReaderTest {
         Assert.assertEquals(2, count++);
     }
 
+    @Test
+    public void testReadRestart() throws Exception {
+        File file = writePropertiesFile(10);
+        StepExecution stepExecution = new StepExecution("restoreContentProperties", new JobExecution(1L));
+        stepExecution.getExecutionContext().putLong(StepExecutionSupport.ITEMS_READ_KEY, 7);
+
+        ContentPropertiesFileReader reader =
+            new ContentPropertiesFileReader(file, ContentPropertiesIndex.build(file, 3));
+        reader.beforeStep(stepExecution);
+
+        Assert.assertEquals("file7", reader.read().getContentId());
+        Assert.assertEquals("file8", reader.read().getContentId());
+        Assert.assertEquals("file9", reader.read().getContentId());
+        Assert.assertNull(reader.read());
+    }
+
+    @Test
+    public void testReadPartition() throws Exception {
+        File file = writePropertiesFile(10);
+        ContentPropertiesIndex index = ContentPropertiesIndex.build(file, 2);
+        StepExecution stepExecution = new StepExecution("restoreContentProperties:partition1",
+                                                        new JobExecution(1L));
+        stepExecution.getExecutionContext().putLong(ContentPropertiesPartitioner.FIRST_ENTRY_KEY, 4);
+        stepExecution.getExecutionContext().putLong(ContentPropertiesPartitioner.END_ENTRY_KEY, 8);
+        stepExecution.getExecutionContext().putLong(StepExecutionSupport.ITEMS_READ_KEY, 1);
+
+        ContentPropertiesFileReader reader = new ContentPropertiesFileReader(file, index);
+        reader.beforeStep(stepExecution);
+
+        ContentProperties props;
+        int count = 0;
+        while ((props = reader.read()) != null) {
+            verifyProps(props);
+            Assert.assertEquals("file" + (5 + count), props.getContentId());
+            count++;
+        }
+        Assert.assertEquals(3, count);
+        Assert.assertNull(reader.read());
+    }
+
+    private File writePropertiesFile(int count) throws IOException {
+        File file = folder.newFile("content-properties.json");
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("[");
+            for (int i = 0; i < count; i++) {
+                writer.println("{");
+                writer.println("  \"file" + i + "\": {");
+                writer.println("    \"content-checksum\": \"checksum-" + i + "\",");
+                writer.println("    \"content-size\": \"" + (i + 100) + "\"");
+                writer.println("  }");
+                writer.println(i < count - 1 ? "}," : "}");
+            }
+            writer.println("]");
+        }
+        return file;
+    }
+
     /**
      * @param props
      */
@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentPropertiesIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBuild() throws Exception {
+        File file = writePropertiesFile(5);
+        String json = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+        ContentPropertiesIndex index = ContentPropertiesIndex.build(file, 2);
+        assertEquals(5, index.getEntryCount());
+        assertEquals(json.indexOf("{\"file0\""), index.getOffset(0));
+        assertEquals(json.indexOf("{\"file0\""), index.getOffset(1));
+        assertEquals(json.indexOf("{\"file2\""), index.getOffset(3));
+        assertEquals(json.indexOf("{\"file4\""), index.getOffset(4));
+        assertEquals(2, index.getIndexedEntry(3));
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File file = writePropertiesFile(3);
+        File indexFile = new File(file.getPath() + ContentPropertiesIndex.INDEX_SUFFIX);
+
+        assertEquals(3, ContentPropertiesIndex.load(file).getEntryCount());
+        assertTrue(indexFile.exists());
+        assertEquals(3, ContentPropertiesIndex.load(file).getEntryCount());
+
+        // a changed file is indexed again
+        writePropertiesFile(file, 4);
+        file.setLastModified(file.lastModified() + 2000);
+        assertEquals(4, ContentPropertiesIndex.load(file).getEntryCount());
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        ContentPropertiesIndex index = ContentPropertiesIndex.build(writePropertiesFile(10), 2);
+
+        List<long[]> ranges = index.split(3);
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new long[] {0, 4}, ranges.get(0));
+        assertArrayEquals(new long[] {4, 8}, ranges.get(1));
+        assertArrayEquals(new long[] {8, 10}, ranges.get(2));
+
+        assertEquals(1, index.split(1).size());
+        assertEquals(5, index.split(20).size());
+        assertArrayEquals(new long[] {0, 0},
+                          ContentPropertiesIndex.build(writePropertiesFile(0), 2).split(4).get(0));
+    }
+
+    private File writePropertiesFile(int count) throws Exception {
+        return writePropertiesFile(folder.newFile(), count);
+    }
+
+    private File writePropertiesFile(File file, int count) throws Exception {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < count; i++) {
+            json.append("{\"file").append(i).append("\": {\"content-size\": \"").append(i).append("\"}}");
+            json.append(i < count - 1 ? ",\n" : "\n");
+        }
+        json.append("]");
+        FileUtils.writeStringToFile(file, json.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
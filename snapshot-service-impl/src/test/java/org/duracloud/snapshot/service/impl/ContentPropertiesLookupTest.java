@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentPropertiesLookupTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGet() throws Exception {
+        ContentPropertiesLookup lookup = new ContentPropertiesLookup(writePropertiesFile(2000));
+
+        Map<String, String> properties = lookup.get("dir/file1234");
+        assertEquals(2, properties.size());
+        assertEquals("1234", properties.get("content-size"));
+        assertEquals("text/plain", properties.get("content-mimetype"));
+        assertEquals("0", lookup.get("dir/file0").get("content-size"));
+        assertEquals("1999", lookup.get("dir/file1999").get("content-size"));
+        assertNull(lookup.get("dir/file2000"));
+    }
+
+    @Test
+    public void testApplied() throws Exception {
+        ContentPropertiesLookup lookup = new ContentPropertiesLookup(writePropertiesFile(3));
+
+        assertFalse(lookup.isApplied("dir/file1"));
+        lookup.setApplied("dir/file1");
+        assertTrue(lookup.isApplied("dir/file1"));
+        assertFalse(lookup.isApplied("dir/file0"));
+        assertFalse(lookup.isApplied("dir/file2"));
+
+        // the offset of the entry is kept
+        assertEquals("1", lookup.get("dir/file1").get("content-size"));
+    }
+
+    @Test
+    public void testRepeatedEntry() throws Exception {
+        File file = folder.newFile();
+        FileUtils.writeStringToFile(file, "[{\"a\": {\"p\": \"1\"}}, {\"a\": {\"p\": \"2\"}}, {\"b\": {}}]",
+                                    StandardCharsets.UTF_8);
+        ContentPropertiesLookup lookup = new ContentPropertiesLookup(file);
+
+        // left to the content properties step
+        assertNull(lookup.get("a"));
+        lookup.setApplied("a");
+        assertFalse(lookup.isApplied("a"));
+        assertTrue(lookup.get("b").isEmpty());
+    }
+
+    private File writePropertiesFile(int count) throws Exception {
+        File file = folder.newFile();
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < count; i++) {
+            json.append("{\"dir/file").append(i).append("\": {\"content-size\": \"").append(i)
+                .append("\", \"content-mimetype\": \"text/plain\"}}");
+            json.append(i < count - 1 ? ",\n" : "\n");
+        }
+        json.append("]");
+        FileUtils.writeStringToFile(file, json.toString(), StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
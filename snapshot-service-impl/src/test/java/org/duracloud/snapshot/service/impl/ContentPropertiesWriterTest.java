@@ -77,4 +77,28 @@ public class ContentPropertiesWriterTest extends SnapshotTestBase {
 
     }
 
+    @Test
+    public void testWriteSkipsApplied() throws Exception {
+        String destinationSpaceId = "space-id";
+        Map<String, String> props = new HashMap<>();
+        props.put("non-system-prop", "value");
+
+        expect(contentStore.getStoreId()).andReturn("store-id");
+        expect(contentStore.getStorageProviderType()).andReturn("store-type");
+        contentStore.setContentProperties(eq(destinationSpaceId), eq("b"), eq(props));
+        expectLastCall();
+
+        ContentPropertiesLookup appliedProperties = createMock(ContentPropertiesLookup.class);
+        expect(appliedProperties.isApplied("a")).andReturn(true);
+        expect(appliedProperties.isApplied("b")).andReturn(false);
+
+        List<ContentProperties> list = new ArrayList<>();
+        list.add(new ContentProperties("a", props));
+        list.add(new ContentProperties("b", props));
+        replayAll();
+        ContentPropertiesWriter writer = new ContentPropertiesWriter(contentStore, destinationSpaceId);
+        writer.setAppliedProperties(appliedProperties);
+        writer.write(list);
+    }
+
 }
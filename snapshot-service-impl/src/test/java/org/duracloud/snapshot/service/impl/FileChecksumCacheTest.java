@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class FileChecksumCacheTest extends SnapshotTestBase {
+
+    @Test
+    public void testCache() throws Exception {
+        File dir = getTempDir();
+        FileChecksumCache cache = new FileChecksumCache(new File(dir, "index.db"), false);
+        verifyCache(cache, new File(dir, "file"));
+        cache.close();
+    }
+
+    @Test
+    public void testSidecarIndex() throws Exception {
+        File dir = getTempDir();
+        FileChecksumCache cache = new FileChecksumCache(new File(dir, "index.db"), false) {
+            @Override
+            protected UserDefinedFileAttributeView getAttributeView(Path path) {
+                return null;
+            }
+        };
+        verifyCache(cache, new File(dir, "file"));
+        cache.close();
+    }
+
+    @Test
+    public void testChangedWhileChecksummed() throws Exception {
+        File dir = getTempDir();
+        File file = new File(dir, "file");
+        FileUtils.writeStringToFile(file, "content", StandardCharsets.UTF_8);
+
+        FileChecksumCache cache = new FileChecksumCache(new File(dir, "index.db"), false);
+        String identity = cache.identify(file);
+        FileUtils.writeStringToFile(file, "changed content", StandardCharsets.UTF_8);
+        cache.put(file, identity, Algorithm.MD5, "md5");
+        assertNull(cache.get(file, Algorithm.MD5));
+        cache.close();
+    }
+
+    @Test
+    public void testRemoveAll() throws Exception {
+        File dir = getTempDir();
+        FileChecksumCache cache = new FileChecksumCache(new File(dir, "index.db"), false) {
+            @Override
+            protected UserDefinedFileAttributeView getAttributeView(Path path) {
+                return null;
+            }
+        };
+        File removed = new File(dir, "staging/file");
+        File kept = new File(dir, "staging-other/file");
+        for (File file : new File[] {removed, kept}) {
+            file.getParentFile().mkdirs();
+            FileUtils.writeStringToFile(file, "content", StandardCharsets.UTF_8);
+            cache.put(file, cache.identify(file), Algorithm.MD5, "md5");
+        }
+
+        cache.removeAll(new File(dir, "staging"));
+        assertNull(cache.get(removed, Algorithm.MD5));
+        assertEquals("md5", cache.get(kept, Algorithm.MD5));
+        cache.close();
+    }
+
+    @Test
+    public void testParanoid() throws Exception {
+        File dir = getTempDir();
+        File file = new File(dir, "file");
+        FileUtils.writeStringToFile(file, "content", StandardCharsets.UTF_8);
+
+        FileChecksumCache cache = new FileChecksumCache(new File(dir, "index.db"), true);
+        cache.put(file, cache.identify(file), Algorithm.MD5, "md5");
+        assertNull(cache.get(file, Algorithm.MD5));
+        cache.close();
+    }
+
+    private void verifyCache(FileChecksumCache cache, File file) throws Exception {
+        file.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(file, "content", StandardCharsets.UTF_8);
+        assertNull(cache.get(file, Algorithm.MD5));
+
+        String identity = cache.identify(file);
+        cache.put(file, identity, Algorithm.MD5, "md5");
+        cache.put(file, identity, Algorithm.SHA_256, "sha256");
+        assertEquals("md5", cache.get(file, Algorithm.MD5));
+        assertEquals("sha256", cache.get(file, Algorithm.SHA_256));
+
+        // a changed file is checksummed again
+        FileUtils.writeStringToFile(file, "changed content", StandardCharsets.UTF_8);
+        assertNull(cache.get(file, Algorithm.MD5));
+    }
+
+}
@@ -7,21 +7,22 @@
  */
 package org.duracloud.snapshot.service.impl;
 
-import static org.easymock.EasyMock.anyLong;
-import static org.easymock.EasyMock.expect;
-import static org.easymock.EasyMock.isA;
-
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.duracloud.snapshot.common.test.SnapshotTestBase;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.StepExecution;
-import org.springframework.batch.item.ExecutionContext;
 
 /**
  * @author Daniel Bernstein
@@ -44,10 +45,7 @@ public class FileSystemReaderTest extends SnapshotTestBase {
      */
     @Test
     public void testRead() throws Exception {
-        StepExecution stepExecution = createMock(StepExecution.class);
-        ExecutionContext context = createMock(ExecutionContext.class);
-        expect(stepExecution.getExecutionContext()).andReturn(context);
-        expect(context.getLong(isA(String.class), anyLong())).andReturn(0l);
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
 
         File rootDirectory =
             new File(System.getProperty("java.io.tmpdir")
@@ -82,4 +80,142 @@ public class FileSystemReaderTest extends SnapshotTestBase {
 
     }
 
+    @Test
+    public void testResume() throws Exception {
+        File rootDirectory = createTree();
+        replayAll();
+
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
+        FileSystemReader reader = new FileSystemReader(rootDirectory);
+        reader.beforeStep(stepExecution);
+        List<String> paths = readAll(reader, rootDirectory, 3);
+        Assert.assertEquals(Arrays.asList("a/x", "a/y", "b/c/z"), paths);
+        reader.afterStep(stepExecution);
+        Assert.assertEquals("b/c/z", stepExecution.getExecutionContext().getString(FileSystemReader.POSITION_KEY));
+
+        // a restarted step skips what was written
+        reader = new FileSystemReader(rootDirectory);
+        reader.beforeStep(stepExecution);
+        paths = readAll(reader, rootDirectory, -1);
+        Assert.assertEquals(Arrays.asList("b/d", "e"), paths);
+    }
+
+    @Test
+    public void testPositionWaitsForUnwrittenFile() throws Exception {
+        File rootDirectory = createTree();
+        replayAll();
+
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
+        FileSystemReader reader = new FileSystemReader(rootDirectory);
+        reader.beforeStep(stepExecution);
+        File first = reader.read();
+        File second = reader.read();
+        File third = reader.read();
+
+        reader.afterWrite(Arrays.asList(second, third));
+        Assert.assertFalse(stepExecution.getExecutionContext().containsKey(FileSystemReader.POSITION_KEY));
+
+        reader.afterWrite(Arrays.asList(first));
+        Assert.assertEquals("b/c/z", stepExecution.getExecutionContext().getString(FileSystemReader.POSITION_KEY));
+        reader.afterStep(stepExecution);
+    }
+
+    @Test
+    public void testLargestFirst() throws Exception {
+        File rootDirectory = createTree();
+        FileUtils.writeStringToFile(new File(rootDirectory, "b/d"), "12345", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootDirectory, "a/y"), "1234", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootDirectory, "e"), "1234", StandardCharsets.UTF_8);
+        replayAll();
+
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
+        FileSystemReader reader = new FileSystemReader(rootDirectory);
+        reader.setLargeFileThreshold(4);
+        reader.beforeStep(stepExecution);
+        Assert.assertEquals(Arrays.asList("b/d", "a/y"), readAll(reader, rootDirectory, 2));
+        reader.afterStep(stepExecution);
+        Assert.assertEquals(2, stepExecution.getExecutionContext().getLong(FileSystemReader.LARGE_FILES_WRITTEN_KEY));
+        Assert.assertFalse(stepExecution.getExecutionContext().containsKey(FileSystemReader.POSITION_KEY));
+
+        // a restarted step uploads the remaining large file before the rest
+        reader = new FileSystemReader(rootDirectory);
+        reader.setLargeFileThreshold(4);
+        reader.beforeStep(stepExecution);
+        Assert.assertEquals(Arrays.asList("e", "a/x", "b/c/z"), readAll(reader, rootDirectory, -1));
+        Assert.assertEquals("b/c/z", stepExecution.getExecutionContext().getString(FileSystemReader.POSITION_KEY));
+    }
+
+    @Test
+    public void testUnwrittenLargeFileDoesNotHoldPosition() throws Exception {
+        File rootDirectory = createTree();
+        FileUtils.writeStringToFile(new File(rootDirectory, "b/d"), "12345", StandardCharsets.UTF_8);
+        replayAll();
+
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
+        FileSystemReader reader = new FileSystemReader(rootDirectory);
+        reader.setLargeFileThreshold(4);
+        reader.beforeStep(stepExecution);
+        File large = reader.read();
+        Assert.assertEquals(new File(rootDirectory, "b/d"), large);
+
+        // the walk moves on while the large file is still uploading
+        Assert.assertEquals(Arrays.asList("a/x", "a/y"), readAll(reader, rootDirectory, 2));
+        Assert.assertEquals("a/y", stepExecution.getExecutionContext().getString(FileSystemReader.POSITION_KEY));
+        Assert.assertFalse(stepExecution.getExecutionContext().containsKey(FileSystemReader.LARGE_FILES_WRITTEN_KEY));
+
+        reader.afterWrite(Arrays.asList(large));
+        Assert.assertEquals(1, stepExecution.getExecutionContext().getLong(FileSystemReader.LARGE_FILES_WRITTEN_KEY));
+        reader.afterStep(stepExecution);
+    }
+
+    @Test
+    public void testResumeWithLargeFilePending() throws Exception {
+        File rootDirectory = createTree();
+        FileUtils.writeStringToFile(new File(rootDirectory, "b/d"), "123456", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(rootDirectory, "e"), "12345", StandardCharsets.UTF_8);
+        replayAll();
+
+        StepExecution stepExecution = new StepExecution("restoreContent", new JobExecution(1L));
+        FileSystemReader reader = new FileSystemReader(rootDirectory);
+        reader.setLargeFileThreshold(4);
+        reader.beforeStep(stepExecution);
+        Assert.assertEquals(Arrays.asList("b/d"), readAll(reader, rootDirectory, 1));
+        File large = reader.read();
+        Assert.assertEquals(new File(rootDirectory, "e"), large);
+        Assert.assertEquals(Arrays.asList("a/x", "a/y"), readAll(reader, rootDirectory, 2));
+        reader.afterStep(stepExecution);
+        Assert.assertEquals("a/y", stepExecution.getExecutionContext().getString(FileSystemReader.POSITION_KEY));
+        Assert.assertEquals(1, stepExecution.getExecutionContext().getLong(FileSystemReader.LARGE_FILES_WRITTEN_KEY));
+
+        // a restarted step reads the large file which was not written, then resumes the walk
+        reader = new FileSystemReader(rootDirectory);
+        reader.setLargeFileThreshold(4);
+        reader.beforeStep(stepExecution);
+        Assert.assertEquals(Arrays.asList("e", "b/c/z"), readAll(reader, rootDirectory, -1));
+        Assert.assertEquals(2, stepExecution.getExecutionContext().getLong(FileSystemReader.LARGE_FILES_WRITTEN_KEY));
+    }
+
+    private File createTree() throws IOException {
+        File rootDirectory = getTempDir();
+        for (String path : new String[] {"e", "b/d", "a/y", "b/c/z", "a/x"}) {
+            File file = new File(rootDirectory, path);
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+        }
+        return rootDirectory;
+    }
+
+    /*
+     * Reads and writes up to the given number of files, or all if negative.
+     */
+    private List<String> readAll(FileSystemReader reader, File rootDirectory, int count) throws Exception {
+        List<String> paths = new ArrayList<>();
+        File file;
+        while (paths.size() != count && (file = reader.read()) != null) {
+            reader.afterWrite(Arrays.asList(file));
+            paths.add(rootDirectory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+        }
+        return paths;
+    }
+
 }
@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.isNull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.snapshot.common.SnapshotServiceConstants;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.duracloud.snapshot.service.EventLog;
+import org.easymock.Mock;
+import org.junit.Test;
+
+public class FixityAuditorTest extends SnapshotTestBase {
+
+    @Mock
+    private EventLog eventLog;
+
+    @Test
+    public void testAudit() throws Exception {
+        File root = getTempDir();
+        File snapshotDir = stage(new File(root, "snapshots/snapshot-1"), 3);
+        FileUtils.writeStringToFile(new File(snapshotDir, "data/item-1"), "changed", StandardCharsets.UTF_8);
+        new File(snapshotDir, "data/item-2").delete();
+
+        eventLog.logFixityDrift(eq("snapshots/snapshot-1"), eq("item-1"), eq("MD5"), isA(String.class),
+                                isA(String.class));
+        expectLastCall();
+        eventLog.logFixityDrift(eq("snapshots/snapshot-1"), eq("item-1"), eq("SHA-256"), isNull(),
+                                isA(String.class));
+        expectLastCall();
+        eventLog.logFixityDrift(eq("snapshots/snapshot-1"), eq("item-2"), eq("MD5"), isA(String.class),
+                                eq(FixityAuditor.MISSING));
+        expectLastCall();
+        replayAll();
+
+        File stateFile = new File(root, FixityAuditor.STATE_FILE_NAME);
+        FixityAuditor auditor = new FixityAuditor(eventLog, root, stateFile, 1024 * 1024, 1000, 0);
+        assertTrue(auditor.audit());
+
+        FixityAuditStatus status = auditor.getStatus();
+        assertEquals(2, status.getFilesAudited());
+        assertEquals(3, status.getDriftCount());
+        assertEquals(3, status.getDrift().size());
+        assertNotNull(status.getLastPassCompleted());
+        assertFalse(stateFile.exists());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        File root = getTempDir();
+        stage(new File(root, "restorations/restore-1"), 2);
+        stage(new File(root, "snapshots/snapshot-1"), 5);
+
+        // a pass stopped after the second item of the snapshot
+        File stateFile = new File(root, FixityAuditor.STATE_FILE_NAME);
+        FileUtils.writeStringToFile(stateFile, "location=snapshots/snapshot-1\nentry=2\n", StandardCharsets.UTF_8);
+        replayAll();
+
+        FixityAuditor auditor = new FixityAuditor(eventLog, root, stateFile, 1024 * 1024, 1000, 0);
+        assertTrue(auditor.audit());
+        assertEquals(3, auditor.getStatus().getFilesAudited());
+
+        // the next pass audits everything
+        assertTrue(auditor.audit());
+        assertEquals(7, auditor.getStatus().getFilesAudited());
+    }
+
+    @Test
+    public void testCleanedUpDataIsNotDrift() throws Exception {
+        File root = getTempDir();
+        File snapshotDir = stage(new File(root, "snapshots/snapshot-1"), 2);
+        // cleanup has removed the data but not yet the manifest
+        FileUtils.deleteDirectory(new File(snapshotDir, "data"));
+        replayAll();
+
+        FixityAuditor auditor = new FixityAuditor(eventLog, root, new File(root, FixityAuditor.STATE_FILE_NAME),
+                                                  1024 * 1024, 1000, 0);
+        assertTrue(auditor.audit());
+        assertEquals(0, auditor.getStatus().getDriftCount());
+    }
+
+    @Test
+    public void testQuietPeriod() throws Exception {
+        File root = getTempDir();
+        stage(new File(root, "snapshots/snapshot-1"), 2);
+        replayAll();
+
+        FixityAuditor auditor = new FixityAuditor(eventLog, root, new File(root, FixityAuditor.STATE_FILE_NAME),
+                                                  1024 * 1024, 1000, 60000);
+        assertTrue(auditor.audit());
+        assertEquals(0, auditor.getStatus().getFilesAudited());
+    }
+
+    private File stage(File dir, int count) throws IOException {
+        File dataDir = new File(dir, "data");
+        dataDir.mkdirs();
+        ChecksumUtil md5 = new ChecksumUtil(Algorithm.MD5);
+        ChecksumUtil sha256 = new ChecksumUtil(Algorithm.SHA_256);
+        try (Writer md5Writer = new FileWriter(new File(dir, SnapshotServiceConstants.MANIFEST_MD5_TXT_FILE_NAME));
+             Writer sha256Writer =
+                 new FileWriter(new File(dir, SnapshotServiceConstants.MANIFEST_SHA256_TXT_FILE_NAME))) {
+            for (int i = 0; i < count; i++) {
+                String contentId = "item-" + i;
+                File file = new File(dataDir, contentId);
+                FileUtils.writeStringToFile(file, "content " + i, StandardCharsets.UTF_8);
+                ManifestFileHelper.writeManifestEntry(md5Writer, contentId, md5.generateChecksum(file));
+                ManifestFileHelper.writeManifestEntry(sha256Writer, contentId, sha256.generateChecksum(file));
+            }
+        }
+        return dir;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class ManifestFingerprintSetTest extends SnapshotTestBase {
+
+    @Test
+    public void testLoad() throws Exception {
+        int count = 5000;
+        File manifest = writeManifest(count);
+
+        ManifestFingerprintSet set = ManifestFileHelper.loadManifestSetFromFile(manifest);
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.contains("dir/item-" + i, "checksum" + i));
+        }
+        assertFalse(set.contains("dir/item-0", "checksum1"));
+        assertFalse(set.contains("dir/item-" + count, "checksum" + count));
+    }
+
+    @Test
+    public void testRepeatedEntries() throws Exception {
+        File manifest = writeManifest(10);
+        Files.write(manifest.toPath(), "checksum3  data/dir/item-3\n".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+        ManifestFingerprintSet set = ManifestFingerprintSet.load(manifest);
+        assertEquals(10, set.size());
+        assertTrue(set.contains("dir/item-3", "checksum3"));
+    }
+
+    @Test
+    public void testFingerprintCollisions() throws Exception {
+        int count = 100;
+        File manifest = writeManifest(count);
+
+        // every entry with the same last character shares a fingerprint
+        ManifestFingerprintSet set = new ManifestFingerprintSet(0) {
+            @Override
+            protected byte[] digest(String entry) {
+                byte[] digest = new byte[16];
+                digest[0] = (byte) entry.charAt(entry.length() - 1);
+                return digest;
+            }
+        };
+        set.addAll(manifest);
+
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.contains("dir/item-" + i, "checksum" + i));
+        }
+        assertFalse(set.contains("dir/item-1", "checksum11"));
+        assertFalse(set.contains("dir/other", "checksum1"));
+    }
+
+    private File writeManifest(int count) throws Exception {
+        File dir = getTempDir();
+        dir.mkdirs();
+        File manifest = new File(dir, ManifestFileHelper.MANIFEST_MD5_TEXT_FILE_NAME);
+        try (Writer writer = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                ManifestFileHelper.appendManifestEntry(writer, "dir/item-" + i, "checksum" + i);
+            }
+        }
+        return manifest;
+    }
+
+}
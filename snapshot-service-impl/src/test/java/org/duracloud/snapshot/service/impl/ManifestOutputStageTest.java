@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class ManifestOutputStageTest extends SnapshotTestBase {
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        File dir = getTempDir();
+        dir.mkdirs();
+        File propsFile = new File(dir, "content-properties.json");
+        File md5File = new File(dir, "manifest-md5.txt");
+        File sha256File = new File(dir, "manifest-sha256.txt");
+
+        final ManifestOutputStage stage = new ManifestOutputStage(propsFile, md5File, sha256File, 7, 10);
+        stage.open();
+
+        final int threads = 4;
+        final int itemsPerThread = 250;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < itemsPerThread; i++) {
+                        String contentId = "item-" + thread + "-" + i;
+                        Map<String, String> props = new HashMap<>();
+                        props.put("name", "quote \" and backslash \\ in " + contentId);
+                        stage.addMd5(contentId, "md5");
+                        stage.addSha256(contentId, "sha256");
+                        stage.addProperties(contentId, props);
+                    }
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        stage.close();
+
+        int total = threads * itemsPerThread;
+        assertEquals(3 * total, stage.getEntriesWritten());
+
+        List<String> md5Lines = Files.readAllLines(md5File.toPath(), StandardCharsets.UTF_8);
+        assertEquals(total, md5Lines.size());
+        assertTrue(md5Lines.contains("md5  data/item-0-0"));
+        assertEquals(total, Files.readAllLines(sha256File.toPath(), StandardCharsets.UTF_8).size());
+
+        ContentPropertiesFileReader reader = new ContentPropertiesFileReader(propsFile) {
+            @Override
+            protected long getItemsRead() {
+                return 0;
+            }
+        };
+        Set<String> contentIds = new HashSet<>();
+        ContentProperties props;
+        while ((props = reader.read()) != null) {
+            assertEquals("quote \" and backslash \\ in " + props.getContentId(),
+                         props.getProperties().get("name"));
+            contentIds.add(props.getContentId());
+        }
+        assertEquals(total, contentIds.size());
+    }
+
+}
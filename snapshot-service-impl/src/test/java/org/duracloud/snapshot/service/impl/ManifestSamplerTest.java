@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class ManifestSamplerTest extends SnapshotTestBase {
+
+    @Test
+    public void testSample() throws Exception {
+        File dir = getTempDir();
+        File contentDir = new File(dir, "data");
+        contentDir.mkdirs();
+        File manifest = new File(dir, "manifest-md5.txt");
+
+        // one large file and many small ones
+        List<ManifestEntry> entries = new ArrayList<>();
+        try (Writer writer = new FileWriter(manifest)) {
+            for (int i = 0; i < 1000; i++) {
+                String contentId = "item-" + i;
+                int size = i == 0 ? 100000 : 100;
+                FileUtils.writeStringToFile(new File(contentDir, contentId), StringUtils.repeat('x', size), "UTF-8");
+                ManifestFileHelper.writeManifestEntry(writer, contentId, "checksum");
+                entries.add(new ManifestEntry("checksum", contentId));
+            }
+            ManifestFileHelper.writeManifestEntry(writer, "missing", "checksum");
+        }
+        replayAll();
+
+        List<String> sample = sample(manifest, contentDir, entries);
+        // about -ln(0.05) / 0.05 = 60 files, half the bytes being the large file
+        assertTrue(sample.contains("item-0"));
+        assertTrue("sample of " + sample.size(), sample.size() > 10 && sample.size() < 70);
+
+        // a restarted step takes the same sample
+        assertEquals(sample, sample(manifest, contentDir, entries));
+
+        // missing files are always passed on
+        ManifestSampler sampler = new ManifestSampler(manifest, contentDir, "restore-id", 0.95, 0.05);
+        sampler.beforeStep(null);
+        assertNotNull(sampler.process(new ManifestEntry("checksum", "missing")));
+    }
+
+    private List<String> sample(File manifest, File contentDir, List<ManifestEntry> entries) throws Exception {
+        ManifestSampler sampler = new ManifestSampler(manifest, contentDir, "restore-id", 0.95, 0.05);
+        sampler.beforeStep(null);
+        List<String> sample = new ArrayList<>();
+        for (ManifestEntry entry : entries) {
+            if (sampler.process(entry) != null) {
+                sample.add(entry.getContentId());
+            }
+        }
+        return sample;
+    }
+
+}
@@ -16,6 +16,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
@@ -110,6 +111,35 @@ public class ManifestVerifierTest extends EasyMockSupport {
         simulateStepExecution(ExitStatus.FAILED, list);
     }
 
+    @Test
+    public void testBadChecksumInParallel() throws Exception {
+        setupStepExecution(2, itemCount);
+        setupStepExecutionFailure();
+        List<ManifestEntry> list = setupManifestFileAndContentDir();
+        list.get(0).setChecksum("badChecksum");
+        new File(restoreDir, list.get(list.size() - 1).getContentId()).delete();
+        replayAll();
+        createVerifier();
+        verifier.setThreads(4);
+        simulateStepExecution(ExitStatus.FAILED, list);
+    }
+
+    @Test
+    public void testChecksumLargeFile() throws Exception {
+        replayAll();
+        File file = new File(restoreDir, "large");
+        byte[] block = new byte[100000];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (byte) i;
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int i = 0; i < 25; i++) {
+                out.write(block);
+            }
+        }
+        assertEquals(new ChecksumUtil(Algorithm.MD5).generateChecksum(file), BatchChecksumVerifier.md5(file));
+    }
+
     @Test
     public void testContentInManifestButNotOnDisk() throws Exception {
         setupStepExecution(1, itemCount);
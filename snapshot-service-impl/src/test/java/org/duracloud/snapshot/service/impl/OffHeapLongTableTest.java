@@ -0,0 +1,48 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OffHeapLongTableTest {
+
+    @Test
+    public void testInsertAndGrow() {
+        OffHeapLongTable table = new OffHeapLongTable("table", 0);
+        long initialBytes = table.getNativeBytes();
+        for (long key = 1; key <= 5000; key++) {
+            table.insert(key * 31, key);
+        }
+        assertEquals(5000, table.size());
+        assertTrue(table.getNativeBytes() > initialBytes);
+
+        assertEquals(42, table.getValue(table.indexOf(42 * 31)));
+        assertEquals(-1, table.indexOf(5001 * 31));
+
+        int slot = table.indexOf(7 * 31);
+        table.setValue(slot, 8);
+        assertEquals(8, table.getValue(table.indexOf(7 * 31)));
+    }
+
+    @Test
+    public void testRepeatedKey() {
+        OffHeapLongTable table = new OffHeapLongTable("table", 10);
+        table.insert(5, 1);
+        table.insert(5, 2);
+
+        assertEquals(2, table.size());
+        assertTrue(table.indexOf(5, 1) >= 0);
+        assertTrue(table.indexOf(5, 2) >= 0);
+        assertEquals(-1, table.indexOf(5, 3));
+        assertEquals(1, table.getValue(table.indexOf(5)));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.domain.Content;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.duracloud.storage.provider.StorageProvider;
+import org.easymock.Mock;
+import org.junit.Test;
+
+public class ParallelChunkRetrieverTest extends SnapshotTestBase {
+
+    @Mock
+    private ContentStore contentStore;
+
+    @Test
+    public void testRetrieve() throws Exception {
+        String spaceId = "space-id";
+        String contentId = "content-id";
+        String[] chunks = {"first chunk|", "second chunk|", "third"};
+        String fullContent = String.join("", chunks);
+
+        ChecksumUtil md5Util = new ChecksumUtil(Algorithm.MD5);
+        ChunksManifest manifest =
+            new ChunksManifest(contentId, "text/plain", fullContent.length());
+        manifest.setMD5OfSourceContent(md5Util.generateChecksum(fullContent));
+        for (String chunk : chunks) {
+            String chunkId = manifest.nextChunkId();
+            manifest.addEntry(chunkId, md5Util.generateChecksum(chunk), chunk.length());
+            expect(contentStore.getContent(spaceId, chunkId)).andReturn(createContent(chunk, null));
+        }
+
+        Map<String, String> manifestProps = new HashMap<>();
+        manifestProps.put("custom-prop", "value");
+        String manifestId = contentId + ChunksManifest.manifestSuffix;
+        expect(contentStore.getContent(spaceId, manifestId))
+            .andReturn(createContent(ManifestDocumentBinding.createDocumentFrom(manifest), manifestProps));
+
+        replayAll();
+
+        File localFile = new File(getTempDir(), contentId);
+        localFile.getParentFile().mkdirs();
+        localFile.deleteOnExit();
+
+        final Set<String> retrieved = Collections.synchronizedSet(new HashSet<>());
+        ParallelChunkRetriever retriever = new ParallelChunkRetriever(contentStore, 2);
+        Map<String, String> props =
+            retriever.retrieve(new ContentItem(spaceId, manifestId), localFile, retrieved::add);
+
+        assertEquals(fullContent, FileUtils.readFileToString(localFile, StandardCharsets.UTF_8));
+        assertEquals(chunks.length, retrieved.size());
+        assertEquals("value", props.get("custom-prop"));
+        assertEquals(manifest.getHeader().getSourceMD5(),
+                     props.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM));
+        assertEquals(String.valueOf(fullContent.length()),
+                     props.get(StorageProvider.PROPERTIES_CONTENT_SIZE));
+        assertTrue(localFile.delete());
+    }
+
+    private Content createContent(String value, Map<String, String> props) {
+        Content content = new Content();
+        content.setStream(new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8)));
+        content.setProperties(props);
+        return content;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.isNull;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.common.util.ChecksumUtil.Algorithm;
+import org.duracloud.sync.endpoint.MonitoredFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelChunkSyncEndpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAddChunkedContent() throws Exception {
+        String manifest = addChunkedContent(null);
+        assertTrue(manifest.contains(new ChecksumUtil(Algorithm.MD5).generateChecksum(
+            new File(folder.getRoot(), "file.txt"))));
+    }
+
+    @Test
+    public void testChecksumFromRestoreManifest() throws Exception {
+        // the file is not read again for the checksum of the whole file
+        String checksum = "0123456789abcdef0123456789abcdef";
+        File md5Manifest = folder.newFile("manifest-md5.txt");
+        try (Writer writer = new FileWriter(md5Manifest)) {
+            ManifestFileHelper.writeManifestEntry(writer, "file.txt", checksum);
+        }
+        assertTrue(addChunkedContent(md5Manifest).contains(checksum));
+    }
+
+    /*
+     * Uploads a file of three chunks, returning the chunks manifest.
+     */
+    private String addChunkedContent(File md5Manifest) throws Exception {
+        String content = StringUtils.repeat("0123456789", 250);
+        File file = folder.newFile("file.txt");
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+
+        final Map<String, byte[]> stored = new TreeMap<>();
+        // the space is looked up as the endpoint is created
+        ContentStore contentStore = createNiceMock(ContentStore.class);
+        expect(contentStore.addContent(eq("space-id"),
+                                       isA(String.class),
+                                       isA(InputStream.class),
+                                       anyLong(),
+                                       isA(String.class),
+                                       isNull(),
+                                       isA(Map.class)))
+            .andAnswer(() -> {
+                Object[] args = getCurrentArguments();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IOUtils.copy((InputStream) args[2], out);
+                byte[] bytes = out.toByteArray();
+                assertEquals(bytes.length, (long) args[3]);
+                synchronized (stored) {
+                    stored.put((String) args[1], bytes);
+                }
+                return new ChecksumUtil(Algorithm.MD5).generateChecksum(new ByteArrayInputStream(bytes));
+            }).times(4);
+        replay(contentStore);
+
+        ParallelChunkSyncEndpoint endpoint =
+            new ParallelChunkSyncEndpoint(contentStore, "user", "space-id", 1000, 2);
+        if (md5Manifest != null) {
+            endpoint.setMd5Manifest(md5Manifest, folder.getRoot());
+        }
+        endpoint.addUpdateContent("file.txt", new MonitoredFile(file));
+        verify(contentStore);
+
+        // three chunks of at most 1000 bytes, then the manifest
+        String manifestId = "file.txt" + ChunksManifest.manifestSuffix;
+        assertTrue(stored.containsKey(manifestId));
+        List<String> chunks = new ArrayList<>();
+        StringBuilder joined = new StringBuilder();
+        for (Map.Entry<String, byte[]> entry : stored.entrySet()) {
+            if (!entry.getKey().equals(manifestId)) {
+                chunks.add(entry.getKey());
+                joined.append(new String(entry.getValue(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(3, chunks.size());
+        assertEquals(content, joined.toString());
+
+        String manifest = new String(stored.get(manifestId), StandardCharsets.UTF_8);
+        for (String chunkId : chunks) {
+            assertTrue(manifest.contains(chunkId));
+        }
+        return manifest;
+    }
+
+}
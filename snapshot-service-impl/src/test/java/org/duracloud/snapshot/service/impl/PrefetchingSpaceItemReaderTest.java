@@ -0,0 +1,67 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.easymock.Mock;
+import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+
+public class PrefetchingSpaceItemReaderTest extends SnapshotTestBase {
+
+    @Mock
+    private RetrievalSource retrievalSource;
+
+    @Test
+    public void testRead() throws Exception {
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            expect(retrievalSource.getNextContentItem()).andReturn(new ContentItem("space", "item" + i));
+        }
+        expect(retrievalSource.getNextContentItem()).andReturn(null);
+        replayAll();
+
+        PrefetchingSpaceItemReader reader = new PrefetchingSpaceItemReader(retrievalSource, 2);
+        for (int i = 0; i < count; i++) {
+            assertEquals("item" + i, reader.read().getContentId());
+        }
+        assertNull(reader.read());
+        assertNull(reader.read());
+        assertEquals(0, reader.getQueueDepth());
+
+        StepExecution stepExecution = new StepExecution("step", new JobExecution(1L));
+        reader.afterStep(stepExecution);
+        assertEquals(count, stepExecution.getExecutionContext()
+                                         .getLong(PrefetchingSpaceItemReader.ITEMS_LISTED_KEY));
+    }
+
+    @Test
+    public void testListingFailure() throws Exception {
+        expect(retrievalSource.getNextContentItem()).andReturn(new ContentItem("space", "item"));
+        expect(retrievalSource.getNextContentItem()).andThrow(new RuntimeException("listing failed"));
+        replayAll();
+
+        PrefetchingSpaceItemReader reader = new PrefetchingSpaceItemReader(retrievalSource, 5);
+        assertEquals("item", reader.read().getContentId());
+        try {
+            reader.read();
+            fail("listing failure should be rethrown to the reader");
+        } catch (RuntimeException ex) {
+            assertEquals("listing failed", ex.getMessage());
+        }
+    }
+
+}
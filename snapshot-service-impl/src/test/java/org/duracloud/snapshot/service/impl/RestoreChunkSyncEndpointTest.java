@@ -0,0 +1,60 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.client.ContentStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RestoreChunkSyncEndpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateProps() throws Exception {
+        File propertiesFile = folder.newFile("content-properties.json");
+        FileUtils.writeStringToFile(propertiesFile,
+                                    "[{\"dir/a\": {\"color\": \"red\"}}, {\"b\": {\"color\": \"grün\"}}]",
+                                    StandardCharsets.UTF_8);
+        File watchDir = folder.newFolder("data");
+        ContentPropertiesLookup lookup = new ContentPropertiesLookup(propertiesFile);
+
+        // the space is looked up as the endpoint is created
+        ContentStore contentStore = createNiceMock(ContentStore.class);
+        replay(contentStore);
+        RestoreChunkSyncEndpoint endpoint = new RestoreChunkSyncEndpoint(contentStore, "user", "space-id", 1000);
+        endpoint.setContentProperties(lookup, watchDir);
+
+        Map<String, String> props = endpoint.createProps(new File(watchDir, "dir/a").getAbsolutePath(), "user");
+        assertEquals("red", props.get("color"));
+        assertTrue(lookup.isApplied("dir/a"));
+
+        // not US-ASCII, so left to the content properties step
+        props = endpoint.createProps(new File(watchDir, "b").getAbsolutePath(), "user");
+        assertNull(props.get("color"));
+        assertFalse(lookup.isApplied("b"));
+
+        props = endpoint.createProps(new File(watchDir, "c").getAbsolutePath(), "user");
+        assertNull(props.get("color"));
+    }
+
+}
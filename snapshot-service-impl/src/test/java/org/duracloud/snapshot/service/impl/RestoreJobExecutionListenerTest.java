@@ -28,6 +28,7 @@ import org.duracloud.snapshot.common.test.SnapshotTestBase;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.db.repo.RestoreRepo;
 import org.duracloud.snapshot.dto.RestoreStatus;
 import org.duracloud.snapshot.service.BridgeConfiguration;
@@ -138,6 +139,7 @@ public class RestoreJobExecutionListenerTest extends SnapshotTestBase {
 
         restoration.setExpirationDate(EasyMock.isA(Date.class));
         expectLastCall();
+        expect(restoration.getVerificationPolicy()).andReturn(VerificationPolicy.FULL);
 
         EasyMock.expect(snapshotTaskClientHelper
                             .create(EasyMock.isA(DuracloudEndPointConfig.class),
@@ -15,6 +15,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -28,6 +29,7 @@ import org.duracloud.snapshot.common.test.SnapshotTestBase;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.db.repo.RestoreRepo;
 import org.duracloud.snapshot.db.repo.SnapshotRepo;
 import org.duracloud.snapshot.dto.RestoreStatus;
@@ -148,6 +150,74 @@ public class RestoreManagerImplTest extends SnapshotTestBase {
                           emailBody.contains(restorationId));
     }
 
+    @Test
+    public void testRestoreSnapshotSampled() throws SnapshotException {
+        expect(snapshotRepo.findByName(snapshotName)).andReturn(snapshot);
+        expect(snapshot.getStatus()).andReturn(SnapshotStatus.SNAPSHOT_COMPLETE);
+        DuracloudEndPointConfig source = createMock(DuracloudEndPointConfig.class);
+        expect(source.getHost()).andReturn("host.duracloud.org");
+        expect(source.getStoreId()).andReturn("store-id");
+        expect(source.getSpaceId()).andReturn("space-id");
+        expect(snapshot.getSource()).andReturn(source);
+
+        Capture<Restoration> restorationCapture = Capture.newInstance(CaptureType.FIRST);
+        expect(restoreRepo.saveAndFlush(capture(restorationCapture))).andReturn(restoration);
+        eventLog.logRestoreUpdate(isA(Restoration.class));
+        expectLastCall();
+        notificationManager.sendNotification(isA(NotificationType.class),
+                                             isA(String.class),
+                                             isA(String.class),
+                                             isA(String.class),
+                                             isA(String.class));
+        expectLastCall();
+        expect(restoration.getRestorationId()).andReturn(restorationId);
+        replayAll();
+
+        manager.restoreSnapshot(snapshotName, destination, userEmail, VerificationPolicy.SAMPLE, 0.95,
+                                5 * 1000 * 1000L);
+        Restoration saved = restorationCapture.getValue();
+        Assert.assertEquals(VerificationPolicy.SAMPLE, saved.getVerificationPolicy());
+        Assert.assertEquals(0.95, saved.getSampleConfidence(), 0);
+        Assert.assertEquals(Long.valueOf(5 * 1000 * 1000L), saved.getChunkSize());
+        Assert.assertNull(saved.getFullVerificationDate());
+    }
+
+    @Test(expected = SnapshotException.class)
+    public void testRestoreSnapshotInvalidChunkSize() throws SnapshotException {
+        replayAll();
+        manager.restoreSnapshot(snapshotName, destination, userEmail, VerificationPolicy.FULL, null, 1000 * 1000L + 1);
+    }
+
+    @Test
+    public void testVerifySampledRestoreWithoutManifest() throws Exception {
+        expect(restoreRepo.findByStatusAndVerificationPolicyAndFullVerificationDateIsNull(
+            RestoreStatus.RESTORATION_COMPLETE, VerificationPolicy.SAMPLE))
+            .andReturn(Arrays.asList(restoration));
+        expect(restoration.getRestorationId()).andReturn(restorationId).atLeastOnce();
+        expect(restoration.getDestination()).andReturn(destination);
+        expect(restoration.getSnapshot()).andReturn(snapshot);
+        expect(snapshot.getName()).andReturn(snapshotName);
+        expect(destination.getHost()).andReturn("host");
+        expect(destination.getSpaceId()).andReturn("space-id");
+        restoration.setFullVerificationDate(isA(Date.class));
+        expectLastCall();
+        Capture<String> textCapture = Capture.newInstance(CaptureType.FIRST);
+        restoration.setFullVerificationText(capture(textCapture));
+        expectLastCall();
+        expect(restoreRepo.saveAndFlush(restoration)).andReturn(restoration);
+        eventLog.logRestoreUpdate(restoration);
+        expectLastCall();
+        notificationManager.sendNotification(isA(NotificationType.class),
+                                             isA(String.class),
+                                             isA(String.class),
+                                             isA(String.class));
+        expectLastCall();
+        replayAll();
+
+        manager.verifySampledRestores();
+        Assert.assertTrue(textCapture.getValue().startsWith("Verification failed"));
+    }
+
     @Test
     public void testRequestRestoreSnapshot() throws SnapshotException {
         expect(snapshotRepo.findByName(snapshotName)).andReturn(snapshot);
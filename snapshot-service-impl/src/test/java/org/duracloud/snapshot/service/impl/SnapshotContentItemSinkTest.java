@@ -0,0 +1,58 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.SnapshotManager;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.Mock;
+import org.junit.Test;
+
+public class SnapshotContentItemSinkTest extends SnapshotTestBase {
+
+    @Mock
+    private SnapshotManager snapshotManager;
+
+    @Mock
+    private Snapshot snapshot;
+
+    @Test
+    public void testFlushOnSizeAndClose() throws Exception {
+        Capture<Map<String, Map<String, String>>> batches = Capture.newInstance(CaptureType.ALL);
+        snapshotManager.addContentItems(eq(snapshot), capture(batches), isA(Map.class));
+        expectLastCall().times(2);
+        replayAll();
+
+        SnapshotContentItemSink sink = new SnapshotContentItemSink(snapshotManager, snapshot, 2, 0);
+        for (int i = 0; i < 3; i++) {
+            sink.add("content-id-" + i, new HashMap<>(), null);
+        }
+        assertEquals(1, batches.getValues().size());
+        assertEquals(2, batches.getValues().get(0).size());
+
+        sink.close();
+        assertEquals(2, batches.getValues().size());
+        assertTrue(batches.getValues().get(1).containsKey("content-id-2"));
+
+        // nothing left to write
+        sink.flush();
+    }
+
+}
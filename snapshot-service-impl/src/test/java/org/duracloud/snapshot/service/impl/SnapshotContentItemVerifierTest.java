@@ -17,6 +17,7 @@ import static org.junit.Assert.assertEquals;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,6 +38,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.item.ExecutionContext;
 
@@ -128,6 +130,67 @@ public class SnapshotContentItemVerifierTest extends EasyMockSupport {
         simulateStepExecution(ExitStatus.FAILED, snapshotContentItems);
     }
 
+    @Test
+    public void testSuccessfulRunUsingChecksumColumn() throws Exception {
+        setupStepExecution();
+        List<ManifestEntry> list = setupManifestFile();
+        List<SnapshotContentItem> snapshotContentItems = new ArrayList<>();
+        for (ManifestEntry e : list) {
+            snapshotContentItems.add(new SnapshotContentItem(null, e.getContentId(), e.getChecksum()));
+        }
+        replayAll();
+        createVerifier();
+        simulateStepExecution(ExitStatus.COMPLETED, snapshotContentItems);
+    }
+
+    @Test
+    public void testFailureChecksumColumnMismatch() throws Exception {
+        setupStepExecution(1, itemCount);
+        setupStepExecutionFailure();
+
+        List<ManifestEntry> list = setupManifestFile();
+        List<SnapshotContentItem> snapshotContentItems = setupSnapshotContentItems(list);
+        //the checksum column takes precedence over the recorded properties
+        snapshotContentItems.get(0).setMd5("badchecksum");
+        replayAll();
+        createVerifier();
+        simulateStepExecution(ExitStatus.FAILED, snapshotContentItems);
+    }
+
+    @Test
+    public void testPartitionedRun() throws Exception {
+        expect(restoreManager.transitionRestoreStatus(eq(restoreId),
+                                                      eq(RestoreStatus.VERIFYING_SNAPSHOT_REPO_AGAINST_MANIFEST),
+                                                      eq(""))).andReturn(EasyMock.createMock(Restoration.class));
+        List<ManifestEntry> list = setupManifestFile();
+        List<SnapshotContentItem> snapshotContentItems = setupSnapshotContentItems(list);
+        replayAll();
+
+        createVerifier();
+        verifier.setSnapshotItemCount(() -> itemCount);
+        JobExecution jobExecution = new JobExecution(1001L);
+        StepExecution masterExecution = new StepExecution("verify", jobExecution);
+        verifier.beforeStep(masterExecution);
+
+        // each partition verifies its own items against the shared manifest
+        int half = itemCount / 2;
+        for (List<SnapshotContentItem> items : Arrays.asList(snapshotContentItems.subList(0, half),
+                                                             snapshotContentItems.subList(half, itemCount))) {
+            SnapshotContentItemVerifier partitionVerifier = new SnapshotContentItemVerifier(verifier);
+            StepExecution partitionExecution = new StepExecution("verify:partition", jobExecution);
+            partitionVerifier.beforeStep(partitionExecution);
+            partitionVerifier.write(items);
+            partitionVerifier.afterWrite(items);
+            assertEquals(ExitStatus.COMPLETED.getExitCode(),
+                         partitionVerifier.afterStep(partitionExecution).getExitCode());
+        }
+
+        assertEquals(ExitStatus.COMPLETED.getExitCode(), verifier.afterStep(masterExecution).getExitCode());
+
+        verifier.setSnapshotItemCount(() -> itemCount + 1);
+        assertEquals(ExitStatus.FAILED.getExitCode(), verifier.afterStep(masterExecution).getExitCode());
+    }
+
     @Test
     public void testFailureMissingSnapshotItem() throws Exception {
         setupStepExecution(1, itemCount - 1);
@@ -209,13 +272,12 @@ public class SnapshotContentItemVerifierTest extends EasyMockSupport {
 
         List<String> errors = new LinkedList<>();
         expect(context.get(eq(StepExecutionSupport.ERRORS_KEY))).andReturn(errors).atLeastOnce();
-        context.put(eq(StepExecutionSupport.ERRORS_KEY), eq(new LinkedList<>()));
-        expectLastCall();
         expect(stepExecution.getExecutionContext()).andReturn(context).atLeastOnce();
 
         if (errorCount > 0) {
             context.put(isA(String.class), eq(errors));
             expectLastCall().times(errorCount);
+            expect(context.remove(SnapshotRepoManifestReader.LAST_ID_READ_KEY)).andReturn(null);
             context.put(eq(StepExecutionSupport.ERRORS_KEY), eq(new LinkedList<>()));
             expectLastCall();
         }
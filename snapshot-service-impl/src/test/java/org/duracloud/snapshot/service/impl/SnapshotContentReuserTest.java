@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.client.ContentStore;
+import org.duracloud.snapshot.common.SnapshotServiceConstants;
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.service.SnapshotManager;
+import org.easymock.Mock;
+import org.junit.Test;
+
+public class SnapshotContentReuserTest extends SnapshotTestBase {
+
+    private static final String SHA256 =
+        "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @Mock
+    private SnapshotManager snapshotManager;
+
+    @Mock
+    private Snapshot previousSnapshot;
+
+    @Test
+    public void testReuse() throws Exception {
+        File rootDir = getTempDir();
+        File previousContentDir = new File(rootDir, "previous");
+        File contentDir = new File(rootDir, "current");
+        FileUtils.writeStringToFile(new File(previousContentDir, "data/dir/unchanged"), "content",
+                                    StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(previousContentDir, "data/changed"), "old content",
+                                    StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(previousContentDir,
+                                             SnapshotServiceConstants.MANIFEST_SHA256_TXT_FILE_NAME),
+                                    SHA256 + "  data/dir/unchanged\n", StandardCharsets.UTF_8);
+
+        expect(previousSnapshot.getName()).andReturn("previous").anyTimes();
+        expect(snapshotManager.getContentItemProperties(previousSnapshot, "dir/unchanged"))
+            .andReturn(createProps("md5", null));
+        expect(snapshotManager.getContentItemProperties(previousSnapshot, "changed"))
+            .andReturn(createProps("old-md5", null));
+        expect(snapshotManager.getContentItemProperties(previousSnapshot, "new"))
+            .andReturn(null);
+        replayAll();
+
+        SnapshotContentReuser reuser =
+            new SnapshotContentReuser(snapshotManager, previousSnapshot, previousContentDir, contentDir);
+        reuser.open();
+
+        File unchanged = new File(contentDir, "data/dir/unchanged");
+        assertTrue(reuser.reuse("dir/unchanged", unchanged, createProps("md5", "7")));
+        assertEquals("content", FileUtils.readFileToString(unchanged, StandardCharsets.UTF_8));
+        assertEquals(SHA256, reuser.getSha256("dir/unchanged"));
+
+        assertFalse(reuser.reuse("changed", new File(contentDir, "data/changed"), createProps("md5", null)));
+        assertFalse(reuser.reuse("new", new File(contentDir, "data/new"), createProps("md5", null)));
+        assertFalse(new File(contentDir, "data/changed").exists());
+        assertNull(reuser.getSha256("changed"));
+
+        assertEquals(1, reuser.getItemsReused());
+        assertEquals(7, reuser.getBytesReused());
+        reuser.close();
+    }
+
+    private Map<String, String> createProps(String md5, String size) {
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM, md5);
+        if (size != null) {
+            props.put(ContentStore.CONTENT_SIZE, size);
+        }
+        return props;
+    }
+
+}
@@ -125,6 +125,7 @@ public class SnapshotManagerImplTest extends SnapshotTestBase {
     public void testAddContentItem() throws SnapshotException {
         Map<String, String> props = new HashMap<>();
         props.put("key", "value");
+        props.put(ContentStore.CONTENT_CHECKSUM, "md5");
         String contentId = "content-id";
         Capture<SnapshotContentItem> contentItemCapture = Capture.newInstance(CaptureType.FIRST);
         expect(this.snapshotContentItemRepo
@@ -134,9 +135,11 @@ public class SnapshotManagerImplTest extends SnapshotTestBase {
         expect(this.snapshotContentItemRepo.save(capture(contentItemCapture)))
             .andReturn(createMock(SnapshotContentItem.class));
         replayAll();
-        manager.addContentItem(snapshot, contentId, props);
+        manager.addContentItem(snapshot, contentId, props, "sha256");
 
         SnapshotContentItem item = contentItemCapture.getValue();
+        assertEquals("md5", item.getMd5());
+        assertEquals("sha256", item.getSha256());
 
         assertEquals(contentId, item.getContentId());
         assertTrue(item.getMetadata().contains("\"key\""));
@@ -145,6 +148,78 @@ public class SnapshotManagerImplTest extends SnapshotTestBase {
 
     }
 
+    @Test
+    public void testAddContentItems() throws SnapshotException {
+        Map<String, Map<String, String>> contentItems = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> props = new HashMap<>();
+            props.put("key", "value" + i);
+            props.put(ContentStore.CONTENT_CHECKSUM, "md5-" + i);
+            contentItems.put("content-id-" + i, props);
+        }
+        Map<String, String> sha256Checksums = new HashMap<>();
+        sha256Checksums.put("content-id-0", "sha256-0");
+
+        Capture<List<SnapshotContentItem>> itemsCapture = Capture.newInstance(CaptureType.FIRST);
+        expect(this.snapshotContentItemRepo.insertIgnoringDuplicates(capture(itemsCapture)))
+            .andReturn(3);
+        replayAll();
+        manager.addContentItems(snapshot, contentItems, sha256Checksums);
+
+        List<SnapshotContentItem> items = itemsCapture.getValue();
+        assertEquals(3, items.size());
+        for (SnapshotContentItem item : items) {
+            assertTrue(contentItems.containsKey(item.getContentId()));
+            assertNotNull(item.getContentIdHash());
+            assertTrue(item.getMetadata().contains("\"key\""));
+            assertEquals(contentItems.get(item.getContentId()).get(ContentStore.CONTENT_CHECKSUM), item.getMd5());
+            assertEquals(sha256Checksums.get(item.getContentId()), item.getSha256());
+        }
+    }
+
+    @Test
+    public void testGetPreviousSnapshot() {
+        Snapshot current = createSnapshot("current", "space-id", SnapshotStatus.TRANSFERRING_FROM_DURACLOUD, 5);
+        Snapshot older = createSnapshot("older", "space-id", SnapshotStatus.SNAPSHOT_COMPLETE, 1);
+        Snapshot latest = createSnapshot("latest", "space-id", SnapshotStatus.REPLICATING_TO_STORAGE, 3);
+        Snapshot failed = createSnapshot("failed", "space-id", SnapshotStatus.FAILED_TO_TRANSFER_FROM_DURACLOUD, 4);
+        Snapshot otherSpace = createSnapshot("other", "other-space", SnapshotStatus.SNAPSHOT_COMPLETE, 4);
+
+        expect(snapshotRepo.findBySourceHostAndSourceStoreId("host", "store-id"))
+            .andReturn(Arrays.asList(current, older, latest, failed, otherSpace));
+        replayAll();
+
+        assertEquals(latest, manager.getPreviousSnapshot(current));
+    }
+
+    @Test
+    public void testGetContentItemProperties() {
+        SnapshotContentItem item = new SnapshotContentItem();
+        item.setMetadata("{\"content-checksum\":\"md5\"}");
+        expect(snapshotContentItemRepo.findBySnapshotAndContentIdHash(eq(snapshot), isA(String.class)))
+            .andReturn(item);
+        expect(snapshotContentItemRepo.findBySnapshotAndContentIdHash(eq(snapshot), isA(String.class)))
+            .andReturn(null);
+        replayAll();
+
+        assertEquals("md5", manager.getContentItemProperties(snapshot, "content-id").get("content-checksum"));
+        assertEquals(null, manager.getContentItemProperties(snapshot, "missing-content-id"));
+    }
+
+    private Snapshot createSnapshot(String name, String spaceId, SnapshotStatus status, int day) {
+        DuracloudEndPointConfig source = new DuracloudEndPointConfig();
+        source.setHost("host");
+        source.setStoreId("store-id");
+        source.setSpaceId(spaceId);
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.setName(name);
+        snapshot.setSource(source);
+        snapshot.setStatus(status);
+        snapshot.setSnapshotDate(new Date(day * 24 * 60 * 60 * 1000L));
+        return snapshot;
+    }
+
     @Test
     public void testTransferToSnapshotStorageComplete() throws SnapshotException, ContentStoreException, IOException {
         String snapshotId = "snapshot-name";
@@ -10,11 +10,13 @@ package org.duracloud.snapshot.service.impl;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.duracloud.snapshot.db.model.SnapshotContentItem;
 import org.duracloud.snapshot.db.repo.SnapshotContentItemRepo;
@@ -25,7 +27,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.springframework.data.domain.Page;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.data.domain.Pageable;
 
 /**
@@ -34,9 +36,6 @@ import org.springframework.data.domain.Pageable;
 @RunWith(EasyMockRunner.class)
 public class SnapshotRepoManifestReaderTest extends EasyMockSupport {
 
-    @Mock
-    private Page page;
-
     @Mock
     private SnapshotContentItemRepo repo;
 
@@ -66,14 +65,13 @@ public class SnapshotRepoManifestReaderTest extends EasyMockSupport {
     public void testRead() throws Exception {
 
         int count = 3;
-        setupRepo(count);
+        expect(repo.findChecksumsBySnapshotNameAfterId(eq(snapshotName), eq(0L), eq(Long.MAX_VALUE),
+                                                       isA(Pageable.class)))
+            .andReturn(createItems(1, count));
 
         replayAll();
-        SnapshotRepoManifestReader reader = new SnapshotRepoManifestReader(repo, snapshotName) {
-            protected long getItemsRead() {
-                return 0;
-            }
-        };
+        SnapshotRepoManifestReader reader = new SnapshotRepoManifestReader(repo, snapshotName);
+        reader.open(new ExecutionContext());
 
         for (int i = 0; i < count; i++) {
             assertNotNull(reader.read());
@@ -82,18 +80,63 @@ public class SnapshotRepoManifestReaderTest extends EasyMockSupport {
         assertNull(reader.read());
     }
 
-    /**
-     *
-     */
-    private void setupRepo(int count) {
-        List<SnapshotContentItem> items = new LinkedList<>();
-        for (int i = 0; i < count; i++) {
-            items.add(new SnapshotContentItem());
+    @Test
+    public void testRestartFromLastCommittedId() throws Exception {
+        expect(repo.findChecksumsBySnapshotNameAfterId(eq(snapshotName), eq(0L), eq(Long.MAX_VALUE),
+                                                       isA(Pageable.class)))
+            .andReturn(createItems(1, 10));
+        expect(repo.findChecksumsBySnapshotNameAfterId(eq(snapshotName), eq(4L), eq(Long.MAX_VALUE),
+                                                       isA(Pageable.class)))
+            .andReturn(createItems(5, 10));
+
+        replayAll();
+        ExecutionContext context = new ExecutionContext();
+        SnapshotRepoManifestReader reader = new SnapshotRepoManifestReader(repo, snapshotName);
+        reader.open(context);
+        for (int i = 0; i < 4; i++) {
+            reader.read();
         }
+        reader.update(context);
+        assertEquals(4L, context.getLong(SnapshotRepoManifestReader.LAST_ID_READ_KEY));
+
+        // a new reader resumes after the last committed item
+        reader = new SnapshotRepoManifestReader(repo, snapshotName);
+        reader.open(context);
+        for (int i = 5; i <= 10; i++) {
+            assertEquals(Long.valueOf(i), reader.read().getId());
+        }
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testPartitions() throws Exception {
+        expect(repo.findMinIdBySnapshotName(snapshotName)).andReturn(1L);
+        expect(repo.findMaxIdBySnapshotName(snapshotName)).andReturn(10L);
+        expect(repo.findChecksumsBySnapshotNameAfterId(eq(snapshotName), eq(4L), eq(8L), isA(Pageable.class)))
+            .andReturn(createItems(5, 8));
+
+        replayAll();
+        Map<String, ExecutionContext> partitions = new SnapshotRepoPartitioner(repo, snapshotName).partition(3);
+        assertEquals(3, partitions.size());
+        assertEquals(0L, partitions.get("partition0").getLong(SnapshotRepoPartitioner.AFTER_ID_KEY));
+        assertEquals(4L, partitions.get("partition0").getLong(SnapshotRepoPartitioner.MAX_ID_KEY));
+        assertEquals(8L, partitions.get("partition2").getLong(SnapshotRepoPartitioner.AFTER_ID_KEY));
+        assertEquals(10L, partitions.get("partition2").getLong(SnapshotRepoPartitioner.MAX_ID_KEY));
+
+        SnapshotRepoManifestReader reader = new SnapshotRepoManifestReader(repo, snapshotName);
+        reader.open(partitions.get("partition1"));
+        for (int i = 5; i <= 8; i++) {
+            assertEquals(Long.valueOf(i), reader.read().getId());
+        }
+        assertNull(reader.read());
+    }
 
-        expect(page.getTotalPages()).andReturn(1);
-        expect(page.getContent()).andReturn(items);
-        expect(repo.findBySnapshotName(eq(snapshotName), isA(Pageable.class))).andReturn(page);
+    private List<SnapshotContentItem> createItems(long firstId, long lastId) {
+        List<SnapshotContentItem> items = new LinkedList<>();
+        for (long id = firstId; id <= lastId; id++) {
+            items.add(new SnapshotContentItem(id, "content-id-" + id, "md5"));
+        }
+        return items;
     }
 
 }
@@ -292,8 +292,8 @@ public class SpaceItemWriterTest extends SnapshotTestBase {
         writer.beforeStep(stepExecution);
         writeItems(items, 1);
 
-        assertEquals("total checksum performed should be one less than the number of content items",
-                     items.size() - 1, writer.getTotalChecksumsPerformed());
+        assertEquals("checksums should be computed during transfer rather than from the local files",
+                     0, writer.getTotalChecksumsPerformed());
         //close the database using protected method
         //in order to release exclusive file lock
         //by the mapdb instance.
@@ -371,8 +371,8 @@ public class SpaceItemWriterTest extends SnapshotTestBase {
         writer.setIsTest();
         writer.beforeStep(stepExecution);
         writeItems(items, 1);
-        assertEquals("total checksum performed should be one less than the number of content items",
-                     items.size() - 1, writer.getTotalChecksumsPerformed());
+        assertEquals("checksums should be computed during transfer rather than from the local files",
+                     0, writer.getTotalChecksumsPerformed());
 
         //reset the database to ensure that cache is empty
         writer.closeDatabase();
@@ -583,7 +583,8 @@ public class SpaceItemWriterTest extends SnapshotTestBase {
         items.add(item);
         this.snapshotManager.addContentItem(eq(snapshot),
                                             eq(contentId),
-                                            isA(Map.class));
+                                            isA(Map.class),
+                                            isA(String.class));
         expectLastCall().times(times);
         return content;
     }
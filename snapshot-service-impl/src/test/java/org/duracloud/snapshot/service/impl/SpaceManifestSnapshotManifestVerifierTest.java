@@ -8,18 +8,26 @@
 package org.duracloud.snapshot.service.impl;
 
 import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.duracloud.client.ContentStore;
 import org.duracloud.common.constant.Constants;
 import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.common.model.ContentItem;
@@ -44,6 +52,8 @@ public class SpaceManifestSnapshotManifestVerifierTest extends SnapshotTestBase
     private int count = 5;
     @Mock
     private StitchedManifestGenerator generator;
+    @Mock
+    private ContentStore contentStore;
 
     /**
      * @throws java.lang.Exception
@@ -122,6 +132,121 @@ public class SpaceManifestSnapshotManifestVerifierTest extends SnapshotTestBase
 
     }
 
+    @Test
+    public void testSortedVerification() throws Exception {
+        List<ContentItem> items = new LinkedList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new ContentItem(spaceId, contentIdPrefix + i));
+        }
+        items.add(new ContentItem(spaceId, Constants.SNAPSHOT_PROPS_FILENAME));
+        expect(generator.generate(spaceId, ManifestFormat.TSV)).andReturn(createManifestInputStream(items));
+        ManifestTestHelper.setupManifestFile(md5Manifest, 20, correctChecksum, contentIdPrefix);
+        replayAll();
+
+        SpaceManifestSnapshotManifestVerifier verifier = setupVerifier();
+        File sortDir = new File(getTempDir(), "manifest-sort");
+        verifier.setSortedVerification(sortDir, 3);
+        assertTrue(verifier.verify());
+        assertTrue(verifier.getErrors().isEmpty());
+        assertEquals(0, sortDir.listFiles().length);
+    }
+
+    @Test
+    public void testSortedVerificationDifferences() throws Exception {
+        Writer writer = new BufferedWriter(new FileWriter(md5Manifest));
+        ManifestFileHelper.writeManifestEntry(writer, "c", "checksumc");
+        ManifestFileHelper.writeManifestEntry(writer, "a", "checksuma");
+        ManifestFileHelper.writeManifestEntry(writer, "b", "checksumb");
+        writer.close();
+
+        File spaceManifest = File.createTempFile("manifest", "tsv");
+        spaceManifest.deleteOnExit();
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        writer = new BufferedWriter(new FileWriter(spaceManifest));
+        writer.write(formatter.getHeader() + "\n");
+        writer.write(formatter.formatLine(createManifestItem("d", "checksumd")) + "\n");
+        writer.write(formatter.formatLine(createManifestItem("b", "changed")) + "\n");
+        writer.write(formatter.formatLine(createManifestItem("c", "checksumc")) + "\n");
+        writer.close();
+        expect(generator.generate(spaceId, ManifestFormat.TSV)).andReturn(new FileInputStream(spaceManifest));
+        replayAll();
+
+        SpaceManifestSnapshotManifestVerifier verifier = setupVerifier();
+        verifier.setSortedVerification(new File(getTempDir(), "manifest-sort"), 2);
+        assertFalse(verifier.verify());
+
+        List<String> errors = verifier.getErrors();
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(0).startsWith("Space manifest is missing") && errors.get(0).contains("(a, "));
+        assertTrue(errors.get(1).startsWith("Checksum mismatch for content id b"));
+        assertTrue(errors.get(2).startsWith("Snapshot manifest does not contain") && errors.get(2).contains("(d, "));
+    }
+
+    @Test
+    public void testRetryRechecksDifferences() throws Exception {
+        Writer writer = new BufferedWriter(new FileWriter(md5Manifest));
+        ManifestFileHelper.writeManifestEntry(writer, "a", "checksuma");
+        ManifestFileHelper.writeManifestEntry(writer, "b", "checksumb");
+        ManifestFileHelper.writeManifestEntry(writer, "c", "checksumc");
+        writer.close();
+
+        expect(generator.generate(spaceId, ManifestFormat.TSV))
+            .andReturn(createSpaceManifestInputStream("a", "checksuma", "b", "stale", "c", "checksumc"));
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM, "checksumb");
+        expect(contentStore.getContentProperties(spaceId, "b")).andReturn(props);
+        replayAll();
+
+        SpaceManifestSnapshotManifestVerifier verifier = setupVerifier();
+        verifier.setRecheckDifferences(contentStore, 10);
+        assertFalse(verifier.verify());
+        assertNotNull(verifier.getManifestDate());
+
+        // the retry only looks up the entry which differed
+        assertTrue(verifier.verify());
+        assertTrue(verifier.getErrors().isEmpty());
+        assertNull(verifier.getManifestDate());
+    }
+
+    @Test
+    public void testRetryRegeneratesPastThreshold() throws Exception {
+        Writer writer = new BufferedWriter(new FileWriter(md5Manifest));
+        ManifestFileHelper.writeManifestEntry(writer, "a", "checksuma");
+        ManifestFileHelper.writeManifestEntry(writer, "b", "checksumb");
+        writer.close();
+
+        expect(generator.generate(spaceId, ManifestFormat.TSV))
+            .andReturn(createSpaceManifestInputStream("a", "stale", "b", "stale"));
+        expect(generator.generate(spaceId, ManifestFormat.TSV))
+            .andReturn(createSpaceManifestInputStream("a", "checksuma", "b", "checksumb"));
+        replayAll();
+
+        SpaceManifestSnapshotManifestVerifier verifier = setupVerifier();
+        verifier.setRecheckDifferences(contentStore, 1);
+        assertFalse(verifier.verify());
+        assertTrue(verifier.verify());
+    }
+
+    private InputStream createSpaceManifestInputStream(String... idsAndChecksums) throws Exception {
+        File spaceManifest = File.createTempFile("manifest", "tsv");
+        spaceManifest.deleteOnExit();
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        Writer writer = new BufferedWriter(new FileWriter(spaceManifest));
+        writer.write(formatter.getHeader() + "\n");
+        for (int i = 0; i < idsAndChecksums.length; i += 2) {
+            writer.write(formatter.formatLine(createManifestItem(idsAndChecksums[i], idsAndChecksums[i + 1])) + "\n");
+        }
+        writer.close();
+        return new FileInputStream(spaceManifest);
+    }
+
+    private ManifestItem createManifestItem(String contentId, String checksum) {
+        ManifestItem item = new ManifestItem();
+        item.setContentId(contentId);
+        item.setContentChecksum(checksum);
+        return item;
+    }
+
     /**
      * @return
      */
@@ -14,15 +14,24 @@ import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.isNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.duracloud.client.ContentStore;
+import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.domain.Space;
 import org.duracloud.error.NotFoundException;
+import org.duracloud.manifest.impl.TsvManifestFormatter;
+import org.duracloud.manifeststitch.StitchedManifestGenerator;
+import org.duracloud.mill.db.model.ManifestItem;
 import org.duracloud.snapshot.common.test.SnapshotTestBase;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.dto.RestoreStatus;
@@ -60,6 +69,9 @@ public class SyncWriterTest extends SnapshotTestBase {
     @Mock
     private RestoreManager restoreManager;
 
+    @Mock
+    private StitchedManifestGenerator generator;
+
     @Mock
     private Restoration restoration;
 
@@ -194,6 +206,7 @@ public class SyncWriterTest extends SnapshotTestBase {
                                      isNull(String.class)))
             .andReturn(space);
 
+        expect(stepExecution.getExecutionContext()).andReturn(new ExecutionContext());
         stepExecution.addFailureException(isA(Throwable.class));
 
         replayAll();
@@ -202,4 +215,60 @@ public class SyncWriterTest extends SnapshotTestBase {
 
     }
 
+    @Test
+    public void testRestartSkipsPresentFiles() throws Exception {
+        setupBeforeTransition();
+
+        Space space = new Space();
+        space.setContentIds(new ArrayList<String>(Arrays.asList(new String[] {"a"})));
+        expect(contentStore.getSpace(isA(String.class),
+                                     isNull(String.class),
+                                     anyInt(),
+                                     isNull(String.class)))
+            .andReturn(space);
+
+        // the last run wrote some files
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(StepExecutionSupport.ITEMS_READ_KEY, 0);
+        expect(stepExecution.getExecutionContext()).andReturn(context).anyTimes();
+
+        List<File> files = new ArrayList<>();
+        for (String name : new String[] {"a", "b", "c"}) {
+            File file = new File(watchDir, name);
+            FileUtils.writeStringToFile(file, "content " + name, StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        // a is present, b is present with another checksum, c is missing
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        StringBuilder manifest = new StringBuilder(formatter.getHeader() + "\n");
+        String[][] entries = {{"a", BatchChecksumVerifier.md5(files.get(0))}, {"b", "checksum"}};
+        for (String[] entry : entries) {
+            ManifestItem item = new ManifestItem();
+            item.setContentId(entry[0]);
+            item.setContentChecksum(entry[1]);
+            manifest.append(formatter.formatLine(item)).append("\n");
+        }
+        expect(generator.generate("spaceId", ManifestFormat.TSV))
+            .andReturn(new ByteArrayInputStream(manifest.toString().getBytes(StandardCharsets.UTF_8)));
+
+        expect(endpoint.syncFileAndReturnDetailedResult(isA(MonitoredFile.class),
+                                                        isA(File.class)))
+            .andReturn(SyncResultType.ADDED)
+            .times(2);
+        replayAll();
+
+        // the restore manifest lists the checksums of the files
+        File md5Manifest = File.createTempFile("manifest-md5", ".txt");
+        md5Manifest.deleteOnExit();
+        try (Writer manifestWriter = new FileWriter(md5Manifest)) {
+            for (File file : files) {
+                ManifestFileHelper.writeManifestEntry(manifestWriter, file.getName(), BatchChecksumVerifier.md5(file));
+            }
+        }
+        writer.setManifestGenerator(generator, md5Manifest);
+        writer.beforeStep(stepExecution);
+        writer.write(files);
+    }
+
 }
@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.snapshot.common.test.SnapshotTestBase;
+import org.junit.Test;
+
+public class TransferCacheTest extends SnapshotTestBase {
+
+    @Test
+    public void testCombinedRecordSurvivesReopen() throws Exception {
+        File dbFile = createDbFile();
+        TransferCache cache = new TransferCache(dbFile, 10, 60000);
+        cache.open();
+        assertTrue(cache.isEmpty());
+
+        cache.putMd5("item", "md5");
+        cache.putSha256("item", "sha256");
+        cache.putProps("item", "{}");
+        assertEquals("md5", cache.getMd5("item"));
+        assertFalse(cache.isEmpty());
+        cache.close();
+
+        cache = new TransferCache(dbFile, 10, 60000);
+        cache.open();
+        assertEquals("md5", cache.getMd5("item"));
+        assertEquals("sha256", cache.getSha256("item"));
+        assertEquals("{}", cache.getProps("item"));
+        assertNull(cache.getMd5("other-item"));
+        cache.delete();
+        assertFalse(dbFile.exists());
+    }
+
+    @Test
+    public void testBulkLoad() throws Exception {
+        File dbFile = createDbFile();
+        TransferCache cache = new TransferCache(dbFile, 10, 60000);
+        cache.open();
+        for (int i = 0; i < 100; i++) {
+            cache.load("item" + i, TransferCache.MD5, "md5-" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.load("item" + i, TransferCache.SHA256, "sha256-" + i);
+        }
+        cache.commit();
+
+        assertEquals("md5-42", cache.getMd5("item42"));
+        assertEquals("sha256-42", cache.getSha256("item42"));
+        assertNull(cache.getProps("item42"));
+        cache.delete();
+    }
+
+    @Test
+    public void testBeforeCommit() throws Exception {
+        TransferCache cache = new TransferCache(createDbFile(), 2, 60000);
+        final AtomicInteger commits = new AtomicInteger();
+        cache.setBeforeCommit(commits::incrementAndGet);
+        cache.open();
+
+        cache.putMd5("item1", "md5");
+        assertEquals(0, commits.get());
+        cache.putMd5("item2", "md5");
+        assertEquals(1, commits.get());
+        cache.delete();
+        assertEquals(2, commits.get());
+    }
+
+    private File createDbFile() {
+        File dir = getTempDir();
+        dir.mkdirs();
+        return new File(dir, "transfer-cache.db");
+    }
+
+}
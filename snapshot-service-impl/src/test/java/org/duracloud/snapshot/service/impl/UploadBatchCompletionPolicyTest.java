@@ -0,0 +1,65 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.snapshot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+
+public class UploadBatchCompletionPolicyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testChunkSizes() throws Exception {
+        final List<File> files = new ArrayList<>();
+        for (int size : new int[] {3, 3, 3, 20, 1, 1, 1, 1, 1}) {
+            File file = folder.newFile();
+            FileUtils.writeStringToFile(file, StringUtils.repeat('x', size), StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        final UploadBatchCompletionPolicy policy = new UploadBatchCompletionPolicy(4, 8);
+        RepeatTemplate template = new RepeatTemplate();
+        template.setCompletionPolicy(policy);
+
+        List<Integer> chunks = new ArrayList<>();
+        while (!files.isEmpty()) {
+            final int[] count = {0};
+            template.iterate(context -> {
+                if (files.isEmpty()) {
+                    return RepeatStatus.FINISHED;
+                }
+                policy.afterRead(files.remove(0));
+                count[0]++;
+                return RepeatStatus.CONTINUABLE;
+            });
+            chunks.add(count[0]);
+        }
+
+        // 9 bytes, then 20 bytes, then the most files allowed, then the rest
+        assertEquals(4, chunks.size());
+        assertEquals(Integer.valueOf(3), chunks.get(0));
+        assertEquals(Integer.valueOf(1), chunks.get(1));
+        assertEquals(Integer.valueOf(4), chunks.get(2));
+        assertEquals(Integer.valueOf(1), chunks.get(3));
+    }
+
+}
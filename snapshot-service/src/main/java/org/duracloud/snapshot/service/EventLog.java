@@ -44,6 +44,19 @@ public class EventLog {
                                       snapshot.getMemberId()}));
     }
 
+    public void logFixityDrift(String location,
+                               String contentId,
+                               String algorithm,
+                               String expected,
+                               String actual) {
+        log.warn(format(new Object[] {"FIXITY_DRIFT",
+                                      location,
+                                      contentId,
+                                      algorithm,
+                                      expected,
+                                      actual}));
+    }
+
     private String format(Object[] objects) {
         return StringUtils.join(objects, "\t");
     }
@@ -13,6 +13,7 @@ import org.duracloud.snapshot.SnapshotNotFoundException;
 import org.duracloud.snapshot.db.model.DuracloudEndPointConfig;
 import org.duracloud.snapshot.db.model.Restoration;
 import org.duracloud.snapshot.db.model.Snapshot;
+import org.duracloud.snapshot.db.model.VerificationPolicy;
 import org.duracloud.snapshot.dto.RestoreStatus;
 
 /**
@@ -43,6 +44,32 @@ public interface RestoreManager {
                                 String userEmail)
         throws SnapshotNotFoundException, SnapshotInProcessException, SnapshotException;
 
+    /**
+     * Initiates the restoration of a snapshot, verified according to the
+     * given policy and with large files uploaded in chunks of the given size.
+     *
+     * @param snapshotId
+     * @param destination
+     * @param userEmail
+     * @param verificationPolicy how the restored content is verified, FULL if null
+     * @param sampleConfidence   the confidence of a sample verification, or
+     *                           null for the configured default
+     * @param chunkSize          the size in bytes of the chunks large files
+     *                           are uploaded in, or null for the configured
+     *                           default
+     * @return
+     * @throws SnapshotNotFoundException
+     * @throws SnapshotInProcessException
+     * @throws SnapshotException
+     */
+    Restoration restoreSnapshot(String snapshotId,
+                                DuracloudEndPointConfig destination,
+                                String userEmail,
+                                VerificationPolicy verificationPolicy,
+                                Double sampleConfidence,
+                                Long chunkSize)
+        throws SnapshotNotFoundException, SnapshotInProcessException, SnapshotException;
+
     /**
      * Sends an email request to duracloud admin to restore a space.
      *
@@ -105,6 +132,12 @@ public interface RestoreManager {
      */
     public void finalizeRestores();
 
+    /**
+     * Look for completed restorations which were verified by sampling, and
+     * verify all of their restored content
+     */
+    public void verifySampledRestores();
+
     /**
      * Cancels a restore.
      *
@@ -23,10 +23,41 @@ public interface SnapshotManager {
      * @param snapshot
      * @param contentId
      * @param props
+     * @param sha256 the SHA-256 checksum of the content, may be null
      */
     public void addContentItem(Snapshot snapshot,
                                String contentId,
-                               Map<String, String> props) throws SnapshotException;
+                               Map<String, String> props,
+                               String sha256) throws SnapshotException;
+
+    /**
+     * Adds a batch of content items to a snapshot in a single insert. Items
+     * which have already been added to the snapshot are ignored.
+     *
+     * @param snapshot
+     * @param contentItems    the properties of each item keyed by content id
+     * @param sha256Checksums the SHA-256 checksum of each item keyed by content id
+     */
+    public void addContentItems(Snapshot snapshot,
+                                Map<String, Map<String, String>> contentItems,
+                                Map<String, String> sha256Checksums) throws SnapshotException;
+
+    /**
+     * Finds the most recent snapshot of the same space whose content was
+     * transferred to the bridge in full.
+     *
+     * @param snapshot
+     * @return the previous snapshot or null if there is none
+     */
+    public Snapshot getPreviousSnapshot(Snapshot snapshot);
+
+    /**
+     * @param snapshot
+     * @param contentId
+     * @return the properties recorded for the content item when it was added
+     * to the snapshot, or null if the snapshot does not contain the item
+     */
+    public Map<String, String> getContentItemProperties(Snapshot snapshot, String contentId);
 
     /**
      * Adds a list of snapshot alternate Id's to a snapshot. To map Bag Id's